@@ -2,36 +2,51 @@ import java.util.ArrayList;
 
 /**
  * This class implements the CardGame interface and is used to model Big Two card game.
+ * The rules are checked here without any user interface; what happens in the game is reported
+ * to a BigTwoListener, which is the BigTwoGUI when the game is played by people.
  * 
  * @author Kang Hyunwoo
  */
 public class BigTwo implements CardGame{
+	private static final long THREE_OF_DIAMONDS = 1L << CardSet.indexOf(0, 2);
 	private int numOfPlayers;
 	private int currentPlayerIdx;
 	private Deck deck;
 	private ArrayList<CardGamePlayer> playerList;
 	private ArrayList<Hand> handsOnTable;
-	private BigTwoGUI ui;
+	//CardSet mask of every card played in this game; unlike handsOnTable, it survives a restore()
+	private long playedCards;
+	private BigTwoListener listener;
 	private BigTwoClient client;
 	private String[] playerNames;
 	
 	/**
-	 * Constructor for creating Big Two card game.
+	 * Constructor for creating Big Two card game with a GUI, connected to the game server.
 	 */
 	public BigTwo() {
+		this(null);
+		BigTwoGUI ui = new BigTwoGUI(this);
+		listener = ui;
+		ui.repaint();
+
+		client = new BigTwoClient(this, ui);
+		client.connect();
+	}
+	
+	/**
+	 * Constructor for creating a headless Big Two card game, with no GUI and no network connection.
+	 * @param listener listener to be told about the events of the game, or null if nobody listens
+	 */
+	public BigTwo(BigTwoListener listener) {
 		deck = new BigTwoDeck();
 		numOfPlayers = 4;
 		playerList = new ArrayList<CardGamePlayer>();
 		for(int i=0; i<numOfPlayers; i++) {
-			CardGamePlayer player = new CardGamePlayer();
+			CardGamePlayer player = new CardGamePlayer("Player " + i);
 			playerList.add(player);
 		}
 		handsOnTable = new ArrayList<Hand>();
-		ui = new BigTwoGUI(this);
-		ui.repaint();
-
-		client = new BigTwoClient(this, ui);
-		client.connect();
+		this.listener = listener != null ? listener : new BigTwoListener() {};
 	}
 	
 	/**
@@ -66,6 +81,15 @@ public class BigTwo implements CardGame{
 		return handsOnTable;
 	}
 	
+	/**
+	 * Getter function for retrieving the cards played so far in this game. After a restore() these are not
+	 * all on the table, which only holds the last hand.
+	 * @return CardSet mask of the cards played
+	 */
+	public synchronized long getPlayedCards() {
+		return playedCards;
+	}
+	
 	/**
 	 * Getter function for retrieving the index of the current player
 	 * @return index of the current player
@@ -106,61 +130,170 @@ public class BigTwo implements CardGame{
 		this.client = client;
 	}
 	
+	/**
+	 * Sets the listener to be told about the events of the game
+	 * @param listener the listener, or null if nobody listens
+	 */
+	public void setListener(BigTwoListener listener) {
+		this.listener = listener != null ? listener : new BigTwoListener() {};
+	}
+	
 	/**
 	 * Method for starting the game with given shuffled deck of cards
 	 * @param deck Deck of card
 	 */
-	public void start(Deck deck) {
-		ui.reset();
-		//remove all the cards from the players as well as from the table
-		for(int i=0; i<4; i++) {
-			playerList.get(i).removeAllCards();
-		}
-		handsOnTable.clear();
-		
-		//distribute the cards to the players
+	public synchronized void start(Deck deck) {
+		//player i gets the cards i*13 to i*13+12 of the deck
+		long[] hands = new long[numOfPlayers];
 		for(int i=0; i<4; i++) {
 			for(int j=0; j<13; j++) {
-				playerList.get(i).addCard(deck.getCard(i*13+j));
+				Card card = deck.getCard(i*13+j);
+				if (card != null) {
+					hands[i] |= CardSet.bitOf(card);
+				}
 			}
 		}
+		start(hands);
+	}
+	
+	/**
+	 * Method for starting the game with the given hands, e.g. from a BigTwoDealer
+	 * @param hands CardSet mask of the cards of each player
+	 */
+	public synchronized void start(long[] hands) {
+		//remove all the cards from the players as well as from the table
+		handsOnTable.clear();
+		playedCards = 0L;
 		
+		//give each player his/her cards already in the Big Two order, so no sorting is needed
 		for(int i=0; i<4; i++) {
-			playerList.get(i).sortCardsInHand();
+			CardGamePlayer player = playerList.get(i);
+			player.removeAllCards();
+			dealTo(player, hands[i]);
 		}
 		
 		// Find the player who holds the Three of Diamonds
-		CardGamePlayer diamondThreePlayer = new CardGamePlayer();
-		BigTwoCard threeOfDiamonds = new BigTwoCard(0,2); 
-		
+		currentPlayerIdx = -1;
 		for(int i=0; i<4; i++) {
-			if(playerList.get(i).getCardsInHand().contains(threeOfDiamonds)) {
-				diamondThreePlayer = playerList.get(i);
+			if((playerList.get(i).getCardsInHand().getMask() & THREE_OF_DIAMONDS) != 0) {
+				currentPlayerIdx = i;
 			}
 		}
-		// Set both the currentPlayerIdx of the BigTwo object and the activePlayer of the BigTwoUI object to the index of the player who holds the Three of Diamonds;
-		currentPlayerIdx = playerList.indexOf(diamondThreePlayer);
-		ui.setActivePlayer(currentPlayerIdx);
-		ui.enable();
-		ui.repaint();
+		listener.gameStarted(currentPlayerIdx);
 	}
 	
 	/**
-	 * Method for printing Not a legal move
+	 * Method for starting the game with the deal of one seat sent by the server. The cards of the other
+	 * players are not known; they only hold the given number of hidden cards.
+	 * @param deal the cards of the local player and the number of cards of every player
+	 */
+	public synchronized void start(SeatDeal deal) {
+		handsOnTable.clear();
+		playedCards = 0L;
+		for(int i=0; i<4; i++) {
+			CardGamePlayer player = playerList.get(i);
+			player.removeAllCards();
+			if (i == deal.getSeat()) {
+				dealTo(player, deal.getCards());
+			} else {
+				player.setNumOfHiddenCards(deal.getNumOfCards(i));
+			}
+		}
+		currentPlayerIdx = deal.getFirstPlayerIdx();
+		listener.gameStarted(currentPlayerIdx);
+	}
+	
+	/**
+	 * Method for restoring a game in progress from a snapshot sent by the server, when the client resumes its
+	 * seat. Only the last hand on the table is restored, which is all the rules need.
+	 * @param snapshot the state of the game as seen from the seat of the local player
+	 */
+	public synchronized void restore(GameSnapshot snapshot) {
+		handsOnTable.clear();
+		playedCards = snapshot.getPlayedCards();
+		for(int i=0; i<4; i++) {
+			CardGamePlayer player = playerList.get(i);
+			player.removeAllCards();
+			if (i == snapshot.getSeat()) {
+				dealTo(player, snapshot.getCards());
+			} else {
+				player.setNumOfHiddenCards(snapshot.getNumOfCards(i));
+			}
+		}
+		if (snapshot.getLastCards() != 0L) {
+			CardList lastCards = new CardList();
+			long cards = snapshot.getLastCards();
+			for (int i = CardSet.nextIndex(cards, 0); i >= 0; i = CardSet.nextIndex(cards, i + 1)) {
+				lastCards.addCard(BigTwoCard.valueOf(i));
+			}
+			handsOnTable.add(composeHand(playerList.get(snapshot.getLastPlayerIdx()), lastCards));
+		}
+		currentPlayerIdx = snapshot.getCurrentPlayerIdx();
+		listener.gameStarted(currentPlayerIdx);
+	}
+	
+	/**
+	 * Gives a player the given cards in the Big Two order.
+	 */
+	private static void dealTo(CardGamePlayer player, long hand) {
+		for (int pos = 0; pos < CardSet.NUM_OF_CARDS; pos++) {
+			//3 to K are bits 8 to 51, followed by A and 2 in bits 0 to 7
+			int index = (pos + 8) % CardSet.NUM_OF_CARDS;
+			if ((hand & (1L << index)) != 0) {
+				player.addCard(BigTwoCard.valueOf(index));
+			}
+		}
+	}
+	
+	/**
+	 * Method for reporting that the move of the current player is not a legal move
 	 */
 	public void illegalMove() {
-		String msg = "Not a legal move !!\n";
-		ui.printMsg(msg);
-		return;
+		listener.illegalMove(currentPlayerIdx);
+	}
+	
+	/**
+	 * Returns the strength key of the hand that the current player has to beat.
+	 * @return the key of the last hand on the table, or MoveGenerator.ANY_HAND if the current player
+	 *         can play any legal hand (first move of the game, or nobody beat his/her last hand)
+	 */
+	public synchronized int getTableKey() {
+		if (handsOnTable.isEmpty()) {
+			return MoveGenerator.ANY_HAND;
+		}
+		Hand lastHand = handsOnTable.get(handsOnTable.size() - 1);
+		if (lastHand.getPlayer() == playerList.get(currentPlayerIdx)) {
+			return MoveGenerator.ANY_HAND;
+		}
+		return lastHand.getKey();
+	}
+	
+	/**
+	 * Returns the cards that the move of the current player has to contain.
+	 * @return the CardSet mask of the Three of Diamonds for the first move of the game, otherwise 0
+	 */
+	public synchronized long getRequiredCards() {
+		return handsOnTable.isEmpty() ? THREE_OF_DIAMONDS : 0L;
 	}
 	
 	/**
 	 * Method for making a move by a player with the specified index using the cards specified by the list of indices.
+	 * When the game is connected to a server, a legal move is sent to the server, which plays it on every client;
+	 * otherwise it is played at once.
 	 * @param playerIdx index number of the current player
 	 * @param cardIdx array of index number(s) of card(s) that current player selected
 	 */
 	public synchronized void makeMove(int playerIdx, int[] cardIdx) {
-		checkMove(playerIdx, cardIdx);
+		if (client == null) {
+			checkMove(playerIdx, cardIdx);
+			return;
+		}
+		long cards = cardsOf(playerIdx, cardIdx);
+		if (cards < 0 || !isLegalMove(playerIdx, cards)) {
+			listener.illegalMove(playerIdx);
+			return;
+		}
+		client.sendMessage(new CardGameMessage(CardGameMessage.MOVE, -1, cardIdx));
 	}
 	
 	/**
@@ -169,120 +302,123 @@ public class BigTwo implements CardGame{
 	 * @param cardIdx array of index number(s) of card(s) that current player selected
 	 */
 	public synchronized void checkMove(int playerIdx, int[] cardIdx) {
-		CardGamePlayer currPlayer = playerList.get(playerIdx);
-		CardList playerCard = new CardList();
-		Card diaThree = new Card(0, 2);
+		long cards = cardsOf(playerIdx, cardIdx);
+		if (cards < 0) {
+			listener.illegalMove(playerIdx);
+			return;
+		}
+		playMove(playerIdx, cards);
+	}
+	
+	/**
+	 * Returns the cards selected by a player.
+	 * @param playerIdx index number of the player
+	 * @param cardIdx array of index number(s) of card(s) in the hand of the player, or null for a pass
+	 * @return CardSet mask of the selected cards, 0 for a pass, or -1 if no card of the hand is selected
+	 */
+	public synchronized long cardsOf(int playerIdx, int[] cardIdx) {
+		if (cardIdx == null) {
+			return 0L;
+		}
 		
-		//if the current player is beginner of the game
-		if(getHandsOnTable().isEmpty()) {
-			//Beginning player cannot PASS his/her turn
-			if(cardIdx == null){ 
-				illegalMove();
-				return;
-			}
-			else {
-				//get cards which current player chose from cardIdx and store in playerCard
-				for(int i : cardIdx) {
-					playerCard.addCard(currPlayer.getCardsInHand().getCard(i));
-				}
-			}
-			
-			//beginning player must choose a hand containing diamond three
-			if(playerCard.contains(diaThree)) {
-				Hand playerHand = composeHand(currPlayer, playerCard);
-				//beginning player can't take empty hand i.e., cannot pass
-				if(playerHand != null) {
-					String msg = String.format("{%s} %s\n",playerHand.getType(), playerHand);
-					ui.printMsg(msg);
-										
-					handsOnTable.add(playerHand);
-					currPlayer.removeCards(playerCard);
-					
-					currentPlayerIdx = (currentPlayerIdx + 1) % 4;
-					ui.setActivePlayer(currentPlayerIdx);
-					return;
-
-				} else {
-					//if beginning player tries to pass
-					illegalMove();
-					return;
-				}
-			} else {
-				//if beginning player does not have diamond three card
-				illegalMove();
-				return;
+		//get cards which current player chose from cardIdx
+		CardList cardsInHand = playerList.get(playerIdx).getCardsInHand();
+		long cards = 0L;
+		for(int i : cardIdx) {
+			Card card = cardsInHand.getCard(i);
+			if (card != null) {
+				cards |= CardSet.bitOf(card);
 			}
 		}
-		else { 
-			//current player is not the begginer of game..
-			Hand prevHand = getHandsOnTable().get(handsOnTable.size() - 1); //get handsontable
-			
-			String currentPlayerStr = String.valueOf(currentPlayerIdx);
-			boolean isLastHand = prevHand.getPlayer().getName().contains(currentPlayerStr);
-			
-			//current player wants to PASS
-			if(cardIdx == null) {
-				//current player can only PASS if he/she is not the last hand played
-				if(!isLastHand) {
-					String msg = String.format("{PASS}\n");
-					ui.printMsg(msg);
-					
-					currentPlayerIdx = (currentPlayerIdx + 1) % 4;
-					ui.setActivePlayer(currentPlayerIdx);
-					return;
-				} else {
-					//if current player is the last hand played, cannot PASS
-					illegalMove();
-					return;
-				}
-			}
-			else {
-				//store chosen hand into playerCard
-				for(int i : cardIdx) {
-					playerCard.addCard(currPlayer.getCardsInHand().getCard(i));
-				}
-			}
 		
-			Hand playerHand = composeHand(currPlayer, playerCard);
-			
-			//if the player is the last hand played (player can have any kinds of hands), or player hand is valid and beats the previous hand
-			if((isLastHand && playerHand!=null) || (playerHand!=null && playerHand.beats(prevHand))) {
-				String msg = String.format("{%s} %s\n",playerHand.getType(), playerHand);
-				ui.printMsg(msg);
-				
-				handsOnTable.add(playerHand);
-				
-				//remove card's which player used
-				currPlayer.removeCards(playerCard);
-				
-				//check whether game ended
-				if(endOfGame() == true) {
-					msg = "Game ends.\n";
-					ui.printMsg(msg);
-					for(CardGamePlayer player : playerList) {
-						if(player.getCardsInHand().size() == 0) {
-							msg = String.format("%s wins the game.\n", player.getName());
-							ui.printMsg(msg);	
-						}
-						else {		
-							msg = String.format("%s has %d cards in hand.\n", player.getName(), player.getNumOfCards());
-							ui.printMsg(msg);
-						}
-					}
-					//System.exit(0);
-					return;
-				}
-				
-				currentPlayerIdx = (currentPlayerIdx + 1) % 4;
-				ui.setActivePlayer(currentPlayerIdx);
-				return;
-			}
-			//if selected player's hand is not valid or cannot beat hand on table.
-			else if(playerHand==null || !playerHand.beats(prevHand)){
-				illegalMove();
-				return;
-			}
+		//selecting no real card is not a pass
+		return cards == 0L ? -1L : cards;
+	}
+	
+	/**
+	 * Method for playing a move given as a set of cards. This is the same check as checkMove(), for callers
+	 * (such as bots and simulations) which work on CardSet masks instead of card indices.
+	 * @param playerIdx index number of the player making the move
+	 * @param cards CardSet mask of the cards being played, or 0 to pass
+	 * @return true if the move is legal and has been played, false if it is rejected
+	 */
+	public synchronized boolean playMove(int playerIdx, long cards) {
+		if (!isLegalMove(playerIdx, cards)) {
+			listener.illegalMove(playerIdx);
+			return false;
+		}
+		applyMove(playerIdx, cards);
+		return true;
+	}
+	
+	/**
+	 * Method for checking a move given as a set of cards, without playing it.
+	 * @param playerIdx index number of the player making the move
+	 * @param cards CardSet mask of the cards being played, or 0 to pass
+	 * @return true if the move is legal
+	 */
+	public synchronized boolean isLegalMove(int playerIdx, long cards) {
+		if (playerIdx != currentPlayerIdx || endOfGame()) {
+			return false;
 		}
+		int tableKey = getTableKey();
+		
+		//the beginning player, and the player who played the last hand, cannot PASS
+		if (cards == 0L) {
+			return tableKey != MoveGenerator.ANY_HAND;
+		}
+		
+		//player must hold the cards, the first move must contain the Three of Diamonds, and the cards must
+		//form a legal hand which beats the last hand (unless the player can play any hand)
+		int key = HandClassifier.keyOf(cards);
+		return (playerList.get(playerIdx).getCardsInHand().getMask() & cards) == cards
+				&& (cards & getRequiredCards()) == getRequiredCards()
+				&& key >= 0
+				&& (tableKey == MoveGenerator.ANY_HAND || HandClassifier.beats(key, tableKey));
+	}
+	
+	/**
+	 * Method for playing a move which has already been validated, e.g. by the server. The move is not checked again.
+	 * @param playerIdx index number of the player making the move
+	 * @param cards CardSet mask of the cards being played, or 0 to pass
+	 */
+	public synchronized void applyMove(int playerIdx, long cards) {
+		currentPlayerIdx = playerIdx;
+		CardGamePlayer currPlayer = playerList.get(playerIdx);
+		
+		//current player wants to PASS
+		if (cards == 0L) {
+			listener.turnPassed(playerIdx);
+			nextPlayer();
+			return;
+		}
+		
+		CardList playerCard = new CardList();
+		for (int i = CardSet.nextIndex(cards, 0); i >= 0; i = CardSet.nextIndex(cards, i + 1)) {
+			playerCard.addCard(BigTwoCard.valueOf(i));
+		}
+		Hand playerHand = composeHand(currPlayer, playerCard);
+		handsOnTable.add(playerHand);
+		playedCards |= cards;
+		
+		//remove card's which player used
+		currPlayer.removeCards(playerCard);
+		listener.handPlayed(playerIdx, playerHand);
+		
+		//check whether game ended
+		if (currPlayer.getNumOfCards() == 0) {
+			listener.gameEnded(playerIdx);
+			return;
+		}
+		nextPlayer();
+	}
+	
+	/**
+	 * Gives the turn to the next player.
+	 */
+	private void nextPlayer() {
+		currentPlayerIdx = (currentPlayerIdx + 1) % numOfPlayers;
+		listener.activePlayerChanged(currentPlayerIdx);
 	}
 	
 	/**
@@ -291,8 +427,7 @@ public class BigTwo implements CardGame{
 	 */
 	public synchronized boolean endOfGame() {
 		for (CardGamePlayer player : playerList) {
-			if (player.getCardsInHand().isEmpty()) {
-				ui.disable();
+			if (player.getNumOfCards() == 0) {
 				return true;
 			}
 		}
@@ -321,52 +456,31 @@ public class BigTwo implements CardGame{
 	 * @return hand if player's hand is valid, return null if it is invalid.
 	 */
 	public static Hand composeHand(CardGamePlayer player, CardList cards) {
-		Hand hand;
-		if (cards.size() == 1) {
-			hand = new Single(player, cards);
-			if(hand.isValid()) {
-				return hand;
-			}
-		}
-		else if (cards.size() == 2) {
-			hand = new Pair(player, cards);
-			if(hand.isValid()) {
-				return hand;
-			}
+		//a card list holding a duplicated card cannot form a hand
+		if (Long.bitCount(cards.getMask()) != cards.size()) {
+			return null;
 		}
-		else if (cards.size() == 3) {
-			hand = new Triple(player, cards);
-			if(hand.isValid()) {
-				return hand;
-			}
-		}
-		else if (cards.size() == 5){
-			hand = new StraightFlush(player, cards);
-			
-			if (hand.isValid()) {
-				return hand;
-			}
-			hand = new Quad(player, cards);
-			
-			if (hand.isValid()) {
-				return hand;
-			}
-			hand = new FullHouse(player, cards);
-			
-			if (hand.isValid()) {
-				return hand;
-			}
-			hand = new Flush(player, cards);
-			
-			if (hand.isValid()) {
-				return hand;
-			}
-			hand = new Straight(player, cards);
-			
-			if (hand.isValid()) {
-				return hand;
-			}
+		
+		//look up the type of the hand first, then build only that hand
+		switch (HandClassifier.typeOf(HandClassifier.classify(cards.getMask()))) {
+		case HandClassifier.SINGLE:
+			return new Single(player, cards);
+		case HandClassifier.PAIR:
+			return new Pair(player, cards);
+		case HandClassifier.TRIPLE:
+			return new Triple(player, cards);
+		case HandClassifier.STRAIGHT_FLUSH:
+			return new StraightFlush(player, cards);
+		case HandClassifier.QUAD:
+			return new Quad(player, cards);
+		case HandClassifier.FULL_HOUSE:
+			return new FullHouse(player, cards);
+		case HandClassifier.FLUSH:
+			return new Flush(player, cards);
+		case HandClassifier.STRAIGHT:
+			return new Straight(player, cards);
+		default:
+			return null;
 		}
-		return null;
 	}
 }
\ No newline at end of file
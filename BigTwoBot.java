@@ -0,0 +1,427 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.ObjectInputStream;
+import java.net.Socket;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class is a headless Big Two client played by a BigTwoPolicy, used to
+ * put load on a server. It joins like a BigTwoClient, gets ready for every
+ * game, plays its moves after a think time, and says one line of chat at the
+ * end of each game.
+ * <p>
+ * The bot times the round trip of each message it sends until the server
+ * echoes it: the connection until the player list, JOIN, READY and MSG until
+ * the broadcast from its own seat, and MOVE until the MOVE_DELTA (or MOVE) of
+ * its own seat. Each round trip is recorded in the histogram of the type of
+ * the message sent; the histograms may be shared by many bots.
+ * <p>
+ * Run on its own, a bot takes a seat at a server in place of a human player,
+ * and plays with an IsmctsPolicy until the connection is closed.
+ *
+ * @author Kang Hyunwoo
+ */
+public class BigTwoBot implements NetworkGame {
+	private final BigTwoPolicy policy;
+	private final MessageCodec codec;
+	private final ScheduledExecutorService timer;
+	private final long thinkMillis;
+	private final LatencyHistogram[] latencies;
+	private final BigTwo game = new BigTwo(null);
+	private final MoveGenerator generator = new MoveGenerator();
+	private final SplittableRandom random;
+
+	private String playerName;
+	private String serverIP = "127.0.0.1";
+	private int serverPort = 2396;
+	private volatile int playerID = -1;
+	private Socket sock;
+	private DataOutputStream dos;
+	private SessionObjectOutputStream oos;
+	// the time each type of message was last sent, used when its echo arrives
+	private final long[] sentAt = new long[CardGameMessage.SPECTATE + 1];
+	// whether the move of this bot has been sent and not yet echoed
+	private boolean moveSent;
+	private volatile boolean closed;
+	private volatile long numOfGames;
+	private volatile long numOfMoves;
+
+	/**
+	 * Creates a bot.
+	 *
+	 * @param playerName  the name of the bot
+	 * @param policy      the policy choosing the moves of the bot
+	 * @param codec       the codec of the framed protocol, for a server started
+	 *                    in NIO mode; or null for ObjectStreams
+	 * @param timer       the executor on which the bot sends its moves after
+	 *                    the think time
+	 * @param thinkMillis the time the bot waits before each move and before
+	 *                    getting ready for a game, in milliseconds
+	 * @param latencies   the histograms of the round trips, indexed by message
+	 *                    type; a type without a histogram is not timed
+	 * @param seed        the seed of the random number generator of the policy
+	 */
+	public BigTwoBot(String playerName, BigTwoPolicy policy, MessageCodec codec, ScheduledExecutorService timer,
+			long thinkMillis, LatencyHistogram[] latencies, long seed) {
+		this.playerName = playerName;
+		this.policy = policy;
+		this.codec = codec;
+		this.timer = timer;
+		this.thinkMillis = thinkMillis;
+		this.latencies = latencies;
+		this.random = new SplittableRandom(seed);
+	}
+
+	/**
+	 * Returns the seat of this bot.
+	 *
+	 * @return the playerID of this bot, or -1 before it is seated
+	 */
+	public int getPlayerID() {
+		return playerID;
+	}
+
+	/**
+	 * Sets the seat of this bot.
+	 *
+	 * @param playerID the playerID of this bot
+	 */
+	public void setPlayerID(int playerID) {
+		this.playerID = playerID;
+	}
+
+	/**
+	 * Returns the name of this bot.
+	 *
+	 * @return the name of this bot
+	 */
+	public String getPlayerName() {
+		return playerName;
+	}
+
+	/**
+	 * Sets the name of this bot, used when it joins.
+	 *
+	 * @param playerName the name of this bot
+	 */
+	public void setPlayerName(String playerName) {
+		this.playerName = playerName;
+	}
+
+	/**
+	 * Returns the IP address of the server.
+	 *
+	 * @return the IP address of the server, 127.0.0.1 by default
+	 */
+	public String getServerIP() {
+		return serverIP;
+	}
+
+	/**
+	 * Sets the IP address of the server.
+	 *
+	 * @param serverIP the IP address of the server
+	 */
+	public void setServerIP(String serverIP) {
+		this.serverIP = serverIP;
+	}
+
+	/**
+	 * Returns the TCP port of the server.
+	 *
+	 * @return the TCP port of the server, 2396 by default
+	 */
+	public int getServerPort() {
+		return serverPort;
+	}
+
+	/**
+	 * Sets the TCP port of the server.
+	 *
+	 * @param serverPort the TCP port of the server
+	 */
+	public void setServerPort(int serverPort) {
+		this.serverPort = serverPort;
+	}
+
+	/**
+	 * Returns the number of games this bot has finished.
+	 *
+	 * @return the number of games
+	 */
+	public long getNumOfGames() {
+		return numOfGames;
+	}
+
+	/**
+	 * Returns the number of moves of this bot echoed by the server.
+	 *
+	 * @return the number of moves
+	 */
+	public long getNumOfMoves() {
+		return numOfMoves;
+	}
+
+	/**
+	 * Returns true if the connection of this bot has been closed or lost.
+	 *
+	 * @return true if the bot no longer plays
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Connects to the server and starts reading from it on a thread of its
+	 * own, a virtual one if available. A failure closes the bot.
+	 */
+	public void connect() {
+		try {
+			synchronized (this) {
+				sentAt[CardGameMessage.PLAYER_LIST] = System.nanoTime();
+				sock = new Socket(serverIP, serverPort);
+				sock.setTcpNoDelay(true);
+				if (codec != null) {
+					dos = new DataOutputStream(new BufferedOutputStream(sock.getOutputStream()));
+					FramedProtocol.writeHandshake(dos, codec);
+				} else {
+					oos = new SessionObjectOutputStream(sock.getOutputStream());
+				}
+			}
+			HandlerThreads.start(true, "bot-" + playerName, this::readMessages);
+		} catch (Exception ex) {
+			close();
+		}
+	}
+
+	/**
+	 * Closes the connection of this bot.
+	 */
+	public void close() {
+		closed = true;
+		try {
+			if (sock != null) {
+				sock.close();
+			}
+		} catch (Exception ex) {
+			// already closed
+		}
+	}
+
+	/**
+	 * Reads and parses the messages from the server until the connection is
+	 * closed.
+	 */
+	private void readMessages() {
+		try {
+			DataInputStream dis = null;
+			ObjectInputStream ois = null;
+			if (codec != null) {
+				dis = new DataInputStream(new BufferedInputStream(sock.getInputStream()));
+				FramedProtocol.readHandshakeAnswer(dis);
+			} else {
+				ois = new ObjectInputStream(sock.getInputStream());
+			}
+			while (!closed) {
+				parseMessage(codec != null ? FramedProtocol.readFrame(dis, codec) : (CardGameMessage) ois.readObject());
+			}
+		} catch (Exception ex) {
+			// the connection is closed or lost
+		}
+		close();
+	}
+
+	/**
+	 * Parses a message from the server: records the round trip of the message
+	 * it echoes, and answers it as a player would.
+	 *
+	 * @param message the message received from the server
+	 */
+	public synchronized void parseMessage(GameMessage message) {
+		int id = message.getPlayerID();
+		Object data = message.getData();
+		long now = System.nanoTime();
+		switch (message.getType()) {
+		case CardGameMessage.PLAYER_LIST:
+			// only the first list is timed, whether it is a seat or the lobby
+			recordRoundTrip(CardGameMessage.PLAYER_LIST, now);
+			playerID = id;
+			send(CardGameMessage.JOIN, playerName);
+			break;
+		case CardGameMessage.JOIN:
+			if (id == playerID) {
+				recordRoundTrip(CardGameMessage.JOIN, now);
+				send(CardGameMessage.READY, null);
+			}
+			break;
+		case CardGameMessage.FULL:
+			close();
+			break;
+		case CardGameMessage.QUIT:
+			// a player has left; the next game needs all the seats ready again
+			moveSent = false;
+			send(CardGameMessage.READY, null);
+			break;
+		case CardGameMessage.READY:
+			if (id == playerID) {
+				recordRoundTrip(CardGameMessage.READY, now);
+			}
+			break;
+		case CardGameMessage.START:
+			if (data instanceof SeatDeal) {
+				game.start((SeatDeal) data);
+			} else {
+				game.start((Deck) data);
+			}
+			moveSent = false;
+			moveIfMyTurn();
+			break;
+		case CardGameMessage.MOVE:
+			// from a server which does not check moves
+			moveEchoed(id, now);
+			game.checkMove(id, (int[]) data);
+			moveIfMyTurn();
+			break;
+		case CardGameMessage.MOVE_DELTA:
+			moveEchoed(id, now);
+			game.applyMove(id, ((MoveDelta) data).getCards());
+			moveIfMyTurn();
+			break;
+		case CardGameMessage.MSG:
+			if (id == playerID) {
+				recordRoundTrip(CardGameMessage.MSG, now);
+			}
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Sends a message to the server, and closes the bot if it cannot.
+	 *
+	 * @param message the message to be sent
+	 */
+	public synchronized void sendMessage(GameMessage message) {
+		try {
+			if (codec != null) {
+				FramedProtocol.writeFrame(dos, codec, (CardGameMessage) message);
+			} else {
+				oos.writeMessage(message);
+			}
+		} catch (Exception ex) {
+			close();
+		}
+	}
+
+	private void send(int type, Object data) {
+		sentAt[type] = System.nanoTime();
+		sendMessage(new CardGameMessage(type, -1, data));
+	}
+
+	private void recordRoundTrip(int type, long now) {
+		if (type < latencies.length && latencies[type] != null && sentAt[type] != 0) {
+			latencies[type].record(now - sentAt[type]);
+		}
+		sentAt[type] = 0;
+	}
+
+	/**
+	 * Counts a move echoed from the seat of this bot.
+	 */
+	private void moveEchoed(int id, long now) {
+		if (id == playerID && moveSent) {
+			recordRoundTrip(CardGameMessage.MOVE, now);
+			moveSent = false;
+			numOfMoves++;
+		}
+	}
+
+	/**
+	 * Schedules the next move of this bot if it is its turn, or gets ready for
+	 * the next game after the end of a game.
+	 */
+	private void moveIfMyTurn() {
+		if (game.endOfGame()) {
+			numOfGames++;
+			timer.schedule(this::endGame, thinkMillis, TimeUnit.MILLISECONDS);
+		} else if (game.getCurrentPlayerIdx() == playerID && !moveSent) {
+			moveSent = true;
+			timer.schedule(this::play, thinkMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Chooses a move with the policy and sends it.
+	 */
+	private synchronized void play() {
+		if (closed || game.endOfGame() || game.getCurrentPlayerIdx() != playerID) {
+			moveSent = false;
+			return;
+		}
+		long move = policy.chooseMove(game, generator, random);
+		int[] cardIdx = null;
+		if (move != 0L) {
+			CardList hand = game.getPlayerList().get(playerID).getCardsInHand();
+			cardIdx = new int[Long.bitCount(move)];
+			for (int i = 0, j = 0; i < hand.size(); i++) {
+				if ((move & CardSet.bitOf(hand.getCard(i))) != 0) {
+					cardIdx[j++] = i;
+				}
+			}
+		}
+		send(CardGameMessage.MOVE, cardIdx);
+	}
+
+	/**
+	 * main() method for seating a computer player, searching with ISMCTS, at a
+	 * server.
+	 *
+	 * @param args the IP address of the server (default 127.0.0.1), its port
+	 *             (default 2396), the transport: "nio" for the framed protocol
+	 *             with the binary codec or "blocking" for ObjectStreams
+	 *             (default "blocking"), the name of the player (default
+	 *             "ISMCTS"), and the time spent searching each move in
+	 *             milliseconds (default 1000)
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		String serverIP = args.length > 0 ? args[0] : "127.0.0.1";
+		int serverPort = args.length > 1 ? Integer.parseInt(args[1]) : 2396;
+		boolean nio = args.length > 2 && args[2].equals("nio");
+		String playerName = args.length > 3 ? args[3] : "ISMCTS";
+		long timeBudget = args.length > 4 ? Long.parseLong(args[4]) : 1000;
+
+		IsmctsPolicy policy = new IsmctsPolicy(timeBudget);
+		ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+				HandlerThreads.newFactory(false, "bot-timer"));
+		// the search takes the time of a move, so the bot does not wait before it
+		BigTwoBot bot = new BigTwoBot(playerName, policy, nio ? BinaryMessageCodec.INSTANCE : null, timer, 0,
+				new LatencyHistogram[0], System.nanoTime());
+		bot.setServerIP(serverIP);
+		bot.setServerPort(serverPort);
+		bot.connect();
+		while (!bot.isClosed()) {
+			Thread.sleep(1000);
+		}
+		System.out.println(String.format("%s left after %d games and %d moves", playerName, bot.getNumOfGames(),
+				bot.getNumOfMoves()));
+		timer.shutdownNow();
+		policy.shutdown();
+	}
+
+	/**
+	 * Says one line of chat and gets ready for the next game.
+	 */
+	private synchronized void endGame() {
+		if (closed) {
+			return;
+		}
+		send(CardGameMessage.MSG, "gg");
+		send(CardGameMessage.READY, null);
+	}
+}
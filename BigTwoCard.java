@@ -1,11 +1,19 @@
-import java.util.ArrayList;
-import java.util.List;
 /**
  * This class is a subclass of the Card class and is used to model a card used in a Big Two card game.
+ * Each card caches its position in the Big Two order, and the 52 cards are shared through valueOf().
  * @author Kang Hyunwoo
  */
 public class BigTwoCard extends Card{
 	private static final long serialVersionUID = 1L;
+	private static final BigTwoCard[] CARDS = new BigTwoCard[CardSet.NUM_OF_CARDS];
+	
+	static {
+		for (int i = 0; i < CardSet.NUM_OF_CARDS; i++) {
+			CARDS[i] = new BigTwoCard(CardSet.suitOf(i), CardSet.rankOf(i));
+		}
+	}
+	
+	private final int ordinal;
 
 	/**
 	 * Constructor for building a card with the specified suit and rank.
@@ -14,6 +22,34 @@ public class BigTwoCard extends Card{
 	 */
 	public BigTwoCard(int suit, int rank) {
 		super(suit, rank);
+		this.ordinal = HandClassifier.bigTwoOrder(CardSet.indexOf(suit, rank));
+	}
+	
+	/**
+	 * Returns the shared instance of the Big Two card with the specified suit and rank.
+	 * @param suit integer value 0-3 which represents suit of the card, {Diamond, Club, Heart, Spade} respectively
+	 * @param rank integer value 0-12 wihch represents rank of the card
+	 * @return the shared BigTwoCard object
+	 */
+	public static BigTwoCard valueOf(int suit, int rank) {
+		return CARDS[CardSet.indexOf(suit, rank)];
+	}
+	
+	/**
+	 * Returns the shared instance of the Big Two card at the specified CardSet bit index.
+	 * @param index the CardSet bit index of the card
+	 * @return the shared BigTwoCard object
+	 */
+	public static BigTwoCard valueOf(int index) {
+		return CARDS[index];
+	}
+	
+	/**
+	 * Getter function for the position of this card in the Big Two order.
+	 * @return 0 for the Three of Diamonds up to 51 for the Two of Spades
+	 */
+	public int getOrdinal() {
+		return ordinal;
 	}
 	
 	/**
@@ -22,22 +58,17 @@ public class BigTwoCard extends Card{
 	 * @return Returns a negative integer, zero, or a positive integer when this card is less than, equal to, or greater than the specified card.
 	 */
 	public int compareTo(Card card) {
-		ArrayList<Integer> bigTwoRank = new ArrayList<Integer>(List.of(2,3,4,5,6,7,8,9,10,11,12,0,1));//low to high
-		
-		if(bigTwoRank.indexOf(this.rank) > bigTwoRank.indexOf(card.getRank())) {
-			return 1;
-		}
-		else if(bigTwoRank.indexOf(this.rank) < bigTwoRank.indexOf(card.getRank())) {
-			return -1;
-		}
-		if(this.suit > card.getSuit()) {
-			return 1;
-		}
-		else if(this.suit < card.getSuit()){
-			return -1;
-		}
-		else {
-			return 0;
+		if (card instanceof BigTwoCard) {
+			return this.ordinal - ((BigTwoCard) card).ordinal;
 		}
+		return this.ordinal - HandClassifier.bigTwoOrder(CardSet.indexOf(card));
+	}
+	
+	/**
+	 * Replaces a deserialized card with the shared instance.
+	 * @return the shared BigTwoCard object with the same suit and rank
+	 */
+	private Object readResolve() {
+		return valueOf(suit, rank);
 	}
 }
@@ -21,6 +21,13 @@ public class BigTwoClient implements NetworkGame {
 
         setServerIP("127.0.0.1");
 		setServerPort(2396);
+		// -Dbigtwo.codec=binary or -Dbigtwo.codec=serialized talks to a server started in NIO mode
+		String codecName = System.getProperty("bigtwo.codec");
+		if ("binary".equals(codecName)) {
+			setCodec(BinaryMessageCodec.INSTANCE);
+		} else if ("serialized".equals(codecName)) {
+			setCodec(SerializedMessageCodec.INSTANCE);
+		}
 
 		String nameInput = JOptionPane.showInputDialog("Enter your name: ");
 		this.setPlayerName(nameInput);
@@ -30,11 +37,26 @@ public class BigTwoClient implements NetworkGame {
     private BigTwo game;
     private BigTwoGUI gui;
     private Socket sock;
-    private ObjectOutputStream oos;
+    private SessionObjectOutputStream oos;
+    private DataOutputStream dos;
+    private DataInputStream dis;
+    private MessageCodec codec;
     private int playerID;
     private String playerName;
     private String serverIP;
     private int serverPort;
+    // the session token given by the server, used to resume the seat after losing the connection
+    private String sessionToken;
+    // whether the client has asked the server to resume its seat on this connection
+    private boolean resuming;
+    // the sequence number of the last START or MOVE_DELTA seen, or -1
+    private int lastSeq = -1;
+    // -Dbigtwo.spectate=any or -Dbigtwo.spectate=<table ID> watches a table instead of joining it
+    private final String spectateTable = System.getProperty("bigtwo.spectate");
+    // whether the client has asked the server to watch a table on this connection
+    private boolean spectating;
+    // the number of attempts to connect again after losing the connection, one second apart
+    private static final int NUM_OF_RECONNECTS = 10;
 
     // NetworkGame interface methods
     /**
@@ -102,19 +124,77 @@ public class BigTwoClient implements NetworkGame {
         this.serverPort = serverPort;
     }
     /**
-     * Makes a socket connection with the game server
+     * Gets the codec of the framed protocol used with the game server
+     * 
+     * @return The codec, or null if messages are sent with a single ObjectOutputStream
+     */
+    public MessageCodec getCodec() {
+        return this.codec;
+    }
+    /**
+     * Sets the codec of the framed protocol used with the game server. It takes effect on the next connect(),
+     * where the serialized codec is offered as well in case the server does not support this one.
+     * 
+     * @param codec The codec, or null to send messages with a single ObjectOutputStream
+     */
+    public void setCodec(MessageCodec codec) {
+        this.codec = codec;
+    }
+    /**
+     * Makes a socket connection with the game server. A client which has a session resumes its seat.
      */
     public synchronized void connect() {
         try {
-            this.sock = new Socket(this.serverIP, this.serverPort);
-            this.oos = new ObjectOutputStream(sock.getOutputStream());
-
-            Thread readerThread = new Thread(new ServerHandler());
-            readerThread.start();
+            openConnection();
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
+    /**
+     * Opens a socket connection with the game server and starts reading from it
+     * 
+     * @throws Exception if the connection cannot be made
+     */
+    private synchronized void openConnection() throws Exception {
+        this.resuming = false;
+        this.spectating = false;
+        this.sock = new Socket(this.serverIP, this.serverPort);
+        if (codec != null) {
+            sock.setTcpNoDelay(true);
+            this.dos = new DataOutputStream(new BufferedOutputStream(sock.getOutputStream()));
+            this.dis = new DataInputStream(new BufferedInputStream(sock.getInputStream()));
+            if (codec == SerializedMessageCodec.INSTANCE) {
+                FramedProtocol.writeHandshake(dos, codec);
+            } else {
+                FramedProtocol.writeHandshake(dos, codec, SerializedMessageCodec.INSTANCE);
+            }
+            this.codec = FramedProtocol.readHandshakeAnswer(dis);
+        } else {
+            this.oos = new SessionObjectOutputStream(sock.getOutputStream());
+        }
+
+        // -Dbigtwo.virtualThreads=true reads on a virtual thread (Java 21)
+        HandlerThreads.start(Boolean.getBoolean("bigtwo.virtualThreads"), "server-handler", new ServerHandler());
+    }
+    /**
+     * Connects again after losing the connection, so the seat held by the server can be resumed
+     * 
+     * @return true if the connection has been made again
+     */
+    private boolean reconnect() {
+        for (int i = 0; i < NUM_OF_RECONNECTS; i++) {
+            try {
+                Thread.sleep(1000);
+                openConnection();
+                return true;
+            } catch (InterruptedException e) {
+                return false;
+            } catch (Exception e) {
+                // the server is not reachable yet
+            }
+        }
+        return false;
+    }
     /**
      * Parses the messages received from the game server
      * 
@@ -130,6 +210,31 @@ public class BigTwoClient implements NetworkGame {
                 this.setPlayerID(id);
                 game.setPlayerNames((String[]) data);
 
+                if (resuming || spectating) {
+                    // the list of the seat held for this client, or of the table watched
+                    String[] names = (String[]) data;
+                    for (int i = 0; i < names.length && i < game.getNumOfPlayers(); i++) {
+                        if (names[i] != null) {
+                            game.getPlayerList().get(i).setName(names[i]);
+                        }
+                    }
+                    break;
+                }
+                if (sessionToken != null) {
+                    resuming = true;
+                    sendMessage(new CardGameMessage(CardGameMessage.RESUME, -1, new ResumeRequest(sessionToken, lastSeq)));
+                    break;
+                }
+                if (spectateTable != null) {
+                    spectating = true;
+                    Integer tableID = spectateTable.equals("any") ? null : Integer.valueOf(spectateTable);
+                    sendMessage(new CardGameMessage(CardGameMessage.SPECTATE, -1, tableID));
+                    break;
+                }
+                if (id < 0) {
+                    // a full server, or one matching players, seats the client once it has joined
+                    gui.printMsg("Waiting in the lobby for a seat.\n");
+                }
                 CardGameMessage joinMessage = new CardGameMessage(CardGameMessage.JOIN, -1, this.getPlayerName());
                 this.sendMessage(joinMessage);
                 break;
@@ -146,7 +251,7 @@ public class BigTwoClient implements NetworkGame {
                 
                 game.getPlayerList().get(message.getPlayerID()).setName((String)message.getData());
                 gui.repaint();
-    
+                break;
             case 2: // FULL    
                 gui.printMsg("The server is full, you cannot join the game.");
                 break;
@@ -165,11 +270,46 @@ public class BigTwoClient implements NetworkGame {
                 gui.printMsg(String.format("%s (Player ID: %s) is ready.\n", playerName, id));
                 break;
             case 5: // START
-                game.start((Deck) data);
-            case 6: // MOVE
+                if (data instanceof SeatDeal) {
+                    game.start((SeatDeal) data);
+                    lastSeq = ((SeatDeal) data).getSeq();
+                } else {
+                    game.start((Deck) data);
+                    lastSeq = -1;
+                }
+                break;
+            case 6: // MOVE (from a server which does not check moves)
                 game.checkMove(id, (int[]) data);
+                break;
             case 7: // MSG
                 gui.printChat((String) data);
+                break;
+            case 8: // MOVE_DELTA
+                // already checked by the server
+                game.applyMove(id, ((MoveDelta) data).getCards());
+                lastSeq = ((MoveDelta) data).getSeq();
+                break;
+            case 9: // SESSION
+                sessionToken = (String) data;
+                resuming = false;
+                break;
+            case 10: // RESUME (the seat could not be resumed)
+                gui.printMsg("The game could not be resumed; joining as a new player.\n");
+                sessionToken = null;
+                resuming = false;
+                lastSeq = -1;
+                sendMessage(new CardGameMessage(CardGameMessage.JOIN, -1, this.getPlayerName()));
+                break;
+            case 11: // SNAPSHOT
+                game.restore((GameSnapshot) data);
+                lastSeq = ((GameSnapshot) data).getSeq();
+                gui.printMsg(spectating ? "Watching the game.\n" : "The game has been resumed.\n");
+                break;
+            case 12: // SPECTATE (the table could not be watched)
+                gui.printMsg("The table could not be watched; joining as a new player.\n");
+                spectating = false;
+                sendMessage(new CardGameMessage(CardGameMessage.JOIN, -1, this.getPlayerName()));
+                break;
             default:
                 break;
         }
@@ -181,8 +321,13 @@ public class BigTwoClient implements NetworkGame {
      */
     public void sendMessage(GameMessage message) {
         try {
-            oos.writeObject(message);
-            oos.flush();
+            if (codec != null) {
+                synchronized (dos) {
+                    FramedProtocol.writeFrame(dos, codec, (CardGameMessage) message);
+                }
+            } else {
+                oos.writeMessage(message);
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -194,7 +339,9 @@ public class BigTwoClient implements NetworkGame {
 
         public ServerHandler() {
             try {
-                this.os = new ObjectInputStream(sock.getInputStream());
+                if (codec == null) {
+                    this.os = new ObjectInputStream(sock.getInputStream());
+                }
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -202,14 +349,26 @@ public class BigTwoClient implements NetworkGame {
         public void run() {
             CardGameMessage message;
             try {
-                while ((message = (CardGameMessage) os.readObject()) != null) {
+                while ((message = readMessage()) != null) {
                     parseMessage(message);
                 }
             } catch (Exception e) {
                 e.printStackTrace();
             }
+            // the server holds the seat of a player with a session for a while
+            if (sessionToken != null) {
+                gui.printMsg("Lost the connection to the server; reconnecting...\n");
+                if (!reconnect()) {
+                    gui.printMsg("Could not connect to the server again.\n");
+                }
+            }
             gui.repaint();
         }
-        
+        private CardGameMessage readMessage() throws Exception {
+            if (codec != null) {
+                return FramedProtocol.readFrame(dis, codec);
+            }
+            return (CardGameMessage) os.readObject();
+        }
     } 
 }
@@ -0,0 +1,106 @@
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * This class is used to deal Big Two games quickly. The pack is kept as a
+ * 52-element array of CardSet bit indices which is shuffled in place with the
+ * Fisher-Yates algorithm, and each player's 13 cards come out as a CardSet
+ * mask, so a deal creates no objects and needs no sorting.
+ * <p>
+ * A dealer keeps its pack between deals, so it should not be shared between
+ * threads; the same seed always gives the same deal from a new dealer.
+ *
+ * @author Kang Hyunwoo
+ */
+public class BigTwoDealer {
+	/**
+	 * The number of cards dealt to each player.
+	 */
+	public static final int CARDS_PER_PLAYER = 13;
+
+	private final byte[] pack = new byte[CardSet.NUM_OF_CARDS];
+
+	/**
+	 * Creates a dealer with the cards of the pack in CardSet order.
+	 */
+	public BigTwoDealer() {
+		reset();
+	}
+
+	/**
+	 * Puts the cards of the pack back in CardSet order, so that the next deal
+	 * depends only on the random number generator.
+	 */
+	public void reset() {
+		for (int i = 0; i < pack.length; i++) {
+			pack[i] = (byte) i;
+		}
+	}
+
+	/**
+	 * Shuffles the pack and deals 13 cards to each of the 4 players.
+	 *
+	 * @param random the random number generator to be used
+	 * @param hands  an array of length 4 which receives the CardSet mask of the
+	 *               cards of each player
+	 */
+	public void deal(RandomGenerator random, long[] hands) {
+		for (int i = pack.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			byte card = pack[i];
+			pack[i] = pack[j];
+			pack[j] = card;
+		}
+		for (int player = 0; player < hands.length; player++) {
+			long hand = 0L;
+			for (int i = player * CARDS_PER_PLAYER; i < (player + 1) * CARDS_PER_PLAYER; i++) {
+				hand |= 1L << pack[i];
+			}
+			hands[player] = hand;
+		}
+	}
+
+	/**
+	 * Deals a game given by the specified seed.
+	 *
+	 * @param seed  the seed of the deal
+	 * @param hands an array of length 4 which receives the CardSet mask of the
+	 *              cards of each player
+	 */
+	public void deal(long seed, long[] hands) {
+		reset();
+		deal(new SplittableRandom(seed), hands);
+	}
+
+	/**
+	 * Returns the card at the specified position of the pack after the last
+	 * deal, e.g. to build a Deck in the same order.
+	 *
+	 * @param i the position in the pack, between 0 and 51
+	 * @return the CardSet bit index of the card
+	 */
+	public int getCardIndex(int i) {
+		return pack[i];
+	}
+
+	/**
+	 * main() method for measuring the number of deals per second.
+	 *
+	 * @param args the number of deals (default 10000000)
+	 */
+	public static void main(String[] args) {
+		int numOfDeals = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+		BigTwoDealer dealer = new BigTwoDealer();
+		SplittableRandom random = new SplittableRandom(1);
+		long[] hands = new long[4];
+		long check = 0L;
+		long start = System.nanoTime();
+		for (int i = 0; i < numOfDeals; i++) {
+			dealer.deal(random, hands);
+			check ^= hands[0];
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.println(String.format("%d deals in %.2f s, %.0f deals/s (%x)", numOfDeals, seconds,
+				numOfDeals / seconds, check));
+	}
+}
@@ -6,14 +6,13 @@ public class BigTwoDeck extends Deck{
 	private static final long serialVersionUID = 1L;
 	
 	/**
-	 * Method for initializing a deck of Big Two cards. It should remove all cards from the deck, create 52 Big Two cards and add them to the deck.
+	 * Method for initializing a deck of Big Two cards. It should remove all cards from the deck and add the 52 shared Big Two cards to it.
 	 */
 	public void initialize() {
 		removeAllCards();
 		for (int i = 0; i < 4; i++) {
 			for (int j = 0; j < 13; j++) {
-				BigTwoCard bigTwoCard = new BigTwoCard(i, j);
-				addCard(bigTwoCard);
+				addCard(BigTwoCard.valueOf(i, j));
 			}
 		}	
 	}
@@ -6,10 +6,11 @@ import java.util.ArrayList;
 /**
  * This class implements the CardGameUI inteface.
  * This class is used to build a GUI for the Big Two card game and handle all user actions.
+ * It also listens to the events of the game and prints them to the message area.
  * 
  * @author Kang Hyunwoo
  */
-public class BigTwoGUI implements CardGameUI {
+public class BigTwoGUI implements CardGameUI, BigTwoListener {
     /**
      * Creates a constructor for creating a BigTwoGUI.
      * 
@@ -166,6 +167,8 @@ public class BigTwoGUI implements CardGameUI {
 			String name = playerList.get(activePlayer).getName();
 			String msg = String.format("%s's turn:\n", name);
 			getMsgArea().append(msg);
+		} else {
+			disable();
 		}
 		frame.repaint();
     }
@@ -226,6 +229,69 @@ public class BigTwoGUI implements CardGameUI {
 		game.makeMove(activePlayer, cardIdx);
     }
 
+    // BigTwoListener interface methods
+    /**
+	 * Resets the GUI and gives control to the first player when a game starts.
+	 * 
+	 * @param firstPlayerIdx The index of the player holding the Three of Diamonds.
+	 */
+    public void gameStarted(int firstPlayerIdx) {
+        reset();
+        setActivePlayer(firstPlayerIdx);
+        enable();
+        repaint();
+    }
+    /**
+	 * Prints the hand played by a player.
+	 * 
+	 * @param playerIdx The index of the player who played the hand.
+	 * @param hand The hand being played.
+	 */
+    public void handPlayed(int playerIdx, Hand hand) {
+        printMsg(String.format("{%s} %s\n", hand.getType(), hand));
+    }
+    /**
+	 * Prints that a player passed.
+	 * 
+	 * @param playerIdx The index of the player who passed.
+	 */
+    public void turnPassed(int playerIdx) {
+        printMsg("{PASS}\n");
+    }
+    /**
+	 * Prints that a move is not legal.
+	 * 
+	 * @param playerIdx The index of the player who made the move.
+	 */
+    public void illegalMove(int playerIdx) {
+        printMsg("Not a legal move !!\n");
+    }
+    /**
+	 * Gives control of the GUI to the new current player.
+	 * 
+	 * @param playerIdx The index of the new current player.
+	 */
+    public void activePlayerChanged(int playerIdx) {
+        setActivePlayer(playerIdx);
+    }
+    /**
+	 * Prints the result of the game and disables user interactions.
+	 * 
+	 * @param winnerIdx The index of the player who won the game.
+	 */
+    public void gameEnded(int winnerIdx) {
+        printMsg("Game ends.\n");
+        for(CardGamePlayer player : playerList) {
+            if(player.getNumOfCards() == 0) {
+                printMsg(String.format("%s wins the game.\n", player.getName()));
+            }
+            else {
+                printMsg(String.format("%s has %d cards in hand.\n", player.getName(), player.getNumOfCards()));
+            }
+        }
+        disable();
+    }
+
 	private int[] getSelected() {
 		int[] cardIdx = null;
 		int count = 0;
@@ -330,7 +396,7 @@ public class BigTwoGUI implements CardGameUI {
 		        int x = 0; // Align the image to the left
 				int y=this.getHeight()/5;
 				
-		        if (i==activePlayer) {
+		        if (i==activePlayer && game.getPlayerList().get(i).getNumOfHiddenCards() == 0) {
 		        	CardList cardsInHand = game.getPlayerList().get(activePlayer).getCardsInHand();
 		        	
 		        	for(int j=0; j<cardsInHand.size(); j++) {
@@ -346,9 +412,9 @@ public class BigTwoGUI implements CardGameUI {
 		        		}
 		        	}
 		        }
-		        else { //draw other player's cards
-		        	CardList cardsInHand = game.getPlayerList().get(i).getCardsInHand();
-		        	for (int k=0; k< cardsInHand.size();k++) {
+		        else { //draw other player's cards, including the cards not known to this client
+		        	int numOfCards = game.getPlayerList().get(i).getNumOfCards();
+		        	for (int k=0; k< numOfCards;k++) {
 						g.drawImage(cardBackImage, this.getWidth()/6+x, 30+y*i, this);
 						x+=this.getWidth()/30;
 					}
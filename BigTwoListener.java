@@ -0,0 +1,59 @@
+/**
+ * An interface for receiving the events of a Big Two card game. The rules
+ * engine in BigTwo reports what happens through this interface, so it can run
+ * with a GUI, a network client, a simulator, or nothing at all. Every method
+ * does nothing by default.
+ *
+ * @author Kang Hyunwoo
+ */
+public interface BigTwoListener {
+	/**
+	 * Called when a new game has been dealt and the first player is known.
+	 *
+	 * @param firstPlayerIdx the index of the player holding the Three of Diamonds
+	 */
+	public default void gameStarted(int firstPlayerIdx) {
+	}
+
+	/**
+	 * Called when a player has played a legal hand. The hand has already been
+	 * added to the table and its cards removed from the player.
+	 *
+	 * @param playerIdx the index of the player who played the hand
+	 * @param hand      the hand being played
+	 */
+	public default void handPlayed(int playerIdx, Hand hand) {
+	}
+
+	/**
+	 * Called when a player has passed.
+	 *
+	 * @param playerIdx the index of the player who passed
+	 */
+	public default void turnPassed(int playerIdx) {
+	}
+
+	/**
+	 * Called when a move is rejected. The state of the game is unchanged.
+	 *
+	 * @param playerIdx the index of the player who made the move
+	 */
+	public default void illegalMove(int playerIdx) {
+	}
+
+	/**
+	 * Called when the turn moves to another player.
+	 *
+	 * @param playerIdx the index of the new current player
+	 */
+	public default void activePlayerChanged(int playerIdx) {
+	}
+
+	/**
+	 * Called when a player has no more cards in hand.
+	 *
+	 * @param winnerIdx the index of the player who won the game
+	 */
+	public default void gameEnded(int winnerIdx) {
+	}
+}
@@ -0,0 +1,160 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * This class puts load on a Big Two server over loopback with BigTwoBots, so
+ * a regression of the server shows before it is deployed. It opens the
+ * specified number of bots, which join, get ready and play greedy and random
+ * moves after a think time, game after game, and reports the throughput and
+ * the 50th, 99th and 99.9th percentiles of the round trip of each type of
+ * message.
+ * <p>
+ * By default the server is started in the same JVM on a free port, so the
+ * figures include the bots as well as the server; a server already running on
+ * localhost can be given by its port instead. A local server also reports
+ * where its time went: the parse, broadcast and serialization times of each
+ * type of message (see ServerMetrics).
+ *
+ * @author Kang Hyunwoo
+ */
+public class BigTwoLoadGenerator {
+	private static final PrintStream console = System.out;
+	// the types of the messages whose round trips are reported, and their names
+	private static final int[] TIMED_TYPES = { CardGameMessage.PLAYER_LIST, CardGameMessage.JOIN,
+			CardGameMessage.READY, CardGameMessage.MOVE, CardGameMessage.MSG };
+	private static final String[] TIMED_NAMES = { "connect", "JOIN", "READY", "MOVE", "MSG" };
+	// the time between two progress lines, in milliseconds
+	private static final long PROGRESS_MILLIS = 5000;
+
+	/**
+	 * main() method for running the load generator. It exits with status 1 if
+	 * a bot loses its connection before the end.
+	 *
+	 * @param args the number of bots (default 400), the duration in seconds
+	 *             (default 30), the think time of a bot before each move in
+	 *             milliseconds (default 50), the transport: "nio" for the
+	 *             framed protocol with the binary codec or "blocking" for
+	 *             ObjectStreams (default "nio"), and the port of a server on
+	 *             localhost (default 0: start a server in this JVM)
+	 */
+	public static void main(String[] args) throws Exception {
+		int numOfBots = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+		long seconds = args.length > 1 ? Long.parseLong(args[1]) : 30;
+		long thinkMillis = args.length > 2 ? Long.parseLong(args[2]) : 50;
+		boolean nio = args.length <= 3 || !args[3].equals("blocking");
+		int port = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+
+		BigTwoServer server = null;
+		if (port == 0) {
+			BigTwoServer localServer = new BigTwoServer();
+			// the server would log every message; only the results are printed
+			localServer.setQuiet(true);
+			Thread acceptor = new Thread(() -> {
+				if (nio) {
+					localServer.startNio(0, Runtime.getRuntime().availableProcessors());
+				} else {
+					localServer.start(0);
+				}
+			}, "acceptor");
+			acceptor.setDaemon(true);
+			acceptor.start();
+			while (localServer.getPort() < 0) {
+				Thread.sleep(10);
+			}
+			server = localServer;
+			port = server.getPort();
+		}
+
+		LatencyHistogram[] latencies = new LatencyHistogram[CardGameMessage.SPECTATE + 1];
+		for (int type : TIMED_TYPES) {
+			latencies[type] = new LatencyHistogram();
+		}
+		ScheduledExecutorService timer = Executors.newScheduledThreadPool(2,
+				HandlerThreads.newFactory(false, "bot-timer"));
+		BigTwoPolicy[] policies = { new GreedyPolicy(), new RandomPolicy() };
+		MessageCodec codec = nio ? BinaryMessageCodec.INSTANCE : null;
+
+		console.println(String.format("%d bots on %s port %d (%s), %d ms think time, %d s", numOfBots,
+				server != null ? "a local server at" : "localhost", port, nio ? "nio, binary" : "blocking",
+				thinkMillis, seconds));
+		List<BigTwoBot> bots = new ArrayList<BigTwoBot>(numOfBots);
+		long start = System.nanoTime();
+		for (int i = 0; i < numOfBots; i++) {
+			BigTwoBot bot = new BigTwoBot("bot" + i, policies[i % policies.length], codec, timer, thinkMillis,
+					latencies, i);
+			bot.setServerPort(port);
+			bot.connect();
+			bots.add(bot);
+		}
+
+		long end = start + seconds * 1000000000L;
+		long lastMoves = 0;
+		long lastTime = start;
+		long sleepMillis;
+		while ((sleepMillis = Math.min(PROGRESS_MILLIS, (end - System.nanoTime()) / 1000000)) > 0) {
+			Thread.sleep(sleepMillis);
+			long now = System.nanoTime();
+			long moves = latencies[CardGameMessage.MOVE].getCount();
+			console.println(String.format("  %3.0f s: %.0f moves/s, %d games, %d bots lost", (now - start) / 1e9,
+					(moves - lastMoves) / ((now - lastTime) / 1e9), numOfGames(bots) / 4, numOfLost(bots)));
+			lastMoves = moves;
+			lastTime = now;
+		}
+		double elapsed = (System.nanoTime() - start) / 1e9;
+		int numOfLost = numOfLost(bots);
+		// taken while the bots are still connected
+		String serverMetrics = server != null ? server.getMetrics().toString() : null;
+
+		timer.shutdownNow();
+		for (BigTwoBot bot : bots) {
+			bot.close();
+		}
+		if (server != null) {
+			server.stop(5000);
+		}
+
+		console.println(String.format("%.1f s, %d games finished, %d bots lost", elapsed, numOfGames(bots) / 4,
+				numOfLost));
+		console.println(String.format("  %-8s %9s %9s %9s %9s %9s %9s", "type", "count", "per s", "p50 ms",
+				"p99 ms", "p999 ms", "max ms"));
+		for (int i = 0; i < TIMED_TYPES.length; i++) {
+			LatencyHistogram histogram = latencies[TIMED_TYPES[i]];
+			console.println(String.format("  %-8s %9d %9.1f %9.2f %9.2f %9.2f %9.2f", TIMED_NAMES[i],
+					histogram.getCount(), histogram.getCount() / elapsed, histogram.getPercentile(0.50) / 1e6,
+					histogram.getPercentile(0.99) / 1e6, histogram.getPercentile(0.999) / 1e6,
+					histogram.getMax() / 1e6));
+		}
+		if (server != null) {
+			console.println("  server send queues: " + server.getSendQueueMetrics());
+			console.println("  server: " + serverMetrics);
+		}
+		System.exit(numOfLost > 0 ? 1 : 0);
+	}
+
+	/**
+	 * Returns the number of games finished, summed over the bots.
+	 */
+	private static long numOfGames(List<BigTwoBot> bots) {
+		long numOfGames = 0;
+		for (BigTwoBot bot : bots) {
+			numOfGames += bot.getNumOfGames();
+		}
+		return numOfGames;
+	}
+
+	/**
+	 * Returns the number of bots whose connection has been closed.
+	 */
+	private static int numOfLost(List<BigTwoBot> bots) {
+		int numOfLost = 0;
+		for (BigTwoBot bot : bots) {
+			if (bot.isClosed()) {
+				numOfLost++;
+			}
+		}
+		return numOfLost;
+	}
+}
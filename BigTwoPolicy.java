@@ -0,0 +1,24 @@
+import java.util.SplittableRandom;
+
+/**
+ * An interface for a computer player of a Big Two card game. A policy is asked
+ * for the move of a seat whenever it is that seat's turn.
+ * <p>
+ * The same policy object may be used by many threads at the same time, each
+ * with its own game, move generator and random number generator, so a policy
+ * should not keep any per-game state in its fields.
+ *
+ * @author Kang Hyunwoo
+ */
+public interface BigTwoPolicy {
+	/**
+	 * Chooses the move of the current player.
+	 *
+	 * @param game      the game being played; its current player is the seat to
+	 *                  move
+	 * @param generator a move generator which the policy may use
+	 * @param random    the random number generator of the calling thread
+	 * @return the CardSet mask of the cards to be played, or 0 to pass
+	 */
+	public long chooseMove(BigTwo game, MoveGenerator generator, SplittableRandom random);
+}
@@ -4,6 +4,9 @@
  *
  */
 public class BigTwoServer extends CardGameServer {
+	// whether each client is sent only its own cards at the start of a game
+	private volatile boolean seatDealing = true;
+	
 	/**
 	 * Creates and returns an instance of the BigTwoServer class.
 	 */
@@ -19,19 +22,55 @@ public class BigTwoServer extends CardGameServer {
 		return new BigTwoDeck(); 
 	}
 	
+	/**
+	 * Creates and returns a table which checks the moves of its players.
+	 * @param tableID the ID of the new table
+	 * @return an empty instance of the BigTwoTable class
+	 */
+	public CardGameTable createTable(int tableID) {
+		return new BigTwoTable(this, tableID, seatDealing);
+	}
+	
+	/**
+	 * Sets whether the tables created from now on send each client only its own
+	 * cards (the default), or the whole deck as older clients expect.
+	 * @param seatDealing true to deal the cards at the server
+	 */
+	public void setSeatDealing(boolean seatDealing) {
+		this.seatDealing = seatDealing;
+	}
+	
+	/**
+	 * Returns whether the server deals the cards itself.
+	 * @return true if each client is sent only its own cards
+	 */
+	public boolean isSeatDealing() {
+		return seatDealing;
+	}
+	
 	/**
 	 * main() method for starting the server.
 	 * 
 	 * @param args
-	 *            the port to be used by the server. The default port 5000 will
-	 *            be used if no arguments has been supplied
+	 *            the port to be used by the server, optionally followed by
+	 *            "nio" and the number of event loops to serve the clients with
+	 *            non-blocking I/O, or by "virtual" to serve them with blocking
+	 *            I/O on virtual threads. The default port 2396 will be used if
+	 *            no arguments has been supplied. The time limit of a turn is
+	 *            read from the system property bigtwo.turnMillis (default 0:
+	 *            no limit)
 	 */
 	public static void main(String[] args) {
 		BigTwoServer server = new BigTwoServer();
-		if (args.length > 0) {
-			server.start(Integer.parseInt(args[0]));
+		server.setTurnTimeLimit(Long.getLong("bigtwo.turnMillis", 0));
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 2396;
+		if (args.length > 1 && args[1].equals("nio")) {
+			int numOfEventLoops = args.length > 2 ? Integer.parseInt(args[2])
+					: Runtime.getRuntime().availableProcessors();
+			server.startNio(port, numOfEventLoops);
 		} else {
-			server.start(2396);
+			server.setVirtualThreads(args.length > 1 && args[1].equals("virtual"));
+			server.start(port);
 		}
 	} // main
 }
@@ -0,0 +1,149 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * This class is used to play many Big Two games between computer players on
+ * all the cores of the machine. The games are split into fork/join tasks; each
+ * task plays its games on its own headless BigTwo, MoveGenerator and random
+ * number generator, and the results are merged when the tasks are joined.
+ * <p>
+ * Every game is dealt from a random number generator seeded from the seed of
+ * the simulation and the number of the game, so a simulation with the same
+ * seed and policies gives the same result whatever the number of threads.
+ *
+ * @author Kang Hyunwoo
+ */
+public class BigTwoSimulator {
+	// number of games below which a task is not split any further
+	private static final int GAMES_PER_TASK = 256;
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	private final BigTwoPolicy[] policies;
+	private final ForkJoinPool pool;
+
+	/**
+	 * Creates a simulator using all the available processors.
+	 *
+	 * @param policies the policy of each seat, one for each of the 4 players
+	 */
+	public BigTwoSimulator(BigTwoPolicy[] policies) {
+		this(policies, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a simulator using the specified number of threads.
+	 *
+	 * @param policies    the policy of each seat, one for each of the 4 players
+	 * @param parallelism the number of worker threads
+	 */
+	public BigTwoSimulator(BigTwoPolicy[] policies, int parallelism) {
+		if (policies.length != 4) {
+			throw new IllegalArgumentException("A Big Two game needs 4 policies");
+		}
+		this.policies = policies.clone();
+		this.pool = new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * Plays the specified number of games.
+	 *
+	 * @param numOfGames the number of games to be played
+	 * @param seed       the seed of the simulation
+	 * @return the merged result of all the games
+	 */
+	public SimulationResult run(long numOfGames, long seed) {
+		return pool.invoke(new SimulationTask(0, numOfGames, seed));
+	}
+
+	/**
+	 * Stops the worker threads of this simulator.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Plays one game from the deal to the end.
+	 */
+	private void playGame(BigTwo game, BigTwoDealer dealer, long[] hands, MoveGenerator generator,
+			SplittableRandom random, SimulationResult result) {
+		dealer.deal(random, hands);
+		game.start(hands);
+
+		int numOfMoves = 0;
+		while (!game.endOfGame()) {
+			int playerIdx = game.getCurrentPlayerIdx();
+			long move = policies[playerIdx].chooseMove(game, generator, random);
+			if (!game.playMove(playerIdx, move)) {
+				// fall back to the first legal move, or a pass if there is none
+				result.addRejectedMove();
+				CardList cards = game.getPlayerList().get(playerIdx).getCardsInHand();
+				int n = generator.generate(cards.getMask(), game.getTableKey(), game.getRequiredCards());
+				game.playMove(playerIdx, n > 0 ? generator.getMove(0) : 0L);
+			}
+			numOfMoves++;
+		}
+		result.addGame(game, game.getCurrentPlayerIdx(), numOfMoves);
+	}
+
+	/**
+	 * This inner class is a fork/join task playing a range of games.
+	 */
+	private class SimulationTask extends RecursiveTask<SimulationResult> {
+		private static final long serialVersionUID = 1L;
+		private final long from;
+		private final long to;
+		private final long seed;
+
+		SimulationTask(long from, long to, long seed) {
+			this.from = from;
+			this.to = to;
+			this.seed = seed;
+		}
+
+		protected SimulationResult compute() {
+			if (to - from > GAMES_PER_TASK) {
+				long mid = (from + to) >>> 1;
+				SimulationTask left = new SimulationTask(from, mid, seed);
+				left.fork();
+				SimulationResult right = new SimulationTask(mid, to, seed).compute();
+				return right.merge(left.join());
+			}
+
+			BigTwo game = new BigTwo(null);
+			BigTwoDealer dealer = new BigTwoDealer();
+			long[] hands = new long[game.getNumOfPlayers()];
+			MoveGenerator generator = new MoveGenerator();
+			SimulationResult result = new SimulationResult(game.getNumOfPlayers());
+			for (long i = from; i < to; i++) {
+				SplittableRandom random = new SplittableRandom(seed + i * GOLDEN_GAMMA);
+				playGame(game, dealer, hands, generator, random, result);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * main() method for running a simulation between random and greedy players.
+	 * 
+	 * @param args the number of games (default 100000), the number of threads
+	 *             (default: all processors) and the seed (default 1)
+	 */
+	public static void main(String[] args) {
+		long numOfGames = args.length > 0 ? Long.parseLong(args[0]) : 100000;
+		int parallelism = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+
+		BigTwoPolicy[] policies = { new GreedyPolicy(), new RandomPolicy(), new GreedyPolicy(), new RandomPolicy() };
+		BigTwoSimulator simulator = new BigTwoSimulator(policies, parallelism);
+		long start = System.nanoTime();
+		SimulationResult result = simulator.run(numOfGames, seed);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		simulator.shutdown();
+
+		System.out.print(result);
+		System.out.println(String.format("%d threads, %.2f s, %.0f games/s", parallelism, seconds,
+				result.getNumOfGames() / seconds));
+	}
+}
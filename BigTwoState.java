@@ -0,0 +1,232 @@
+/**
+ * This class is used to represent the position of a Big Two game in a compact
+ * form for searching: the CardSet mask of the cards of each player, the player
+ * to move, and the last hand on the table. Moves are applied without any
+ * checking, so a state is cheap to copy and to play on, and search code should
+ * only play moves listed by generateMoves().
+ *
+ * @author Kang Hyunwoo
+ */
+public class BigTwoState {
+	/**
+	 * The number of players in a Big Two game.
+	 */
+	public static final int NUM_OF_PLAYERS = 4;
+
+	private final long[] hands = new long[NUM_OF_PLAYERS];
+	private int currentPlayerIdx;
+	// the player who played the last hand on the table, or -1 if the table is empty
+	private int lastPlayerIdx;
+	// the strength key of the last hand on the table
+	private int lastKey;
+	// the cards the next move has to contain (the Three of Diamonds on the first move)
+	private long required;
+	private int winnerIdx;
+
+	/**
+	 * Creates a state with no cards.
+	 */
+	public BigTwoState() {
+		this.lastPlayerIdx = -1;
+		this.lastKey = MoveGenerator.ANY_HAND;
+		this.winnerIdx = -1;
+	}
+
+	/**
+	 * Creates a snapshot of the position of the specified game.
+	 *
+	 * @param game the game whose position is copied
+	 */
+	public BigTwoState(BigTwo game) {
+		this();
+		synchronized (game) {
+			for (int i = 0; i < NUM_OF_PLAYERS; i++) {
+				hands[i] = game.getPlayerList().get(i).getCardsInHand().getMask();
+				if (hands[i] == 0 && winnerIdx < 0 && !game.getHandsOnTable().isEmpty()) {
+					winnerIdx = i;
+				}
+			}
+			currentPlayerIdx = game.getCurrentPlayerIdx();
+			required = game.getRequiredCards();
+			if (!game.getHandsOnTable().isEmpty()) {
+				Hand lastHand = game.getHandsOnTable().get(game.getHandsOnTable().size() - 1);
+				lastPlayerIdx = game.getPlayerList().indexOf(lastHand.getPlayer());
+				lastKey = lastHand.getKey();
+			}
+		}
+	}
+
+	/**
+	 * Creates a copy of the specified state.
+	 *
+	 * @param other the state to be copied
+	 */
+	public BigTwoState(BigTwoState other) {
+		copyFrom(other);
+	}
+
+	/**
+	 * Makes this state a copy of the specified state.
+	 *
+	 * @param other the state to be copied
+	 */
+	public void copyFrom(BigTwoState other) {
+		for (int i = 0; i < NUM_OF_PLAYERS; i++) {
+			hands[i] = other.hands[i];
+		}
+		currentPlayerIdx = other.currentPlayerIdx;
+		lastPlayerIdx = other.lastPlayerIdx;
+		lastKey = other.lastKey;
+		required = other.required;
+		winnerIdx = other.winnerIdx;
+	}
+
+	/**
+	 * Sets the position from its parts, e.g. for a position sampled by a search.
+	 *
+	 * @param hands            the CardSet mask of the cards of each player
+	 * @param currentPlayerIdx the index of the player to move
+	 * @param lastPlayerIdx    the index of the player of the last hand on the
+	 *                         table, or -1 if the table is empty
+	 * @param lastKey          the strength key of the last hand on the table
+	 * @param required         the cards the next move has to contain, or 0
+	 */
+	public void set(long[] hands, int currentPlayerIdx, int lastPlayerIdx, int lastKey, long required) {
+		winnerIdx = -1;
+		for (int i = 0; i < NUM_OF_PLAYERS; i++) {
+			this.hands[i] = hands[i];
+			if (hands[i] == 0 && lastPlayerIdx >= 0 && winnerIdx < 0) {
+				winnerIdx = i;
+			}
+		}
+		this.currentPlayerIdx = currentPlayerIdx;
+		this.lastPlayerIdx = lastPlayerIdx;
+		this.lastKey = lastKey;
+		this.required = required;
+	}
+
+	/**
+	 * Returns the cards held by the specified player.
+	 *
+	 * @param playerIdx the index of the player
+	 * @return the CardSet mask of the cards of the player
+	 */
+	public long getHand(int playerIdx) {
+		return hands[playerIdx];
+	}
+
+	/**
+	 * Returns the index of the player to move.
+	 *
+	 * @return the index of the player to move
+	 */
+	public int getCurrentPlayerIdx() {
+		return currentPlayerIdx;
+	}
+
+	/**
+	 * Returns the index of the player who played the last hand on the table.
+	 *
+	 * @return the index of the player, or -1 if the table is empty
+	 */
+	public int getLastPlayerIdx() {
+		return lastPlayerIdx;
+	}
+
+	/**
+	 * Returns the strength key of the last hand on the table.
+	 *
+	 * @return the key of the last hand, or MoveGenerator.ANY_HAND if the table is
+	 *         empty
+	 */
+	public int getLastKey() {
+		return lastKey;
+	}
+
+	/**
+	 * Returns the strength key of the hand the player to move has to beat.
+	 *
+	 * @return the key of the hand to beat, or MoveGenerator.ANY_HAND if the
+	 *         player to move can play any hand
+	 */
+	public int getTableKey() {
+		return lastPlayerIdx == currentPlayerIdx ? MoveGenerator.ANY_HAND : lastKey;
+	}
+
+	/**
+	 * Returns the cards the next move has to contain.
+	 *
+	 * @return the CardSet mask of the Three of Diamonds before the first move,
+	 *         otherwise 0
+	 */
+	public long getRequiredCards() {
+		return required;
+	}
+
+	/**
+	 * Returns true if the player to move may pass.
+	 *
+	 * @return true if there is a hand to beat; otherwise false
+	 */
+	public boolean canPass() {
+		return getTableKey() != MoveGenerator.ANY_HAND;
+	}
+
+	/**
+	 * Returns true if a player has no more cards.
+	 *
+	 * @return true if the game is over; otherwise false
+	 */
+	public boolean isGameOver() {
+		return winnerIdx >= 0;
+	}
+
+	/**
+	 * Returns the index of the player who won the game.
+	 *
+	 * @return the index of the winner, or -1 if the game is not over
+	 */
+	public int getWinnerIdx() {
+		return winnerIdx;
+	}
+
+	/**
+	 * Returns the number of cards held by all the players.
+	 *
+	 * @return the total number of cards left
+	 */
+	public int getTotalCards() {
+		return Long.bitCount(hands[0] | hands[1] | hands[2] | hands[3]);
+	}
+
+	/**
+	 * Lists the legal hands of the player to move. Passing is legal as well when
+	 * canPass() is true.
+	 *
+	 * @param generator the move generator which receives the moves
+	 * @return the number of moves found
+	 */
+	public int generateMoves(MoveGenerator generator) {
+		return generator.generate(hands[currentPlayerIdx], getTableKey(), required);
+	}
+
+	/**
+	 * Plays a move of the player to move. The move must be a pass allowed by
+	 * canPass() or a hand listed by generateMoves().
+	 *
+	 * @param move the CardSet mask of the cards being played, or 0 to pass
+	 */
+	public void play(long move) {
+		if (move != 0L) {
+			hands[currentPlayerIdx] &= ~move;
+			lastKey = HandClassifier.keyOf(move);
+			lastPlayerIdx = currentPlayerIdx;
+			required = 0L;
+			if (hands[currentPlayerIdx] == 0L) {
+				winnerIdx = currentPlayerIdx;
+				return;
+			}
+		}
+		currentPlayerIdx = (currentPlayerIdx + 1) % NUM_OF_PLAYERS;
+	}
+}
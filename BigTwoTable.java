@@ -0,0 +1,331 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class is used to model a table of a Big Two server. The table keeps its
+ * own headless BigTwo game, dealt from the same deck as the clients, and
+ * checks every move against it before anyone else sees the move: an illegal
+ * move is dropped at once, and a legal one is broadcast as a MOVE_DELTA
+ * message with the cards played, the type of the hand and the next player.
+ * The clients play the delta without checking it again, so they can never
+ * disagree about the state of the game.
+ * <p>
+ * When seat dealing is on, the table also deals the cards itself: each client
+ * gets a START message with a SeatDeal of only its own cards and the number
+ * of cards of the others, instead of the whole deck.
+ * <p>
+ * The start of each game and every move get the next sequence number of the
+ * table, and the MOVE_DELTA messages of the current game are kept. A client
+ * resuming its seat is sent the moves after the last sequence number it has
+ * seen, or a GameSnapshot if it has not seen the start of the game.
+ * <p>
+ * Spectators are sent the deal and the snapshots of seat -1, which show the
+ * number of cards of every seat but no cards, and the same MOVE_DELTA
+ * messages as the players.
+ * <p>
+ * When the server has a turn time limit, each turn has a clock on the timer
+ * wheel of the server, started at the start of the game and after every
+ * move. A player who has not moved when it runs out passes, or plays the
+ * lowest card in hand when the player may not pass, and the move is broadcast
+ * like any other; so a player who walks away, or whose connection is lost,
+ * cannot stall the table.
+ *
+ * @author Kang Hyunwoo
+ */
+public class BigTwoTable extends CardGameTable {
+	// the game at this table, as the server sees it
+	private final BigTwo game = new BigTwo(null);
+	// whether a game is being played at this table
+	private boolean inProgress = false;
+	// whether each client is sent only its own cards
+	private final boolean seatDealing;
+	// the sequence number of the last start or move at this table
+	private int seq = 0;
+	// the sequence number of the start of the current game
+	private int startSeq = -1;
+	// the MOVE_DELTA messages of the current game, in order
+	private final List<CardGameMessage> moveLog = new ArrayList<CardGameMessage>();
+	// the clock of the current turn, or null if the turn is not timed
+	private HashedTimerWheel.Timeout turnClock = null;
+
+	/**
+	 * Creates and returns an empty table of four seats.
+	 *
+	 * @param server
+	 *            the server hosting this table
+	 * @param tableID
+	 *            the ID of this table within the server
+	 * @param seatDealing
+	 *            true to send each client only its own cards, or false to send
+	 *            the whole deck
+	 */
+	public BigTwoTable(CardGameServer server, int tableID, boolean seatDealing) {
+		super(server, tableID, 4);
+		this.seatDealing = seatDealing;
+	}
+
+	/**
+	 * Returns true if a game is being played at this table.
+	 *
+	 * @return true between the start and the end of a game; otherwise false
+	 */
+	@Override
+	public synchronized boolean isInProgress() {
+		return inProgress;
+	}
+
+	/**
+	 * Deals the deck of the new game to the game at this table.
+	 *
+	 * @param deck
+	 *            the deck of the new game
+	 */
+	@Override
+	protected void gameStarted(Deck deck) {
+		game.start(deck);
+		inProgress = true;
+		startSeq = ++seq;
+		moveLog.clear();
+		startTurnClock();
+	}
+
+	/**
+	 * Drops the game at this table when a player leaves, and stops the clock
+	 * of its turn, so no move is played or timed out on the abandoned game.
+	 */
+	@Override
+	protected void gameAbandoned() {
+		if (turnClock != null) {
+			turnClock.cancel();
+			turnClock = null;
+		}
+		inProgress = false;
+		startSeq = -1;
+		moveLog.clear();
+	}
+
+	/**
+	 * Returns the START message for the specified seat: the deal of the seat
+	 * when seat dealing is on, or else the whole deck.
+	 *
+	 * @param playerID
+	 *            the seat of the player
+	 * @param deck
+	 *            the deck of the new game
+	 * @return the START message to be sent to the seat
+	 */
+	@Override
+	protected CardGameMessage startMessage(int playerID, Deck deck) {
+		if (!seatDealing) {
+			return super.startMessage(playerID, deck);
+		}
+		long cards = game.getPlayerList().get(playerID).getCardsInHand().getMask();
+		return new CardGameMessage(CardGameMessage.START, -1, new SeatDeal(
+				playerID, cards, numOfCards(), game.getCurrentPlayerIdx(),
+				startSeq));
+	}
+
+	/**
+	 * Returns the START message for the spectators: the deal of seat -1, with
+	 * the number of cards of every seat but no cards.
+	 *
+	 * @param deck
+	 *            the deck of the new game
+	 * @return the START message to be sent to the spectators
+	 */
+	@Override
+	protected CardGameMessage spectatorStartMessage(Deck deck) {
+		return new CardGameMessage(CardGameMessage.START, -1, new SeatDeal(-1,
+				0L, numOfCards(), game.getCurrentPlayerIdx(), startSeq));
+	}
+
+	/**
+	 * Sends a new spectator a snapshot of the game being played, if any.
+	 *
+	 * @param connection
+	 *            the connection of the spectator
+	 */
+	@Override
+	protected void spectatorJoined(ClientConnection connection) {
+		if (!inProgress) {
+			return;
+		}
+		try {
+			connection.send(new CardGameMessage(CardGameMessage.SNAPSHOT, -1,
+					snapshotOf(-1)));
+		} catch (Exception ex) {
+			println("Error in sending a snapshot to the spectator at "
+					+ connection.getRemoteAddress());
+		}
+	}
+
+	/**
+	 * Checks a move against the game at this table, and broadcasts it as a
+	 * MOVE_DELTA message if it is legal. A move is dropped when no game is in
+	 * progress, e.g. once a player has left and the game has been abandoned.
+	 *
+	 * @param playerID
+	 *            the seat of the player who made the move
+	 * @param message
+	 *            the MOVE message
+	 */
+	@Override
+	protected void moveReceived(int playerID, CardGameMessage message) {
+		if (!inProgress) {
+			// between games, or after a player has left the game
+			println("Drops a move from player " + playerID
+					+ ": no game in progress");
+			return;
+		}
+		long cards = -1L;
+		if (message.getData() == null || message.getData() instanceof int[]) {
+			cards = game.cardsOf(playerID, (int[]) message.getData());
+		}
+		if (cards < 0 || !game.playMove(playerID, cards)) {
+			println("Drops an illegal move from player " + playerID);
+			return;
+		}
+		movePlayed(playerID, cards);
+	}
+
+	/**
+	 * Broadcasts a move played on the game at this table as a MOVE_DELTA
+	 * message, and starts the clock of the next turn.
+	 */
+	private void movePlayed(int playerID, long cards) {
+		int nextPlayerIdx = game.getCurrentPlayerIdx();
+		if (game.endOfGame()) {
+			nextPlayerIdx = -1;
+			inProgress = false;
+		}
+		int handType = cards == 0L ? HandClassifier.INVALID
+				: HandClassifier.typeOf(HandClassifier.classify(cards));
+		CardGameMessage delta = new CardGameMessage(CardGameMessage.MOVE_DELTA,
+				playerID, new MoveDelta(cards, handType, nextPlayerIdx, ++seq));
+		moveLog.add(delta);
+		broadcastMessage(delta);
+		startTurnClock();
+	}
+
+	/**
+	 * Stops the clock of the last turn, and starts the clock of the current
+	 * turn if the game is in progress and turns are timed.
+	 */
+	private void startTurnClock() {
+		if (turnClock != null) {
+			turnClock.cancel();
+			turnClock = null;
+		}
+		long limit = getServer().getTurnTimeLimit();
+		if (inProgress && limit > 0) {
+			int turnSeq = seq;
+			turnClock = getServer().schedule(() -> turnExpired(turnSeq), limit);
+		}
+	}
+
+	/**
+	 * Moves for the player to move when the clock of the turn with the
+	 * specified sequence number runs out, unless the turn is over.
+	 */
+	private synchronized void turnExpired(int turnSeq) {
+		if (!inProgress || seq != turnSeq || !getServer().isServerUp()) {
+			return;
+		}
+		turnClock = null;
+		int playerID = game.getCurrentPlayerIdx();
+		long cards = timeoutMove();
+		if (!game.playMove(playerID, cards)) {
+			return;
+		}
+		println("Player " + playerID + " has run out of time and "
+				+ (cards == 0L ? "passes" : "plays the lowest card"));
+		getServer().getMetrics().turnTimedOut();
+		movePlayed(playerID, cards);
+	}
+
+	/**
+	 * Returns the move played for the player to move when the time is up: a
+	 * pass, or the lowest card in hand if the player may not pass. The first
+	 * player of a game holds the Three of Diamonds, the lowest card of all, so
+	 * this is a legal first move as well.
+	 */
+	private long timeoutMove() {
+		if (game.getTableKey() != MoveGenerator.ANY_HAND) {
+			return 0L;
+		}
+		long hand = game.getPlayerList().get(game.getCurrentPlayerIdx())
+				.getCardsInHand().getMask();
+		int lowestIdx = -1;
+		for (long rest = hand; rest != 0; rest &= rest - 1) {
+			int index = Long.numberOfTrailingZeros(rest);
+			if (lowestIdx < 0 || HandClassifier.bigTwoOrder(index) < HandClassifier
+					.bigTwoOrder(lowestIdx)) {
+				lowestIdx = index;
+			}
+		}
+		return 1L << lowestIdx;
+	}
+
+	/**
+	 * Sends a client resuming its seat the moves it has missed, or a snapshot
+	 * of the game if it has not seen the start of the game. Nothing is sent
+	 * between games.
+	 *
+	 * @param playerID
+	 *            the seat of the player
+	 * @param request
+	 *            the resume request of the client
+	 */
+	@Override
+	protected void sessionResumed(int playerID, ResumeRequest request) {
+		if (startSeq < 0) {
+			return;
+		}
+		if (seatDealing && request.getLastSeq() >= startSeq) {
+			int numOfMissed = 0;
+			for (CardGameMessage delta : moveLog) {
+				if (((MoveDelta) delta.getData()).getSeq() > request.getLastSeq()) {
+					sendMessage(playerID, delta);
+					numOfMissed++;
+				}
+			}
+			println("Sends " + numOfMissed + " missed moves to player "
+					+ playerID);
+		} else if (inProgress) {
+			println("Sends a snapshot of the game to player " + playerID);
+			sendMessage(playerID, new CardGameMessage(CardGameMessage.SNAPSHOT,
+					playerID, snapshotOf(playerID)));
+		}
+	}
+
+	/**
+	 * Returns the state of the game as seen from the specified seat, or from
+	 * a spectator for seat -1.
+	 */
+	private GameSnapshot snapshotOf(int playerID) {
+		long cards = playerID < 0 ? 0L
+				: game.getPlayerList().get(playerID).getCardsInHand().getMask();
+		int lastPlayerIdx = -1;
+		long lastCards = 0L;
+		List<Hand> handsOnTable = game.getHandsOnTable();
+		if (!handsOnTable.isEmpty()) {
+			Hand lastHand = handsOnTable.get(handsOnTable.size() - 1);
+			lastPlayerIdx = game.getPlayerList().indexOf(lastHand.getPlayer());
+			lastCards = lastHand.getMask();
+		}
+		return new GameSnapshot(playerID, cards, numOfCards(),
+				game.getCurrentPlayerIdx(), lastPlayerIdx, lastCards,
+				game.getPlayedCards(), seq);
+	}
+
+	/**
+	 * Returns the number of cards of each seat.
+	 */
+	private int[] numOfCards() {
+		int[] numOfCards = new int[game.getNumOfPlayers()];
+		for (int i = 0; i < numOfCards.length; i++) {
+			numOfCards[i] = game.getPlayerList().get(i).getNumOfCards();
+		}
+		return numOfCards;
+	}
+}
@@ -0,0 +1,334 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * This class is a compact binary message codec. A payload is the version of
+ * the format, the type of the message, the playerID and then the data of the
+ * message in a form fixed by its type:
+ * <ul>
+ * <li>PLAYER_LIST: the number of names, then each name (a presence byte and a
+ * modified UTF-8 string)</li>
+ * <li>JOIN, QUIT, MSG and SESSION: a string, written as above</li>
+ * <li>START: the number of cards, then the CardSet bit index of each card of
+ * the deck in order, one byte per card; or for a SeatDeal, the byte 0xFF
+ * (more than any number of cards), the seat, the first player, the CardSet
+ * mask of the cards of the seat (8 bytes), the number of seats, the number of
+ * cards of each seat (one byte each) and the sequence number (4 bytes)</li>
+ * <li>MOVE: a presence byte, then the indices of the selected cards as a
+ * 64-bit mask (no mask means a pass)</li>
+ * <li>MOVE_DELTA: the CardSet mask of the cards played (8 bytes), the type of
+ * the hand and the index of the next player (one byte each) and the sequence
+ * number (4 bytes)</li>
+ * <li>RESUME: a presence byte, then the session token as a string and the last
+ * sequence number seen (4 bytes)</li>
+ * <li>SNAPSHOT: the seat, the current player, the CardSet mask of the cards of
+ * the seat, the number of seats and the number of cards of each seat, the
+ * player and the CardSet mask of the last hand, the CardSet mask of the cards
+ * played, and the sequence number</li>
+ * <li>SPECTATE: a presence byte, then the ID of the table (4 bytes)</li>
+ * <li>FULL and READY: nothing</li>
+ * </ul>
+ * A START message is 56 bytes with a deck, or 23 with a SeatDeal, instead of
+ * the 1.3 KB of a serialized deck, and no reflection is involved in either
+ * direction.
+ *
+ * @author Kang Hyunwoo
+ */
+public class BinaryMessageCodec implements MessageCodec {
+	/**
+	 * The id of this codec in the handshake.
+	 */
+	public static final int ID = 2;
+	/**
+	 * The shared instance of this codec, which keeps no state.
+	 */
+	public static final BinaryMessageCodec INSTANCE = new BinaryMessageCodec();
+
+	// version of the format, written first in every payload
+	private static final int VERSION = 1;
+	// the first byte of a START message holding a SeatDeal instead of a deck
+	private static final int SEAT_DEAL = 0xFF;
+
+	private BinaryMessageCodec() {
+	}
+
+	/**
+	 * Returns the id of this codec.
+	 *
+	 * @return BinaryMessageCodec.ID
+	 */
+	public int getId() {
+		return ID;
+	}
+
+	/**
+	 * Encodes the specified message.
+	 *
+	 * @param message the message to be encoded
+	 * @return the payload holding the message
+	 * @throws IOException if the data of the message does not fit its type
+	 */
+	public byte[] encode(CardGameMessage message) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(VERSION);
+		out.writeByte(message.getType());
+		out.writeByte(message.getPlayerID());
+		Object data = message.getData();
+		try {
+			switch (message.getType()) {
+			case CardGameMessage.PLAYER_LIST:
+				String[] names = (String[]) data;
+				out.writeByte(names.length);
+				for (String name : names) {
+					writeString(out, name);
+				}
+				break;
+			case CardGameMessage.JOIN:
+			case CardGameMessage.QUIT:
+			case CardGameMessage.MSG:
+			case CardGameMessage.SESSION:
+				writeString(out, (String) data);
+				break;
+			case CardGameMessage.START:
+				if (data instanceof SeatDeal) {
+					SeatDeal deal = (SeatDeal) data;
+					out.writeByte(SEAT_DEAL);
+					out.writeByte(deal.getSeat());
+					out.writeByte(deal.getFirstPlayerIdx());
+					out.writeLong(deal.getCards());
+					out.writeByte(deal.getNumOfPlayers());
+					for (int i = 0; i < deal.getNumOfPlayers(); i++) {
+						out.writeByte(deal.getNumOfCards(i));
+					}
+					out.writeInt(deal.getSeq());
+					break;
+				}
+				Deck deck = (Deck) data;
+				out.writeByte(deck.size());
+				for (int i = 0; i < deck.size(); i++) {
+					out.writeByte(CardSet.indexOf(deck.getCard(i)));
+				}
+				break;
+			case CardGameMessage.MOVE:
+				writeCardIdx(out, (int[]) data);
+				break;
+			case CardGameMessage.MOVE_DELTA:
+				MoveDelta delta = (MoveDelta) data;
+				out.writeLong(delta.getCards());
+				out.writeByte(delta.getHandType());
+				out.writeByte(delta.getNextPlayerIdx());
+				out.writeInt(delta.getSeq());
+				break;
+			case CardGameMessage.RESUME:
+				ResumeRequest request = (ResumeRequest) data;
+				out.writeBoolean(request != null);
+				if (request != null) {
+					writeString(out, request.getToken());
+					out.writeInt(request.getLastSeq());
+				}
+				break;
+			case CardGameMessage.SPECTATE:
+				out.writeBoolean(data != null);
+				if (data != null) {
+					out.writeInt((Integer) data);
+				}
+				break;
+			case CardGameMessage.SNAPSHOT:
+				GameSnapshot snapshot = (GameSnapshot) data;
+				out.writeByte(snapshot.getSeat());
+				out.writeByte(snapshot.getCurrentPlayerIdx());
+				out.writeLong(snapshot.getCards());
+				out.writeByte(snapshot.getNumOfPlayers());
+				for (int i = 0; i < snapshot.getNumOfPlayers(); i++) {
+					out.writeByte(snapshot.getNumOfCards(i));
+				}
+				out.writeByte(snapshot.getLastPlayerIdx());
+				out.writeLong(snapshot.getLastCards());
+				out.writeLong(snapshot.getPlayedCards());
+				out.writeInt(snapshot.getSeq());
+				break;
+			default:
+				if (data != null) {
+					throw new IOException("No binary form for the data of message type " + message.getType());
+				}
+				break;
+			}
+		} catch (ClassCastException ex) {
+			throw new IOException("Wrong data for message type " + message.getType(), ex);
+		}
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Decodes a message from the payload of a frame.
+	 *
+	 * @param buffer the array holding the payload
+	 * @param offset the position of the payload in the array
+	 * @param length the length of the payload
+	 * @return the decoded message
+	 * @throws IOException if the payload is not a valid message
+	 */
+	public CardGameMessage decode(byte[] buffer, int offset, int length) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer, offset, length));
+		int version = in.readUnsignedByte();
+		if (version != VERSION) {
+			throw new IOException("Unknown version of the binary format: " + version);
+		}
+		int type = in.readUnsignedByte();
+		int playerID = in.readByte();
+		Object data = null;
+		switch (type) {
+		case CardGameMessage.PLAYER_LIST:
+			String[] names = new String[in.readUnsignedByte()];
+			for (int i = 0; i < names.length; i++) {
+				names[i] = readString(in);
+			}
+			data = names;
+			break;
+		case CardGameMessage.JOIN:
+		case CardGameMessage.QUIT:
+		case CardGameMessage.MSG:
+		case CardGameMessage.SESSION:
+			data = readString(in);
+			break;
+		case CardGameMessage.START:
+			int numOfCards = in.readUnsignedByte();
+			if (numOfCards == SEAT_DEAL) {
+				data = readSeatDeal(in);
+				break;
+			}
+			Deck deck = new Deck();
+			deck.removeAllCards();
+			for (int i = 0; i < numOfCards; i++) {
+				int index = in.readUnsignedByte();
+				if (index >= CardSet.NUM_OF_CARDS) {
+					throw new IOException("Bad card index: " + index);
+				}
+				deck.addCard(Card.valueOf(CardSet.suitOf(index), CardSet.rankOf(index)));
+			}
+			data = deck;
+			break;
+		case CardGameMessage.MOVE:
+			data = readCardIdx(in);
+			break;
+		case CardGameMessage.MOVE_DELTA:
+			long cards = in.readLong();
+			if ((cards & ~CardSet.ALL_CARDS) != 0) {
+				throw new IOException("Bad card mask: " + Long.toHexString(cards));
+			}
+			data = new MoveDelta(cards, in.readUnsignedByte(), in.readByte(), in.readInt());
+			break;
+		case CardGameMessage.RESUME:
+			if (in.readBoolean()) {
+				data = new ResumeRequest(readString(in), in.readInt());
+			}
+			break;
+		case CardGameMessage.SNAPSHOT:
+			data = readSnapshot(in);
+			break;
+		case CardGameMessage.SPECTATE:
+			if (in.readBoolean()) {
+				data = in.readInt();
+			}
+			break;
+		default:
+			break;
+		}
+		if (in.available() > 0) {
+			throw new IOException("Unexpected bytes after message type " + type);
+		}
+		return new CardGameMessage(type, playerID, data);
+	}
+
+	/**
+	 * Reads the rest of a START message holding a SeatDeal.
+	 */
+	private static SeatDeal readSeatDeal(DataInputStream in) throws IOException {
+		int seat = in.readByte();
+		int firstPlayerIdx = in.readByte();
+		long cards = in.readLong();
+		int[] numOfCards = new int[in.readUnsignedByte()];
+		if (seat < -1 || seat >= numOfCards.length || (cards & ~CardSet.ALL_CARDS) != 0) {
+			throw new IOException("Bad deal of seat " + seat);
+		}
+		for (int i = 0; i < numOfCards.length; i++) {
+			numOfCards[i] = in.readUnsignedByte();
+		}
+		return new SeatDeal(seat, cards, numOfCards, firstPlayerIdx, in.readInt());
+	}
+
+	/**
+	 * Reads the data of a SNAPSHOT message.
+	 */
+	private static GameSnapshot readSnapshot(DataInputStream in) throws IOException {
+		int seat = in.readByte();
+		int currentPlayerIdx = in.readByte();
+		long cards = in.readLong();
+		int[] numOfCards = new int[in.readUnsignedByte()];
+		for (int i = 0; i < numOfCards.length; i++) {
+			numOfCards[i] = in.readUnsignedByte();
+		}
+		int lastPlayerIdx = in.readByte();
+		long lastCards = in.readLong();
+		long playedCards = in.readLong();
+		if (seat < -1 || seat >= numOfCards.length || ((cards | lastCards | playedCards) & ~CardSet.ALL_CARDS) != 0) {
+			throw new IOException("Bad snapshot of seat " + seat);
+		}
+		return new GameSnapshot(seat, cards, numOfCards, currentPlayerIdx, lastPlayerIdx, lastCards, playedCards,
+				in.readInt());
+	}
+
+	/**
+	 * Writes a string which may be null.
+	 */
+	static void writeString(DataOutputStream out, String string) throws IOException {
+		out.writeBoolean(string != null);
+		if (string != null) {
+			out.writeUTF(string);
+		}
+	}
+
+	/**
+	 * Reads a string written by writeString().
+	 */
+	static String readString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	/**
+	 * Writes the indices of the selected cards as a mask, or no mask for null.
+	 */
+	static void writeCardIdx(DataOutputStream out, int[] cardIdx) throws IOException {
+		out.writeBoolean(cardIdx != null);
+		if (cardIdx != null) {
+			long mask = 0L;
+			for (int i : cardIdx) {
+				if (i < 0 || i >= Long.SIZE) {
+					throw new IOException("Card index out of range: " + i);
+				}
+				mask |= 1L << i;
+			}
+			out.writeLong(mask);
+		}
+	}
+
+	/**
+	 * Reads the indices written by writeCardIdx(), in ascending order.
+	 */
+	static int[] readCardIdx(DataInputStream in) throws IOException {
+		if (!in.readBoolean()) {
+			return null;
+		}
+		long mask = in.readLong();
+		int[] cardIdx = new int[Long.bitCount(mask)];
+		for (int i = 0; mask != 0; i++, mask &= mask - 1) {
+			cardIdx[i] = Long.numberOfTrailingZeros(mask);
+		}
+		return cardIdx;
+	}
+}
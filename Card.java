@@ -10,6 +10,15 @@ public class Card implements Comparable<Card>, Serializable {
 	static boolean SUPPORT_COLOR = false;
 	private static final char[] SUITS = { '\u2666', '\u2663', '\u2665', '\u2660' }; // {Diamond, Club, Heart, Spade}
 	private static final char[] RANKS = { 'A', '2', '3', '4', '5', '6', '7', '8', '9', '0', 'J', 'Q', 'K' };
+	private static final Card[] CARDS = new Card[52];
+
+	static {
+		for (int i = 0; i < 4; i++) {
+			for (int j = 0; j < 13; j++) {
+				CARDS[j * 4 + i] = new Card(i, j);
+			}
+		}
+	}
 
 	protected final int suit; // 0 - 3
 	protected final int rank; // 0 - 12
@@ -30,6 +39,18 @@ public class Card implements Comparable<Card>, Serializable {
 		this.rank = rank;
 	}
 
+	/**
+	 * Returns the shared instance of the card with the specified suit and rank.
+	 * Cards are immutable, so the same 52 instances can be used by every deck.
+	 * 
+	 * @param suit an int value between 0 and 3 representing the suit of a card
+	 * @param rank an int value between 0 and 12 representing the rank of a card
+	 * @return the shared instance of the card
+	 */
+	public static Card valueOf(int suit, int rank) {
+		return CARDS[rank * 4 + suit];
+	}
+
 	/**
 	 * Returns the suit of a card.
 	 * 
@@ -106,4 +127,13 @@ public class Card implements Comparable<Card>, Serializable {
 	public int hashCode() {
 		return rank;
 	}
+
+	/**
+	 * Replaces a deserialized card with the shared instance.
+	 * 
+	 * @return the shared instance of the card with the same suit and rank
+	 */
+	private Object readResolve() {
+		return valueOf(suit, rank);
+	}
 }
@@ -10,7 +10,9 @@ public class CardGameMessage extends GameMessage {
 	 * Sent by the server to a client when a connection is established. In this
 	 * message, playerID specifies the playerID of the local player, and data is
 	 * a reference to a regular array of strings specifying the names of the
-	 * players
+	 * players. A client put in the lobby of the server is sent an empty list
+	 * with playerID being -1, and is sent its seat in another PLAYER_LIST
+	 * message once it has joined and a seat is found for it.
 	 */
 	public static final int PLAYER_LIST = 0;
 	/**
@@ -21,7 +23,8 @@ public class CardGameMessage extends GameMessage {
 	public static final int JOIN = 1;
 	/**
 	 * Sent by the server to a client after a connection is established but the
-	 * server is not able to serve this client because it is full. In this
+	 * server is not able to serve this client because it is full and so is its
+	 * lobby. In this
 	 * message, playerID is -1 (not being used) and data is simply null (not
 	 * being used).
 	 */
@@ -41,7 +44,9 @@ public class CardGameMessage extends GameMessage {
 	public static final int READY = 4;
 	/**
 	 * Broadcast by the server when all clients are ready for a new game. In this message, playerID is 
-	 * -1 (no being used), and data is a reference to a Deck object (a shuffled deck for the new game).
+	 * -1 (no being used), and data is a reference to a Deck object (a shuffled deck for the new game),
+	 * or to a SeatDeal object holding only the cards of the receiving player when the server deals the
+	 * cards itself.
 	 */
 	public static final int START = 5;
 	/**
@@ -57,6 +62,42 @@ public class CardGameMessage extends GameMessage {
 	 * sent this chat message, and data is a reference to a string containing a formated chat message.
 	 */
 	public static final int MSG = 7;
+	/**
+	 * Broadcast by the server after it has checked a MOVE message against the rules of the game, instead
+	 * of the MOVE message itself. Illegal moves are dropped by the server and never broadcast. In this
+	 * message, playerID specifies the player who made the move, and data is a reference to a MoveDelta
+	 * object specifying the cards played, the type of the hand and the next player.
+	 */
+	public static final int MOVE_DELTA = 8;
+	/**
+	 * Sent by the server to a client after it joins the game. In this message, playerID specifies the
+	 * player, and data is a string holding the session token with which the client can resume its seat
+	 * if it loses the connection.
+	 */
+	public static final int SESSION = 9;
+	/**
+	 * Sent by a client to the server, instead of JOIN, when it connects again after losing the
+	 * connection. In this message, playerID is -1 (not being used), and data is a reference to a
+	 * ResumeRequest object. If the seat cannot be resumed, the server sends this message back with data
+	 * being null, and the client joins as a new player.
+	 */
+	public static final int RESUME = 10;
+	/**
+	 * Sent by the server to a client resuming its seat when it cannot catch up from the moves it has
+	 * missed. In this message, playerID specifies the player, and data is a reference to a GameSnapshot
+	 * object holding the state of the game as seen from the seat.
+	 */
+	public static final int SNAPSHOT = 11;
+	/**
+	 * Sent by a client to the server, instead of JOIN, to watch a table without taking a seat. In this
+	 * message, playerID is -1 (not being used), and data is an Integer holding the ID of the table, or
+	 * null for the table with the most players. The server sends the spectator a PLAYER_LIST message with
+	 * playerID being -1, and then only the public messages of the table: a START message or a SNAPSHOT
+	 * with seat -1 and no cards, the MOVE_DELTA messages, and the JOIN, QUIT, READY and MSG messages. If
+	 * the table cannot be watched, the server sends this message back with data being null, and the
+	 * client joins as a new player.
+	 */
+	public static final int SPECTATE = 12;
 
 	/**
 	 * Creates and returns an instance of CardGameMessage.
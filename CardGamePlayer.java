@@ -7,6 +7,7 @@ public class CardGamePlayer {
 	private static int playerId = 0;
 	private String name = "";
 	private CardList cardsInHand = new CardList();
+	private int numOfHiddenCards = 0;
 
 	/**
 	 * Creates and returns an instance of the Player class.
@@ -56,29 +57,52 @@ public class CardGamePlayer {
 
 	/**
 	 * Removes the list of cards from this player, if they are held by this player.
+	 * Cards which are not in the list of cards held by this player are taken from
+	 * its hidden cards.
 	 * 
 	 * @param cards the list of cards to be removed from this player
 	 */
 	public void removeCards(CardList cards) {
-		for (int i = 0; i < cards.size(); i++) {
-			cardsInHand.removeCard(cards.getCard(i));
-		}
+		int numOfKnownCards = cardsInHand.size();
+		cardsInHand.removeCards(cards.getMask());
+		int numOfRemoved = numOfKnownCards - cardsInHand.size();
+		numOfHiddenCards = Math.max(0, numOfHiddenCards - (cards.size() - numOfRemoved));
 	}
 
 	/**
-	 * Removes all cards from this player.
+	 * Removes all cards from this player, including its hidden cards.
 	 */
 	public void removeAllCards() {
 		cardsInHand = new CardList();
+		numOfHiddenCards = 0;
 	}
 
 	/**
-	 * Returns the number of cards held by this player.
+	 * Returns the number of cards held by this player, including its hidden cards.
 	 * 
 	 * @return the number of cards held by this player
 	 */
 	public int getNumOfCards() {
-		return cardsInHand.size();
+		return cardsInHand.size() + numOfHiddenCards;
+	}
+
+	/**
+	 * Returns the number of cards held by this player which are not known, such as
+	 * the cards of another player in a network game.
+	 * 
+	 * @return the number of hidden cards held by this player
+	 */
+	public int getNumOfHiddenCards() {
+		return numOfHiddenCards;
+	}
+
+	/**
+	 * Sets the number of cards held by this player which are not known.
+	 * 
+	 * @param numOfHiddenCards the number of hidden cards held by this player
+	 */
+	public void setNumOfHiddenCards(int numOfHiddenCards) {
+		this.numOfHiddenCards = numOfHiddenCards;
 	}
 
 	/**
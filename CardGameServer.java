@@ -1,9 +1,22 @@
+import java.awt.GraphicsEnvironment;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import javax.swing.JFrame;
 import javax.swing.JMenu;
@@ -14,37 +27,107 @@ import javax.swing.JTextArea;
 import javax.swing.ScrollPaneConstants;
 
 /**
- * This class is used to model a card game server.
+ * This class is used to model a card game server. The server either gives each
+ * client a thread blocking on its socket (start()), or serves all the clients
+ * from a small pool of NIO event loops speaking the framed protocol
+ * (startNio()). The game logic is the same in both modes, and only sees the
+ * clients as ClientConnections.
+ * <p>
+ * The server hosts many games at once, each at its own CardGameTable. A new
+ * client is seated at the first table with a free seat, and a new table is
+ * opened when all the tables are full.
+ * <p>
+ * When every table is full, a new client waits in the Lobby instead of being
+ * turned away, and is seated as soon as a seat is freed or a table can be
+ * opened; only a client finding the lobby full is sent a FULL message. In
+ * matchmaking mode every client waits in the lobby, and tables are opened
+ * only once enough players have joined to fill them. The players in the
+ * lobby are queued by bucket (see lobbyBucket()), and a table only takes
+ * players of its own bucket.
+ * <p>
+ * While it is up, the server exposes its ServerMetrics over JMX: counters and
+ * latency histograms for each type of message, the active connections and
+ * the tables in progress.
  * 
  * @author Kenneth Wong
  *
  */
 public class CardGameServer {
+	// the length of a tick of the timer wheel, and the number of its ticks
+	private static final long TIMER_TICK_MILLIS = 10;
+	private static final int TIMER_TICKS_PER_WHEEL = 512;
+
 	// Flag for silent mode (prevents printing the stack trace)
 	boolean silentMode = true;
+	// Flag for quiet mode (prevents logging the events of the server)
+	private volatile boolean quiet = false;
 	// The name of this card game server
 	private String serverName;
 	// The maximum number of players in a card game
 	private final int maxNumOfPlayers;
-	// Array for holding sockets of the clients
-	private Socket[] clientSockets;
-	// Array for holding ObjectOutputStreams of the clients
-	private ObjectOutputStream[] clientOutputStreams;
-	// Array for holding player names of the clients
-	private String[] clientNames;
-	// Array for holding ready states of the clients
-	private boolean[] clientReadyStates;
-	// number of current players
-	private int numOfPlayers = 0;
+	// The maximum number of tables hosted at the same time
+	private final int maxNumOfTables;
+	// the tables with a free seat, in the order they were opened, by bucket
+	private final Map<Integer, Set<CardGameTable>> openTables = new HashMap<Integer, Set<CardGameTable>>();
+	// the bucket of each table opened for the lobby; other tables are in
+	// bucket 0
+	private final Map<CardGameTable, Integer> tableBuckets = new HashMap<CardGameTable, Integer>();
+	// the clients waiting for a seat
+	private final Lobby lobby = new Lobby();
+	// the largest number of clients in the lobby
+	private volatile int maxNumOfWaiting = 10000;
+	// whether every client waits in the lobby until a table can be filled
+	private volatile boolean matchmaking = false;
+	// the table of each connection
+	private final Map<ClientConnection, CardGameTable> connectionTables = new ConcurrentHashMap<ClientConnection, CardGameTable>();
+	// the tables with at least one player
+	private final Set<CardGameTable> tables = new HashSet<CardGameTable>();
+	// the ID of the next table to be opened
+	private int nextTableID = 0;
 	// the main frame of the server
 	private JFrame frame = null;
 	// text area for displaying server states
 	private JTextArea textArea = null;
 	// a boolean indicating if the server is up
-	private boolean serverUp = false;
+	private volatile boolean serverUp = false;
+	// the event loops serving the clients in NIO mode
+	private NioEventLoop[] eventLoops = null;
+	// a boolean indicating if blocking connections are served by virtual threads
+	private boolean virtualThreads = false;
+	// the threads serving blocking connections
+	private ExecutorService handlerExecutor = null;
+	// the timer wheel running delayed tasks, such as closing rejected
+	// connections, ending the sessions of lost connections and the turn clocks
+	private volatile HashedTimerWheel timer = null;
+	// the listening socket in blocking mode
+	private volatile ServerSocket serverSocket = null;
+	// the listening channel in NIO mode
+	private volatile ServerSocketChannel serverChannel = null;
+	// the largest number of messages waiting to be written to one client
+	private int sendQueueCapacity = SendQueue.DEFAULT_CAPACITY;
+	// what happens when the send queue of a client is full
+	private int overflowPolicy = SendQueue.DROP_CHAT;
+	// the metrics of the send queues of all the clients
+	private final SendQueueMetrics sendQueueMetrics = new SendQueueMetrics();
+	// the metrics of this server, exposed over JMX
+	private final ServerMetrics metrics = new ServerMetrics(this);
+	// the tables of the sessions of the players, by session token
+	private final Map<String, CardGameTable> sessions = new ConcurrentHashMap<String, CardGameTable>();
+	// how long the seat of a lost connection is held for the client to resume it
+	private volatile long sessionGraceMillis = 30000;
+	// the time a player has for each move, or 0 for no limit
+	private volatile long turnTimeLimit = 0;
+	// the generator of the session tokens
+	private final SecureRandom random = new SecureRandom();
+	// the largest number of spectators watching one table
+	private volatile int maxNumOfSpectators = 1000;
+	// the number of bytes written to a blocking connection between two resets
+	// of its ObjectOutputStream
+	private volatile int streamResetBytes = SessionObjectOutputStream.DEFAULT_RESET_BYTES;
 
 	/**
-	 * Creates and returns an instance of the BigTwoServer class.
+	 * Creates and returns an instance of the BigTwoServer class, hosting as
+	 * many tables as there are clients for.
 	 * 
 	 * @param serverName
 	 *            the name of this card game server
@@ -52,17 +135,29 @@ public class CardGameServer {
 	 *            the maximum number of players in a card game
 	 */
 	public CardGameServer(String serverName, int maxNumOfPlayers) {
+		this(serverName, maxNumOfPlayers, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Creates and returns an instance of the BigTwoServer class.
+	 * 
+	 * @param serverName
+	 *            the name of this card game server
+	 * @param maxNumOfPlayers
+	 *            the maximum number of players in a card game
+	 * @param maxNumOfTables
+	 *            the maximum number of games hosted at the same time
+	 */
+	public CardGameServer(String serverName, int maxNumOfPlayers,
+			int maxNumOfTables) {
 		this.serverName = serverName;
 		this.maxNumOfPlayers = maxNumOfPlayers;
+		this.maxNumOfTables = maxNumOfTables;
 
-		// creates arrays for holding client sockets, output streams, player
-		// names, and ready states
-		clientSockets = new Socket[maxNumOfPlayers];
-		clientOutputStreams = new ObjectOutputStream[maxNumOfPlayers];
-		clientNames = new String[maxNumOfPlayers];
-		clientReadyStates = new boolean[maxNumOfPlayers];
-
-		buildGUI();
+		// a server without a display logs to the standard output instead
+		if (!GraphicsEnvironment.isHeadless()) {
+			buildGUI();
+		}
 	}
 
 	/**
@@ -97,6 +192,266 @@ public class CardGameServer {
 		frame.setVisible(true);
 	} // buildGUI
 
+	/**
+	 * Sets whether the server stops logging its events, such as every message
+	 * received, to its text area or to the standard output. A quiet server
+	 * does not even build the lines, so measurements of the server do not
+	 * include its logging.
+	 * 
+	 * @param quiet
+	 *            true to stop logging, false to log every event
+	 */
+	public void setQuiet(boolean quiet) {
+		this.quiet = quiet;
+	}
+
+	/**
+	 * Returns whether the server has stopped logging its events.
+	 * 
+	 * @return true if the server is quiet
+	 */
+	public boolean isQuiet() {
+		return quiet;
+	}
+
+	/**
+	 * Sets whether the blocking mode serves each client with a virtual thread
+	 * instead of a platform thread. Virtual threads need Java 21; platform
+	 * threads are used on older versions. It takes effect on the next start().
+	 * 
+	 * @param virtualThreads
+	 *            true for virtual threads
+	 */
+	public void setVirtualThreads(boolean virtualThreads) {
+		this.virtualThreads = virtualThreads;
+	}
+
+	/**
+	 * Returns true if the blocking mode serves the clients with virtual
+	 * threads.
+	 * 
+	 * @return true if virtual threads are requested and available
+	 */
+	public boolean isVirtualThreads() {
+		return virtualThreads && HandlerThreads.isVirtualAvailable();
+	}
+
+	/**
+	 * Sets the size of the queue of the messages waiting to be written to each
+	 * client, and what happens when it is full (see SendQueue). It applies to
+	 * the clients connecting from now on.
+	 * 
+	 * @param capacity
+	 *            the largest number of messages waiting for one client
+	 * @param overflowPolicy
+	 *            SendQueue.DROP_CHAT, SendQueue.DISCONNECT or
+	 *            SendQueue.COALESCE
+	 */
+	public synchronized void setSendQueue(int capacity, int overflowPolicy) {
+		if (capacity < 1 || overflowPolicy < SendQueue.DROP_CHAT
+				|| overflowPolicy > SendQueue.COALESCE) {
+			throw new IllegalArgumentException("Bad send queue: " + capacity
+					+ ", " + overflowPolicy);
+		}
+		this.sendQueueCapacity = capacity;
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	/**
+	 * Returns the metrics of the send queues of the clients.
+	 * 
+	 * @return the metrics shared by the send queues of this server
+	 */
+	public SendQueueMetrics getSendQueueMetrics() {
+		return sendQueueMetrics;
+	}
+
+	/**
+	 * Returns the metrics of this server, also registered as an MXBean while
+	 * the server is up.
+	 * 
+	 * @return the metrics of this server
+	 */
+	public ServerMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Sets how many bytes are written to a blocking connection before its
+	 * ObjectOutputStream is reset and forgets the objects already sent. It
+	 * applies to the clients connecting from now on.
+	 * 
+	 * @param streamResetBytes
+	 *            the number of bytes between two resets, or 0 to reset after
+	 *            every message
+	 */
+	public void setStreamResetBytes(int streamResetBytes) {
+		this.streamResetBytes = streamResetBytes;
+	}
+
+	/**
+	 * Returns the bytes sent since the serialization state of each connection
+	 * was last reset, summed over all the connections (see
+	 * ClientConnection.getBytesSinceReset()). It is an estimate of that state,
+	 * not the memory it takes.
+	 * 
+	 * @return the bytes sent since the last resets of all the connections
+	 */
+	public long getBytesSinceReset() {
+		long bytesSinceReset = 0;
+		for (ClientConnection connection : connectionTables.keySet()) {
+			bytesSinceReset += connection.getBytesSinceReset();
+		}
+		return bytesSinceReset;
+	}
+
+	/**
+	 * Sets how long the seat of a player whose connection is lost is held, so
+	 * the client can connect again and resume the game.
+	 * 
+	 * @param sessionGraceMillis
+	 *            the grace period in milliseconds, or 0 to free the seat at
+	 *            once
+	 */
+	public void setSessionGraceMillis(long sessionGraceMillis) {
+		this.sessionGraceMillis = sessionGraceMillis;
+	}
+
+	/**
+	 * Returns how long the seat of a player whose connection is lost is held.
+	 * 
+	 * @return the grace period in milliseconds
+	 */
+	public long getSessionGraceMillis() {
+		return sessionGraceMillis;
+	}
+
+	/**
+	 * Sets the time a player has for each move. When it is up, the table
+	 * plays a move for the player, e.g. a pass (see BigTwoTable). It applies
+	 * from the next turn on.
+	 * 
+	 * @param turnTimeLimit
+	 *            the time limit of a turn in milliseconds, or 0 for no limit
+	 */
+	public void setTurnTimeLimit(long turnTimeLimit) {
+		this.turnTimeLimit = Math.max(0, turnTimeLimit);
+	}
+
+	/**
+	 * Returns the time a player has for each move.
+	 * 
+	 * @return the time limit of a turn in milliseconds, or 0 for no limit
+	 */
+	public long getTurnTimeLimit() {
+		return turnTimeLimit;
+	}
+
+	/**
+	 * Sets whether every client waits in the lobby until enough players have
+	 * joined to fill a table, instead of being seated at once.
+	 * 
+	 * @param matchmaking
+	 *            true to open a table only when it can be filled
+	 */
+	public synchronized void setMatchmaking(boolean matchmaking) {
+		this.matchmaking = matchmaking;
+	}
+
+	/**
+	 * Returns whether every client waits in the lobby until a table can be
+	 * filled.
+	 * 
+	 * @return true in matchmaking mode
+	 */
+	public boolean isMatchmaking() {
+		return matchmaking;
+	}
+
+	/**
+	 * Sets the largest number of clients waiting in the lobby. A client
+	 * connecting when the lobby is full is sent a FULL message.
+	 * 
+	 * @param maxNumOfWaiting
+	 *            the largest number of clients in the lobby, or 0 to turn
+	 *            away every client who cannot be seated at once
+	 */
+	public void setMaxNumOfWaiting(int maxNumOfWaiting) {
+		this.maxNumOfWaiting = maxNumOfWaiting;
+	}
+
+	/**
+	 * Returns the largest number of clients waiting in the lobby.
+	 * 
+	 * @return the largest number of clients in the lobby
+	 */
+	public int getMaxNumOfWaiting() {
+		return maxNumOfWaiting;
+	}
+
+	/**
+	 * Returns the number of clients waiting in the lobby.
+	 * 
+	 * @return the number of clients in the lobby, joined or not
+	 */
+	public int getNumOfWaiting() {
+		return lobby.size();
+	}
+
+	/**
+	 * Sets the largest number of spectators watching one table. Spectators
+	 * already watching are not removed.
+	 * 
+	 * @param maxNumOfSpectators
+	 *            the largest number of spectators of a table, or 0 to refuse
+	 *            all spectators
+	 */
+	public void setMaxNumOfSpectators(int maxNumOfSpectators) {
+		this.maxNumOfSpectators = maxNumOfSpectators;
+	}
+
+	/**
+	 * Returns the largest number of spectators watching one table.
+	 * 
+	 * @return the largest number of spectators of a table
+	 */
+	public int getMaxNumOfSpectators() {
+		return maxNumOfSpectators;
+	}
+
+	/**
+	 * Starts a session at the specified table.
+	 * 
+	 * @param table
+	 *            the table of the player
+	 * @return a new session token
+	 */
+	String newSession(CardGameTable table) {
+		byte[] bytes = new byte[16];
+		random.nextBytes(bytes);
+		StringBuilder token = new StringBuilder(32);
+		for (byte b : bytes) {
+			token.append(String.format("%02x", b));
+		}
+		sessions.put(token.toString(), table);
+		return token.toString();
+	}
+
+	/**
+	 * Ends the specified session, once its seat has been freed.
+	 * 
+	 * @param token
+	 *            the session token
+	 */
+	void sessionEnded(String token) {
+		sessions.remove(token);
+	}
+
+	private synchronized SendQueue newSendQueue() {
+		return new SendQueue(sendQueueCapacity, overflowPolicy,
+				sendQueueMetrics);
+	}
+
 	/**
 	 * Starts the server at the specified port
 	 * 
@@ -106,91 +461,375 @@ public class CardGameServer {
 	public void start(int port) {
 		// start the server
 		try {
+			handlerExecutor = HandlerThreads.newExecutor(virtualThreads,
+					"client-handler");
+			startTimer();
 			// creates a ServerScoket
-			ServerSocket serverSocket = new ServerSocket(port);
-			println("Starts up the server at localhost:"
-					+ serverSocket.getLocalPort());
+			serverSocket = new ServerSocket(port);
+			println("Starts up the server"
+					+ (isVirtualThreads() ? " (virtual threads)" : "")
+					+ " at localhost:" + serverSocket.getLocalPort());
+			registerMetrics();
 			serverUp = true;
 			while (serverUp) {
 				// waits for clients to connect
 				Socket clientSocket = serverSocket.accept();
+				// sends each small message at once instead of waiting for
+				// the ACK of the previous one (Nagle's algorithm)
+				clientSocket.setTcpNoDelay(true);
 				addConnection(clientSocket);
 			} // while
 			serverSocket.close();
 		} catch (Exception ex) {
-			println("Error in starting up the server at localhost:" + port);
-			if (!silentMode) ex.printStackTrace();
+			// accept() fails when stop() closes the socket
+			if (serverUp) {
+				println("Error in starting up the server at localhost:" + port);
+				if (!silentMode) ex.printStackTrace();
+			}
 		}
 	} // start
 
 	/**
-	 * Parses the incoming message from the specified client.
+	 * Returns the port at which the server is listening.
 	 * 
-	 * @param clientSocket
-	 *            the socket connection to the specified client
+	 * @return the local port, or -1 if the server is not listening
+	 */
+	public int getPort() {
+		if (serverSocket != null) {
+			return serverSocket.getLocalPort();
+		}
+		if (serverChannel != null) {
+			return serverChannel.socket().getLocalPort();
+		}
+		return -1;
+	}
+
+	/**
+	 * Stops the server: stops accepting, closes every connection, and waits
+	 * for the threads serving the connections to finish.
+	 * 
+	 * @param timeoutMillis
+	 *            the longest time to wait for the threads, in milliseconds
+	 * @return true if all the threads have finished
+	 */
+	public boolean stop(long timeoutMillis) {
+		serverUp = false;
+		closeQuietly(serverSocket);
+		closeQuietly(serverChannel);
+		for (ClientConnection connection : connectionTables.keySet()) {
+			connection.close();
+		}
+		for (ClientConnection connection : lobby.clear()) {
+			connection.close();
+		}
+
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		boolean finished = true;
+		try {
+			if (eventLoops != null) {
+				for (NioEventLoop loop : eventLoops) {
+					loop.shutdown();
+				}
+				for (NioEventLoop loop : eventLoops) {
+					finished &= loop.awaitTermination(Math.max(1,
+							deadline - System.currentTimeMillis()));
+				}
+			}
+			if (handlerExecutor != null) {
+				handlerExecutor.shutdown();
+				finished &= handlerExecutor.awaitTermination(Math.max(1,
+						deadline - System.currentTimeMillis()),
+						TimeUnit.MILLISECONDS);
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			finished = false;
+		}
+		if (timer != null) {
+			// closes the rejected connections still waiting for their delay,
+			// and ends the sessions still held
+			for (Runnable task : timer.stop()) {
+				task.run();
+			}
+		}
+		metrics.unregister();
+		println("Send queues: " + sendQueueMetrics + ", "
+				+ getBytesSinceReset() + " bytes sent since the streams were reset");
+		println("Server stopped.");
+		return finished;
+	} // stop
+
+	/**
+	 * Registers the metrics of this server on the platform MBean server. The
+	 * server runs without them if they cannot be registered.
+	 */
+	private void registerMetrics() {
+		try {
+			metrics.register(serverName, getPort());
+		} catch (Exception ex) {
+			println("Error in registering the metrics of the server");
+			if (!silentMode) ex.printStackTrace();
+		}
+	}
+
+	private void startTimer() {
+		timer = new HashedTimerWheel("timer", TIMER_TICK_MILLIS,
+				TIMER_TICKS_PER_WHEEL);
+	}
+
+	/**
+	 * Runs the specified task once after the specified delay, on the timer
+	 * wheel of the server. The task must be short, as all the delayed tasks
+	 * of the server run on the same thread.
+	 * 
+	 * @param task
+	 *            the task to be run
+	 * @param delayMillis
+	 *            the delay in milliseconds
+	 * @return the timeout with which the task can be cancelled, or null if
+	 *         the server is stopping and has run the task at once
+	 */
+	HashedTimerWheel.Timeout schedule(Runnable task, long delayMillis) {
+		try {
+			return timer.schedule(task, delayMillis);
+		} catch (RuntimeException ex) {
+			// the server is stopping, and runs the task itself
+			task.run();
+			return null;
+		}
+	}
+
+	/**
+	 * Returns true between the start and the stop of the server.
+	 * 
+	 * @return true if the server is up
+	 */
+	boolean isServerUp() {
+		return serverUp;
+	}
+
+	private void closeQuietly(java.io.Closeable closeable) {
+		try {
+			if (closeable != null) {
+				closeable.close();
+			}
+		} catch (Exception ex) {
+			if (!silentMode) ex.printStackTrace();
+		}
+	}
+
+	/**
+	 * Starts the server at the specified port in NIO mode. The calling thread
+	 * accepts the connections, and hands them out in turn to the specified
+	 * number of event loops, which do all the reading and writing.
+	 * 
+	 * @param port
+	 *            the specified port at which the server starts
+	 * @param numOfEventLoops
+	 *            the number of event loop threads
+	 */
+	public void startNio(int port, int numOfEventLoops) {
+		try {
+			startTimer();
+			eventLoops = new NioEventLoop[numOfEventLoops];
+			for (int i = 0; i < numOfEventLoops; i++) {
+				eventLoops[i] = new NioEventLoop("nio-event-loop-" + i);
+				eventLoops[i].setSilentMode(silentMode);
+				eventLoops[i].start();
+			}
+			ClientConnection.Handler handler = new ConnectionHandler();
+
+			serverChannel = ServerSocketChannel.open();
+			serverChannel.bind(new InetSocketAddress(port), 1024);
+			println("Starts up the server (NIO, " + numOfEventLoops
+					+ " event loops) at localhost:"
+					+ serverChannel.socket().getLocalPort());
+			registerMetrics();
+			serverUp = true;
+			int next = 0;
+			while (serverUp) {
+				// waits for clients to connect
+				SocketChannel clientChannel = serverChannel.accept();
+				clientChannel.socket().setTcpNoDelay(true);
+				eventLoops[next].register(clientChannel, handler,
+						newSendQueue());
+				next = (next + 1) % numOfEventLoops;
+			} // while
+			serverChannel.close();
+		} catch (Exception ex) {
+			// accept() fails when stop() closes the channel
+			if (serverUp) {
+				println("Error in starting up the server at localhost:" + port);
+				if (!silentMode) ex.printStackTrace();
+			}
+		}
+	} // startNio
+
+	/**
+	 * Parses the incoming message from the specified client at the table of
+	 * the client.
+	 * 
+	 * @param connection
+	 *            the connection to the specified client
 	 * @param message
 	 *            the message received from the specified client
 	 */
-	private synchronized void parseMessage(Socket clientSocket,
+	private void parseMessage(ClientConnection connection,
 			CardGameMessage message) {
-		// updates the playerID
-		for (int i = 0; i < maxNumOfPlayers; i++) {
-			if (clientSockets[i] == clientSocket) {
-				message.setPlayerID(i);
-				break;
+		int type = message.getType();
+		long start = System.nanoTime();
+		if (type == CardGameMessage.RESUME) {
+			resumeSession(connection, message);
+		} else if (type == CardGameMessage.SPECTATE) {
+			spectate(connection, message);
+		} else {
+			CardGameTable table = connectionTables.get(connection);
+			if (table != null) {
+				table.parseMessage(connection, message);
+			} else if (type == CardGameMessage.JOIN) {
+				joinLobby(connection, (String) message.getData());
 			}
 		}
+		metrics.parsed(type, System.nanoTime() - start);
+	} // parseMessage
 
-		// parses the message based on it type
-		switch (message.getType()) {
-		case CardGameMessage.JOIN:
-			// adds a player to the game
-			addPlayer(clientSocket, (String) message.getData());
-			break;
-		case CardGameMessage.READY:
-			// marks the specified player as ready for a new game
-			setReadyState(clientSocket);
-			break;
-		case CardGameMessage.MOVE:
-			println("Broadcasts a \"MOVE\" message from "
-					+ clientSocket.getRemoteSocketAddress());
-			// broadcast the MOVE message to all clients
-			broadcastMessage(message);
-			break;
-		case CardGameMessage.MSG:
-			println("Broadcasts a user message from "
-					+ clientSocket.getRemoteSocketAddress());
-			// broadcast the user message to all clients
-			broadcastUserMessage(clientSocket, (String) message.getData());
-			break;
-		default:
-			println("Wrong message type: " + message.getType());
-			// invalid message
-			break;
+	/**
+	 * Queues a client in the lobby once it has joined, and seats the players
+	 * of its bucket if a seat is free or a table can be filled.
+	 * 
+	 * @param connection
+	 *            the connection of the client
+	 * @param name
+	 *            the name of the player
+	 */
+	private synchronized void joinLobby(ClientConnection connection,
+			String name) {
+		int bucket = lobbyBucket(connection, name);
+		if (lobby.enqueue(connection, bucket)) {
+			println(name + " (" + connection.getRemoteAddress()
+					+ ") is waiting in the lobby.");
+			matchPlayers(bucket);
 		}
-	} // parseMessage
+	}
+
+	/**
+	 * Returns the bucket of a client joining in the lobby. A table only takes
+	 * players of its bucket, and tables opened outside the lobby are in
+	 * bucket 0. By default every client is in bucket 0; overrides this method
+	 * to match players by skill or latency. It is called with the lock of the
+	 * server held.
+	 * 
+	 * @param connection
+	 *            the connection of the client
+	 * @param name
+	 *            the name of the player
+	 * @return the bucket of the client
+	 */
+	protected int lobbyBucket(ClientConnection connection, String name) {
+		return 0;
+	}
 
 	/**
-	 * Broadcasts the specified message to all clients.
+	 * Moves a connection which asks to resume a session from its new seat to
+	 * the seat held for the session. If the session has ended, the connection
+	 * is seated again as a new player and the RESUME message is sent back.
 	 * 
+	 * @param connection
+	 *            the new connection of the client
 	 * @param message
-	 *            the specified message to be broadcast to all clients
-	 */
-	private synchronized void broadcastMessage(CardGameMessage message) {
-		if (numOfPlayers > 0) {
-			for (int i = 0; i < maxNumOfPlayers; i++) {
-				if (clientSockets[i] != null && clientOutputStreams[i] != null) {
-					try {
-						clientOutputStreams[i].writeObject(message);
-					} catch (Exception ex) {
-						println("Error in broadcasting a message to the client at "
-								+ clientSockets[i].getRemoteSocketAddress());
-						if (!silentMode) ex.printStackTrace();
-					}
-				}
+	 *            the RESUME message of the client
+	 */
+	private void resumeSession(ClientConnection connection,
+			CardGameMessage message) {
+		lobby.remove(connection);
+		CardGameTable current = connectionTables.remove(connection);
+		if (current != null && current.removeNewConnection(connection)) {
+			seatFreed(current);
+		}
+
+		ResumeRequest request = message.getData() instanceof ResumeRequest
+				? (ResumeRequest) message.getData() : null;
+		CardGameTable table = request == null || request.getToken() == null
+				? null : sessions.get(request.getToken());
+		if (table != null && table.resumeSession(connection, request)) {
+			connectionTables.put(connection, table);
+			return;
+		}
+
+		println("Cannot resume the session of the client at "
+				+ connection.getRemoteAddress());
+		addConnection(connection);
+		try {
+			connection.send(new CardGameMessage(CardGameMessage.RESUME, -1,
+					null));
+		} catch (Exception ex) {
+			if (!silentMode) ex.printStackTrace();
+		}
+	} // resumeSession
+
+	/**
+	 * Moves a connection which asks to watch a table from its new seat to the
+	 * spectators of the table. If the table cannot be watched, the connection
+	 * is seated again as a new player and the SPECTATE message is sent back.
+	 * A player who has joined keeps the seat.
+	 * 
+	 * @param connection
+	 *            the connection of the client
+	 * @param message
+	 *            the SPECTATE message of the client
+	 */
+	private void spectate(ClientConnection connection, CardGameMessage message) {
+		lobby.remove(connection);
+		CardGameTable current = connectionTables.get(connection);
+		if (current != null) {
+			if (current.removeNewConnection(connection)) {
+				connectionTables.remove(connection);
+				seatFreed(current);
+			} else if (current.removeSpectator(connection)) {
+				connectionTables.remove(connection);
+			} else {
+				return;
 			}
 		}
-	} // broadcastMessage
+
+		Integer tableID = message.getData() instanceof Integer
+				? (Integer) message.getData() : null;
+		CardGameTable table = findTable(tableID);
+		if (table != null && table.addSpectator(connection)) {
+			connectionTables.put(connection, table);
+			return;
+		}
+
+		println("Cannot add the client at " + connection.getRemoteAddress()
+				+ " as a spectator of table " + tableID);
+		addConnection(connection);
+		try {
+			connection.send(new CardGameMessage(CardGameMessage.SPECTATE, -1,
+					null));
+		} catch (Exception ex) {
+			if (!silentMode) ex.printStackTrace();
+		}
+	} // spectate
+
+	/**
+	 * Returns the table with the specified ID, or the table with the most
+	 * players if the ID is null.
+	 * 
+	 * @param tableID
+	 *            the ID of a table, or null
+	 * @return the table, or null if there is no such table
+	 */
+	private synchronized CardGameTable findTable(Integer tableID) {
+		CardGameTable found = null;
+		for (CardGameTable table : tables) {
+			if (tableID == null ? found == null
+					|| table.getNumOfPlayers() > found.getNumOfPlayers()
+					: table.getTableID() == tableID) {
+				found = table;
+			}
+		}
+		return found;
+	}
 
 	/**
 	 * Adds a new socket connection to the server
@@ -200,158 +839,288 @@ public class CardGameServer {
 	 */
 	private synchronized void addConnection(Socket clientSocket) {
 		// adds this connection to the server if the server is not full
-		if (numOfPlayers < maxNumOfPlayers) {
-			// locates the first empty slot for the new connection
-			for (int i = 0; i < maxNumOfPlayers; i++) {
-				if (clientSockets[i] == null) {
-					try {
-						// creates an ObjectOutputStream for this client socket
-						ObjectOutputStream oostream = new ObjectOutputStream(
-								clientSocket.getOutputStream());
-
-						clientSockets[i] = clientSocket;
-						clientOutputStreams[i] = oostream;
-						clientNames[i] = null;
-						clientReadyStates[i] = false;
-						numOfPlayers++;
-						println("Establishes a connection with a client at "
-								+ clientSocket.getRemoteSocketAddress());
-
-						// creates a thread for receiving messages from this
-						// client
-						Thread t = new Thread(new ClientHandler(clientSocket));
-						t.start();
+		if (canAdmit()) {
+			try {
+				// creates an ObjectOutputStream for this client socket, whose
+				// messages are written by tasks of the handler executor
+				SocketConnection connection = new SocketConnection(
+						clientSocket, newSendQueue(), handlerExecutor,
+						streamResetBytes);
+				admitConnection(connection);
 
-						// sends the player list to the new player
-						oostream.writeObject(new CardGameMessage(
-								CardGameMessage.PLAYER_LIST, i, clientNames));
-					} catch (Exception ex) {
-						println("Error in establishing a connection with a client at "
-								+ clientSocket.getRemoteSocketAddress());
-						if (!silentMode) ex.printStackTrace();
-					}
-					break;
-				}
-			} // for
+				// runs a thread for receiving messages from this client
+				handlerExecutor.execute(new ClientHandler(connection));
+			} catch (Exception ex) {
+				println("Error in establishing a connection with a client at "
+						+ clientSocket.getRemoteSocketAddress());
+				if (!silentMode) ex.printStackTrace();
+			}
 		} else {
-			// Max. no. of players reached
+			// Max. no. of tables reached
 			println("Server is full: cannot establish a connection with a client at "
 					+ clientSocket.getRemoteSocketAddress());
 
-			// creates a thread for sending a FULL message to this client, waits
-			// for 1000 milliseconds and closes the socket
-			Thread t = new Thread(new ClientHandler2(clientSocket));
-			t.start();
+			// runs a thread for sending a FULL message to this client, which
+			// closes the socket 1000 milliseconds later
+			handlerExecutor.execute(new ClientHandler2(clientSocket));
 		}
 
 	} // addConnection
 
 	/**
-	 * Removes a connection from the server (possibly due to connection loss).
+	 * Adds a new connection, whose handshake has been read, to the server
 	 * 
-	 * @param clientSocket
-	 *            the socket connection being removed from the server
-	 */
-	private synchronized void removeConnection(Socket clientSocket) {
-		if (numOfPlayers > 0) {
-			// locates the client socket in the array
-			for (int i = 0; i < maxNumOfPlayers; i++) {
-				if (clientSockets[i] == clientSocket) {
-					String name = clientNames[i];
-
-					clientSockets[i] = null;
-					clientOutputStreams[i] = null;
-					clientNames[i] = null;
-					clientReadyStates[i] = false;
-					numOfPlayers--;
-
-					println(name + " (" + clientSocket.getRemoteSocketAddress()
-							+ ") leaves the game.");
-
-					String remoteAddress = clientSocket
-							.getRemoteSocketAddress().toString();
-
-					// broadcasts a message about the leaving of this player
-					broadcastMessage(new CardGameMessage(CardGameMessage.QUIT,
-							i, remoteAddress));
-					break;
-				}
+	 * @param connection
+	 *            the connection to be added to the server
+	 */
+	private synchronized void addConnection(ClientConnection connection) {
+		try {
+			if (canAdmit()) {
+				admitConnection(connection);
+			} else {
+				// Max. no. of tables reached
+				println("Server is full: cannot establish a connection with a client at "
+						+ connection.getRemoteAddress());
+				// the connection is closed once the FULL message is written
+				connection.send(new CardGameMessage(CardGameMessage.FULL, -1,
+						null));
+				connection.close();
 			}
+		} catch (Exception ex) {
+			println("Error in establishing a connection with a client at "
+					+ connection.getRemoteAddress());
+			if (!silentMode) ex.printStackTrace();
 		}
-	} // removeConnection
+	} // addConnection
+
+	/**
+	 * Returns true if a new client can be seated, at a table of bucket 0 with
+	 * a free seat or at a new table.
+	 */
+	private synchronized boolean hasFreeSeat() {
+		return openTables.containsKey(0) || tables.size() < maxNumOfTables;
+	}
 
 	/**
-	 * adds a player to the game.
+	 * Returns true if a new client can be seated at once or wait in the
+	 * lobby.
+	 */
+	private synchronized boolean canAdmit() {
+		return (!matchmaking && hasFreeSeat()) || lobby.size() < maxNumOfWaiting;
+	}
+
+	/**
+	 * Seats a new connection, or puts it in the lobby if it cannot be seated
+	 * at once. The server must be able to admit it (see canAdmit()).
 	 * 
-	 * @param clientSocket
-	 *            the socket connection to the player who is joining the game
-	 * @param name
-	 *            the name of the player who is joining the game
-	 */
-	private synchronized void addPlayer(Socket clientSocket, String name) {
-		if (numOfPlayers > 0) {
-			// locates the client socket in the array
-			for (int i = 0; i < maxNumOfPlayers; i++) {
-				if (clientSockets[i] == clientSocket) {
-					// updates the name of the new player
-					clientNames[i] = name;
-
-					println(name + " (" + clientSocket.getRemoteSocketAddress()
-							+ ") joins the game.");
-
-					// broadcasts a message about this player joining the game
-					broadcastMessage(new CardGameMessage(CardGameMessage.JOIN,
-							i, name));
-					break;
-				}
-			}
+	 * @param connection
+	 *            the connection to be added to the server
+	 * @throws Exception
+	 *             if the player list cannot be sent to the client
+	 */
+	private synchronized void admitConnection(ClientConnection connection)
+			throws Exception {
+		if (!matchmaking && hasFreeSeat()) {
+			seatConnection(connection);
+			return;
 		}
-	} // addPlayer
+		lobby.add(connection);
+		println("Puts a client at " + connection.getRemoteAddress()
+				+ " in the lobby");
+		// an empty player list with playerID -1, to which the client answers
+		// with its JOIN message
+		connection.send(new CardGameMessage(CardGameMessage.PLAYER_LIST, -1,
+				new String[maxNumOfPlayers]));
+	}
 
 	/**
-	 * Marks the specified player as ready for a new game.
+	 * Seats a connection at the first table with a free seat, opening a new
+	 * table if every table is full. The server must not be full.
 	 * 
-	 * @param clientSocket
-	 *            the socket connection to the player who becomes ready for a
-	 *            new game
-	 */
-	private synchronized void setReadyState(Socket clientSocket) {
-		if (numOfPlayers > 0) {
-			// locates the client socket in the array
-			for (int i = 0; i < maxNumOfPlayers; i++) {
-				if (clientSockets[i] == clientSocket) {
-					clientReadyStates[i] = true;
-					println(clientNames[i] + " ("
-							+ clientSocket.getRemoteSocketAddress()
-							+ " ) is ready for the next game.");
-					broadcastMessage(new CardGameMessage(CardGameMessage.READY,
-							i, null));
+	 * @param connection
+	 *            the connection to be added to the server
+	 * @throws Exception
+	 *             if the player list cannot be sent to the client
+	 */
+	private synchronized void seatConnection(ClientConnection connection)
+			throws Exception {
+		Set<CardGameTable> open = openTables.get(0);
+		CardGameTable table = open == null ? openTable(0)
+				: open.iterator().next();
+		seatAt(table, connection);
+	} // seatConnection
+
+	/**
+	 * Seats the players waiting in the lobby in the specified bucket: first
+	 * at the tables of the bucket with a free seat, and then at new tables,
+	 * which in matchmaking mode are only opened when they can be filled.
+	 * 
+	 * @param bucket
+	 *            the bucket of the players
+	 */
+	private synchronized void matchPlayers(int bucket) {
+		int tableSize = matchmaking ? maxNumOfPlayers : 1;
+		Set<CardGameTable> open;
+		while (lobby.getNumOfWaiting(bucket) > 0
+				&& ((open = openTables.get(bucket)) != null
+						|| (lobby.getNumOfWaiting(bucket) >= tableSize
+								&& tables.size() < maxNumOfTables))) {
+			CardGameTable table = open != null ? open.iterator().next()
+					: openTable(bucket);
+			while (table.hasFreeSeat()) {
+				ClientConnection connection = lobby.poll(bucket);
+				if (connection == null) {
 					break;
 				}
+				try {
+					seatAt(table, connection);
+				} catch (Exception ex) {
+					println("Error in seating a client at "
+							+ connection.getRemoteAddress());
+					if (!silentMode) ex.printStackTrace();
+				}
 			}
 		}
+	} // matchPlayers
 
-		// checks if all players are ready
-		if (numOfPlayers == maxNumOfPlayers) {
-			for (int i = 0; i < maxNumOfPlayers; i++) {
-				if (clientReadyStates[i] == false) {
-					// returns if any of the players is not ready
-					return;
-				}
+	/**
+	 * Opens a new table in the specified bucket.
+	 */
+	private CardGameTable openTable(int bucket) {
+		CardGameTable table = createTable(nextTableID++);
+		tables.add(table);
+		if (bucket != 0) {
+			tableBuckets.put(table, bucket);
+		}
+		addOpenTable(table);
+		return table;
+	}
+
+	/**
+	 * Seats a connection at the specified table, which must have a free seat.
+	 */
+	private void seatAt(CardGameTable table, ClientConnection connection)
+			throws Exception {
+		connectionTables.put(connection, table);
+		try {
+			table.addConnection(connection);
+		} finally {
+			if (!table.hasFreeSeat()) {
+				removeOpenTable(table);
 			}
+		}
+	}
+
+	private void addOpenTable(CardGameTable table) {
+		int bucket = tableBuckets.getOrDefault(table, 0);
+		Set<CardGameTable> open = openTables.get(bucket);
+		if (open == null) {
+			open = new LinkedHashSet<CardGameTable>();
+			openTables.put(bucket, open);
+		}
+		open.add(table);
+	}
+
+	private void removeOpenTable(CardGameTable table) {
+		int bucket = tableBuckets.getOrDefault(table, 0);
+		Set<CardGameTable> open = openTables.get(bucket);
+		if (open != null && open.remove(table) && open.isEmpty()) {
+			openTables.remove(bucket);
+		}
+	}
 
-			// resets the ready states of all the players for the next game
-			for (int i = 0; i < maxNumOfPlayers; i++) {
-				clientReadyStates[i] = false;
+	/**
+	 * Removes a connection from the server (possibly due to connection loss).
+	 * 
+	 * @param connection
+	 *            the connection being removed from the server
+	 */
+	private void removeConnection(ClientConnection connection) {
+		CardGameTable table;
+		// under the server lock, a client being seated by matchPlayers() is
+		// either still in the lobby or already at its table
+		synchronized (this) {
+			table = connectionTables.remove(connection);
+			if (table == null) {
+				lobby.remove(connection);
+				return;
+			}
+		}
+		if (!table.removeConnection(connection)) {
+			return;
+		}
+		// the table lock is released first, since seatConnection() takes the
+		// server lock before the table lock
+		seatFreed(table);
+	} // removeConnection
+
+	/**
+	 * Updates the tables of the server after a seat of the specified table
+	 * has been freed, and seats the players waiting in the lobby who can now
+	 * be seated. It must not be called with the lock of the table held.
+	 * 
+	 * @param table
+	 *            the table with a free seat
+	 */
+	synchronized void seatFreed(CardGameTable table) {
+		if (table.getNumOfPlayers() == 0) {
+			// an empty table is dropped, which makes room for a new table
+			removeOpenTable(table);
+			tables.remove(table);
+			tableBuckets.remove(table);
+			for (int bucket : lobby.getBuckets()) {
+				matchPlayers(bucket);
 			}
+		} else if (table.hasFreeSeat()) {
+			addOpenTable(table);
+			matchPlayers(tableBuckets.getOrDefault(table, 0));
+		}
+	}
+
+	/**
+	 * Creates and returns a table. Overrides this method if a different type
+	 * of table is needed.
+	 * 
+	 * @param tableID
+	 *            the ID of the new table
+	 * @return an empty table
+	 */
+	public CardGameTable createTable(int tableID) {
+		return new CardGameTable(this, tableID, maxNumOfPlayers);
+	}
+
+	/**
+	 * Returns the number of tables with at least one player.
+	 * 
+	 * @return the number of open tables
+	 */
+	public synchronized int getNumOfTables() {
+		return tables.size();
+	}
 
-			// creates a new deck, shuffles the deck, and starts a new game
-			Deck deck = createDeck();
-			deck.shuffle();
-			println("All players are ready. Game starts.");
-			broadcastMessage(new CardGameMessage(CardGameMessage.START, -1,
-					deck));
+	/**
+	 * Returns the number of tables at which a game is being played.
+	 * 
+	 * @return the number of tables in progress
+	 */
+	public synchronized int getNumOfTablesInProgress() {
+		int numOfTables = 0;
+		for (CardGameTable table : tables) {
+			if (table.isInProgress()) {
+				numOfTables++;
+			}
 		}
+		return numOfTables;
+	}
+
+	/**
+	 * Returns the number of clients connected to this server: the players,
+	 * the spectators and the clients in the lobby.
+	 * 
+	 * @return the number of active connections
+	 */
+	public int getNumOfConnections() {
+		return connectionTables.size() + lobby.size();
 	}
 
 	/**
@@ -364,31 +1133,24 @@ public class CardGameServer {
 		return new Deck();
 	}
 
-	private synchronized void broadcastUserMessage(Socket clientSocket,
-			String msg) {
-		if (numOfPlayers > 0) {
-			// locates the client in the array
-			for (int i = 0; i < maxNumOfPlayers; i++) {
-				if (clientSockets[i] == clientSocket) {
-					String longMsg = clientNames[i] + " ("
-							+ clientSocket.getRemoteSocketAddress() + "): "
-							+ msg;
-					broadcastMessage(new CardGameMessage(CardGameMessage.MSG,
-							i, longMsg));
-					break;
-				}
-			}
-		}
-	}
-
 	/**
-	 * Prints the specified message to the text area.
+	 * Prints the specified message to the text area, or to the standard output
+	 * if the server has no GUI.
 	 * 
 	 * @param msg
 	 */
-	private void println(String msg) {
-		textArea.append(msg + "\n");
-		textArea.setCaretPosition(textArea.getDocument().getLength());
+	void println(String msg) {
+		if (quiet) {
+			return;
+		}
+		if (textArea == null) {
+			System.out.println(msg);
+			return;
+		}
+		synchronized (textArea) {
+			textArea.append(msg + "\n");
+			textArea.setCaretPosition(textArea.getDocument().getLength());
+		}
 	}
 
 	/**
@@ -398,44 +1160,53 @@ public class CardGameServer {
 	 *
 	 */
 	private class ClientHandler implements Runnable {
+		private SocketConnection connection; // connection to the client
 		private Socket clientSocket; // socket connection to the client
 		private ObjectInputStream oistream; // ObjectInputStream of the client
 
 		/**
 		 * Creates and returns an instance of the ClientHandler class.
 		 * 
-		 * @param clientSocket
-		 *            the socket connection to the client
+		 * @param connection
+		 *            the connection to the client
 		 */
-		public ClientHandler(Socket clientSocket) {
-			this.clientSocket = clientSocket;
+		public ClientHandler(SocketConnection connection) {
+			this.connection = connection;
+			this.clientSocket = connection.getSocket();
+		} // constructor
+
+		// implementation of method from the Runnable interface
+		public void run() {
 			try {
 				// creates an ObjectInputStream and chains it to the InputStream
-				// of the client socket
+				// of the client socket; this waits for the stream header of the
+				// client, so it is done here rather than while the server is
+				// seating the client
 				oistream = new ObjectInputStream(clientSocket.getInputStream());
 			} catch (Exception ex) {
 				println("Error in creating an ObjectInputStream for the client at "
 						+ clientSocket.getRemoteSocketAddress());
 				if (!silentMode) ex.printStackTrace();
+				removeConnection(connection);
+				return;
 			}
-		} // constructor
 
-		// implementation of method from the Runnable interface
-		public void run() {
 			CardGameMessage message;
 			try {
 				// waits for messages from the client
 				while ((message = (CardGameMessage) oistream.readObject()) != null) {
-					println("Message received from "
-							+ clientSocket.getRemoteSocketAddress());
-					parseMessage(clientSocket, message);
+					if (!quiet) {
+						println("Message received from "
+								+ clientSocket.getRemoteSocketAddress());
+					}
+					parseMessage(connection, message);
 				} // close while
 			} catch (Exception ex) {
 				println("Error in receiving messages from the client at "
 						+ clientSocket.getRemoteSocketAddress());
 				if (!silentMode) ex.printStackTrace();
 				// possible connection loss, removes the connection
-				removeConnection(clientSocket);
+				removeConnection(connection);
 			}
 		} // run
 	} // ClientHandler
@@ -471,16 +1242,12 @@ public class CardGameServer {
 				if (!silentMode) ex.printStackTrace();
 			}
 
-			// sleeps for 1000 milliseconds before closing the socket
-			try {
-				Thread.sleep(1000);
-			} catch (Exception ex) {
-				println("Error in sleeping before closing the client socket at "
-						+ clientSocket.getRemoteSocketAddress());
-				if (!silentMode) ex.printStackTrace();
-			}
+			// closes the socket after 1000 milliseconds, without holding a
+			// thread while waiting
+			schedule(this::closeSocket, 1000);
+		} // run
 
-			// closes the socket
+		private void closeSocket() {
 			try {
 				clientSocket.close();
 			} catch (Exception ex) {
@@ -488,9 +1255,28 @@ public class CardGameServer {
 						+ clientSocket.getRemoteSocketAddress());
 				if (!silentMode) ex.printStackTrace();
 			}
-		} // run
+		} // closeSocket
 	} // ClientHandler2
 
+	/**
+	 * This inner class is used for receiving the events of the connections of
+	 * the NIO event loops
+	 */
+	private class ConnectionHandler implements ClientConnection.Handler {
+		public void connectionOpened(ClientConnection connection) {
+			addConnection(connection);
+		}
+
+		public void messageReceived(ClientConnection connection,
+				CardGameMessage message) {
+			parseMessage(connection, message);
+		}
+
+		public void connectionClosed(ClientConnection connection) {
+			removeConnection(connection);
+		}
+	} // ConnectionHandler
+
 	/**
 	 * This inner class is used for handling the Clear menu
 	 * 
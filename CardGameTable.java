@@ -0,0 +1,659 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class is used to model a table of a card game server: the seats of one
+ * game, with the connections, names and ready states of its players and the
+ * deck of its current game. Messages from a player only reach the players at
+ * the same table, and every table has its own lock, so the games of a server
+ * do not wait for each other.
+ * <p>
+ * A player who has joined is given a session token. If the connection is
+ * lost, the seat is held for the grace period of the server instead of being
+ * freed at once, so the client can connect again and resume it.
+ * <p>
+ * A table may also be watched by spectators, who take no seat. They are sent
+ * only what every player sees: the names and ready states of the players,
+ * the chat, and whatever public form of the game the table provides (see
+ * spectatorStartMessage() and spectatorJoined()). Every broadcast message is
+ * shared by all the connections which send it (see SharedMessage), so it is
+ * encoded once per codec however many spectators are watching, and it is
+ * given to the players before the spectators.
+ *
+ * @author Kang Hyunwoo
+ */
+public class CardGameTable {
+	// the server hosting this table
+	private final CardGameServer server;
+	// the ID of this table within the server
+	private final int tableID;
+	// The maximum number of players at this table
+	private final int maxNumOfPlayers;
+	// Array for holding connections to the clients
+	private final ClientConnection[] clientConnections;
+	// Array for holding player names of the clients
+	private final String[] clientNames;
+	// Array for holding ready states of the clients
+	private final boolean[] clientReadyStates;
+	// Array for holding the session tokens of the players who have joined
+	private final String[] sessionTokens;
+	// Array for holding the last remote addresses of the clients
+	private final String[] clientAddresses;
+	// the connections of the spectators watching this table
+	private final List<ClientConnection> spectators = new ArrayList<ClientConnection>();
+	// number of current players
+	private int numOfPlayers = 0;
+	// the deck of the current game, or null before the first game
+	private Deck deck = null;
+	// whether a game has started and no seat has been freed since
+	private boolean gameInProgress = false;
+
+	/**
+	 * Creates and returns an empty table.
+	 *
+	 * @param server
+	 *            the server hosting this table
+	 * @param tableID
+	 *            the ID of this table within the server
+	 * @param maxNumOfPlayers
+	 *            the maximum number of players at this table
+	 */
+	public CardGameTable(CardGameServer server, int tableID, int maxNumOfPlayers) {
+		this.server = server;
+		this.tableID = tableID;
+		this.maxNumOfPlayers = maxNumOfPlayers;
+		clientConnections = new ClientConnection[maxNumOfPlayers];
+		clientNames = new String[maxNumOfPlayers];
+		clientReadyStates = new boolean[maxNumOfPlayers];
+		sessionTokens = new String[maxNumOfPlayers];
+		clientAddresses = new String[maxNumOfPlayers];
+	}
+
+	/**
+	 * Returns the ID of this table.
+	 *
+	 * @return the ID of this table within the server
+	 */
+	public int getTableID() {
+		return tableID;
+	}
+
+	/**
+	 * Returns the server hosting this table.
+	 *
+	 * @return the server of this table
+	 */
+	public CardGameServer getServer() {
+		return server;
+	}
+
+	/**
+	 * Returns true if a game is being played at this table. This class cannot
+	 * tell when a game ends, so a game is taken to be in progress from its
+	 * start until a seat is freed; subclasses which know better override this
+	 * method.
+	 *
+	 * @return true if a game is being played at this table
+	 */
+	public synchronized boolean isInProgress() {
+		return gameInProgress;
+	}
+
+	/**
+	 * Returns the number of players at this table.
+	 *
+	 * @return the number of seats taken
+	 */
+	public synchronized int getNumOfPlayers() {
+		return numOfPlayers;
+	}
+
+	/**
+	 * Returns the number of spectators watching this table.
+	 *
+	 * @return the number of spectators
+	 */
+	public synchronized int getNumOfSpectators() {
+		return spectators.size();
+	}
+
+	/**
+	 * Returns true if a player can sit at this table.
+	 *
+	 * @return true if a seat is free; otherwise false
+	 */
+	public synchronized boolean hasFreeSeat() {
+		return numOfPlayers < maxNumOfPlayers;
+	}
+
+	/**
+	 * Returns the deck of the current game.
+	 *
+	 * @return the deck dealt for the current game, or null before the first
+	 *         game
+	 */
+	public synchronized Deck getDeck() {
+		return deck;
+	}
+
+	/**
+	 * Puts a connection in the first empty seat and sends the player list to
+	 * it. The table must have a free seat.
+	 *
+	 * @param connection
+	 *            the connection to be added to the table
+	 * @return the playerID of the seat
+	 * @throws Exception
+	 *             if the player list cannot be sent
+	 */
+	public synchronized int addConnection(ClientConnection connection) throws Exception {
+		for (int i = 0; i < maxNumOfPlayers; i++) {
+			// a seat held for a lost connection is not free
+			if (clientConnections[i] == null && sessionTokens[i] == null) {
+				clientConnections[i] = connection;
+				clientNames[i] = null;
+				clientReadyStates[i] = false;
+				clientAddresses[i] = connection.getRemoteAddress();
+				numOfPlayers++;
+				println("Establishes a connection with a client at "
+						+ connection.getRemoteAddress());
+
+				// sends the player list to the new player; the list is
+				// copied, since the message may be written later
+				connection.send(new CardGameMessage(
+						CardGameMessage.PLAYER_LIST, i, clientNames.clone()));
+				return i;
+			}
+		}
+		throw new IllegalStateException("Table is full");
+	} // addConnection
+
+	/**
+	 * Removes a connection from the table (possibly due to connection loss).
+	 * The seat of a player with a session is held for the grace period of the
+	 * server; any other seat is freed.
+	 *
+	 * @param connection
+	 *            the connection being removed from the table
+	 * @return true if the seat of the connection has been freed
+	 */
+	public synchronized boolean removeConnection(ClientConnection connection) {
+		int i = indexOf(connection);
+		if (i < 0) {
+			removeSpectator(connection);
+			return false;
+		}
+		clientConnections[i] = null;
+
+		long graceMillis = server.getSessionGraceMillis();
+		String token = sessionTokens[i];
+		if (token != null && graceMillis > 0) {
+			println(clientNames[i] + " (" + clientAddresses[i]
+					+ ") loses the connection; the seat is held for "
+					+ graceMillis + " ms.");
+			broadcastMessage(new CardGameMessage(CardGameMessage.MSG, i,
+					clientNames[i] + " lost the connection and may come back."));
+			server.schedule(() -> expireSession(token), graceMillis);
+			return false;
+		}
+		freeSeat(i);
+		return true;
+	} // removeConnection
+
+	/**
+	 * Removes a connection which has not joined the game, without telling the
+	 * other players, e.g. when the client resumes a seat somewhere else.
+	 *
+	 * @param connection
+	 *            the connection being removed from the table
+	 * @return true if the seat of the connection has been freed
+	 */
+	public synchronized boolean removeNewConnection(ClientConnection connection) {
+		int i = indexOf(connection);
+		if (i < 0 || sessionTokens[i] != null) {
+			return false;
+		}
+		clientConnections[i] = null;
+		clientNames[i] = null;
+		clientReadyStates[i] = false;
+		numOfPlayers--;
+		return true;
+	}
+
+	/**
+	 * Adds a spectator to the table and sends it the player list, with
+	 * playerID being -1, and whatever public state of the current game the
+	 * table provides (see spectatorJoined()).
+	 *
+	 * @param connection
+	 *            the connection of the spectator
+	 * @return true if the spectator has been added; false if the table has as
+	 *         many spectators as the server allows
+	 */
+	public synchronized boolean addSpectator(ClientConnection connection) {
+		if (spectators.size() >= server.getMaxNumOfSpectators()) {
+			return false;
+		}
+		spectators.add(connection);
+		println("A spectator at " + connection.getRemoteAddress()
+				+ " starts watching the table.");
+		try {
+			connection.send(new CardGameMessage(CardGameMessage.PLAYER_LIST,
+					-1, clientNames.clone()));
+		} catch (Exception ex) {
+			println("Error in sending a message to the spectator at "
+					+ connection.getRemoteAddress());
+			if (!server.silentMode) ex.printStackTrace();
+		}
+		spectatorJoined(connection);
+		return true;
+	}
+
+	/**
+	 * Removes a spectator from the table.
+	 *
+	 * @param connection
+	 *            the connection of the spectator
+	 * @return true if the connection was watching this table
+	 */
+	public synchronized boolean removeSpectator(ClientConnection connection) {
+		if (!spectators.remove(connection)) {
+			return false;
+		}
+		println("The spectator at " + connection.getRemoteAddress()
+				+ " stops watching the table.");
+		return true;
+	}
+
+	/**
+	 * Gives a held seat back to the client of the specified session, over its
+	 * new connection, and sends it the player list, its session token and
+	 * whatever it has missed (see sessionResumed()).
+	 *
+	 * @param connection
+	 *            the new connection of the client
+	 * @param request
+	 *            the resume request of the client
+	 * @return true if the seat has been resumed; false if the session has
+	 *         ended
+	 */
+	public synchronized boolean resumeSession(ClientConnection connection,
+			ResumeRequest request) {
+		int i = indexOfSession(request.getToken());
+		if (i < 0) {
+			return false;
+		}
+		// the old connection may not have been found lost yet
+		ClientConnection oldConnection = clientConnections[i];
+		if (oldConnection != null) {
+			oldConnection.close();
+		}
+		clientConnections[i] = connection;
+		clientAddresses[i] = connection.getRemoteAddress();
+		println(clientNames[i] + " (" + clientAddresses[i]
+				+ ") resumes the game.");
+
+		sendMessage(i, new CardGameMessage(CardGameMessage.PLAYER_LIST, i,
+				clientNames.clone()));
+		sendMessage(i, new CardGameMessage(CardGameMessage.SESSION, i,
+				request.getToken()));
+		sessionResumed(i, request);
+		broadcastMessage(new CardGameMessage(CardGameMessage.MSG, i,
+				clientNames[i] + " is back."));
+		return true;
+	}
+
+	/**
+	 * Frees the seat of a session whose grace period is over, unless the
+	 * client has resumed it.
+	 */
+	private void expireSession(String token) {
+		synchronized (this) {
+			int i = indexOfSession(token);
+			if (i < 0 || clientConnections[i] != null) {
+				return;
+			}
+			freeSeat(i);
+		}
+		// the table lock is released first, since the server lock is taken
+		// before the table lock
+		server.seatFreed(this);
+	}
+
+	/**
+	 * Frees a seat and tells the other players.
+	 */
+	private void freeSeat(int i) {
+		String name = clientNames[i];
+		if (sessionTokens[i] != null) {
+			server.sessionEnded(sessionTokens[i]);
+			sessionTokens[i] = null;
+		}
+		clientConnections[i] = null;
+		clientNames[i] = null;
+		clientReadyStates[i] = false;
+		numOfPlayers--;
+		gameInProgress = false;
+		gameAbandoned();
+
+		println(name + " (" + clientAddresses[i] + ") leaves the game.");
+
+		// broadcasts a message about the leaving of this player
+		broadcastMessage(new CardGameMessage(CardGameMessage.QUIT, i,
+				clientAddresses[i]));
+	}
+
+	/**
+	 * Parses the incoming message from the specified client.
+	 *
+	 * @param connection
+	 *            the connection to the specified client
+	 * @param message
+	 *            the message received from the specified client
+	 */
+	public synchronized void parseMessage(ClientConnection connection,
+			CardGameMessage message) {
+		// updates the playerID
+		int playerID = indexOf(connection);
+		if (playerID < 0) {
+			return;
+		}
+		message.setPlayerID(playerID);
+
+		// parses the message based on it type
+		switch (message.getType()) {
+		case CardGameMessage.JOIN:
+			// adds a player to the game
+			addPlayer(playerID, (String) message.getData());
+			break;
+		case CardGameMessage.READY:
+			// marks the specified player as ready for a new game
+			setReadyState(playerID);
+			break;
+		case CardGameMessage.MOVE:
+			moveReceived(playerID, message);
+			break;
+		case CardGameMessage.MSG:
+			if (!server.isQuiet()) {
+				println("Broadcasts a user message from "
+						+ connection.getRemoteAddress());
+			}
+			// broadcast the user message to all clients
+			broadcastUserMessage(playerID, (String) message.getData());
+			break;
+		default:
+			println("Wrong message type: " + message.getType());
+			// invalid message
+			break;
+		}
+	} // parseMessage
+
+	/**
+	 * Broadcasts the specified message to all clients at this table, players
+	 * first and then spectators. The message is shared by all the connections,
+	 * so it is encoded once per codec.
+	 *
+	 * @param message
+	 *            the specified message to be broadcast to all clients
+	 */
+	public synchronized void broadcastMessage(CardGameMessage message) {
+		long start = System.nanoTime();
+		SharedMessage shared = SharedMessage.of(message);
+		for (int i = 0; i < maxNumOfPlayers; i++) {
+			sendMessage(i, shared);
+		}
+		sendToSpectators(shared);
+		server.getMetrics().broadcast(shared.getType(), System.nanoTime() - start);
+	} // broadcastMessage
+
+	/**
+	 * Sends the specified message to all the spectators of this table. The
+	 * message is shared by all the connections, so it is encoded once per
+	 * codec.
+	 *
+	 * @param message
+	 *            the message to be sent, which must hold only public
+	 *            information
+	 */
+	public synchronized void sendToSpectators(CardGameMessage message) {
+		if (spectators.isEmpty()) {
+			return;
+		}
+		SharedMessage shared = SharedMessage.of(message);
+		for (ClientConnection connection : spectators) {
+			try {
+				connection.send(shared);
+			} catch (Exception ex) {
+				println("Error in sending a message to the spectator at "
+						+ connection.getRemoteAddress());
+				if (!server.silentMode) ex.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Sends the specified message to the client at the specified seat, if the
+	 * seat is taken.
+	 *
+	 * @param playerID
+	 *            the seat of the client
+	 * @param message
+	 *            the message to be sent
+	 */
+	public synchronized void sendMessage(int playerID, CardGameMessage message) {
+		if (clientConnections[playerID] != null) {
+			try {
+				clientConnections[playerID].send(message);
+			} catch (Exception ex) {
+				println("Error in sending a message to the client at "
+						+ clientConnections[playerID].getRemoteAddress());
+				if (!server.silentMode) ex.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * adds a player to the game.
+	 *
+	 * @param playerID
+	 *            the seat of the player who is joining the game
+	 * @param name
+	 *            the name of the player who is joining the game
+	 */
+	private void addPlayer(int playerID, String name) {
+		// updates the name of the new player
+		clientNames[playerID] = name;
+
+		println(name + " (" + clientConnections[playerID].getRemoteAddress()
+				+ ") joins the game.");
+
+		// gives the player a session, so it can resume its seat
+		if (sessionTokens[playerID] == null) {
+			sessionTokens[playerID] = server.newSession(this);
+			sendMessage(playerID, new CardGameMessage(
+					CardGameMessage.SESSION, playerID,
+					sessionTokens[playerID]));
+		}
+
+		// broadcasts a message about this player joining the game
+		broadcastMessage(new CardGameMessage(CardGameMessage.JOIN, playerID,
+				name));
+	} // addPlayer
+
+	/**
+	 * Marks the specified player as ready for a new game.
+	 *
+	 * @param playerID
+	 *            the seat of the player who becomes ready for a new game
+	 */
+	private void setReadyState(int playerID) {
+		clientReadyStates[playerID] = true;
+		println(clientNames[playerID] + " ("
+				+ clientConnections[playerID].getRemoteAddress()
+				+ " ) is ready for the next game.");
+		broadcastMessage(new CardGameMessage(CardGameMessage.READY, playerID,
+				null));
+
+		// checks if all players are ready
+		if (numOfPlayers == maxNumOfPlayers) {
+			for (int i = 0; i < maxNumOfPlayers; i++) {
+				if (clientReadyStates[i] == false) {
+					// returns if any of the players is not ready
+					return;
+				}
+			}
+
+			// resets the ready states of all the players for the next game
+			for (int i = 0; i < maxNumOfPlayers; i++) {
+				clientReadyStates[i] = false;
+			}
+
+			// creates a new deck, shuffles the deck, and starts a new game; a
+			// new deck is needed for each game, since an ObjectOutputStream
+			// would only send a reference to a deck it has already written
+			deck = server.createDeck();
+			deck.shuffle();
+			gameInProgress = true;
+			gameStarted(deck);
+			println("All players are ready. Game starts.");
+			for (int i = 0; i < maxNumOfPlayers; i++) {
+				sendMessage(i, startMessage(i, deck));
+			}
+			CardGameMessage spectatorStart = spectatorStartMessage(deck);
+			if (spectatorStart != null) {
+				sendToSpectators(spectatorStart);
+			}
+		}
+	} // setReadyState
+
+	/**
+	 * Called when all players are ready, with the shuffled deck of the new game,
+	 * before it is broadcast. Overrides this method to keep the state of the
+	 * game at the table.
+	 *
+	 * @param deck
+	 *            the deck of the new game
+	 */
+	protected void gameStarted(Deck deck) {
+	}
+
+	/**
+	 * Called when a seat is freed, which ends the game being played at this
+	 * table, if any; the players left must all be ready again before the next
+	 * game starts. Overrides this method to drop the state of the game kept at
+	 * the table.
+	 */
+	protected void gameAbandoned() {
+	}
+
+	/**
+	 * Returns the START message for the specified seat. By default every seat
+	 * gets the whole deck; overrides this method to deal the cards at the
+	 * server instead.
+	 *
+	 * @param playerID
+	 *            the seat of the player
+	 * @param deck
+	 *            the deck of the new game
+	 * @return the START message to be sent to the seat
+	 */
+	protected CardGameMessage startMessage(int playerID, Deck deck) {
+		return new CardGameMessage(CardGameMessage.START, -1, deck);
+	}
+
+	/**
+	 * Returns the START message for the spectators. By default it is null, and
+	 * spectators are not told about the start of a game, since the deck shows
+	 * the cards of every player; overrides this method to send them a public
+	 * form of the start.
+	 *
+	 * @param deck
+	 *            the deck of the new game
+	 * @return the START message to be sent to the spectators, or null
+	 */
+	protected CardGameMessage spectatorStartMessage(Deck deck) {
+		return null;
+	}
+
+	/**
+	 * Called when a spectator has started watching this table, after it has
+	 * been sent the player list. Overrides this method to send the spectator
+	 * the public state of the current game.
+	 *
+	 * @param connection
+	 *            the connection of the spectator
+	 */
+	protected void spectatorJoined(ClientConnection connection) {
+	}
+
+	/**
+	 * Called when a client has resumed its seat, after it has been sent the
+	 * player list and its session token. Overrides this method to send the
+	 * client what it has missed of the current game.
+	 *
+	 * @param playerID
+	 *            the seat of the player
+	 * @param request
+	 *            the resume request of the client
+	 */
+	protected void sessionResumed(int playerID, ResumeRequest request) {
+	}
+
+	/**
+	 * Called with a MOVE message from the specified player. By default the
+	 * message is broadcast to all clients as it is; overrides this method to
+	 * check the move first.
+	 *
+	 * @param playerID
+	 *            the seat of the player who made the move
+	 * @param message
+	 *            the MOVE message
+	 */
+	protected void moveReceived(int playerID, CardGameMessage message) {
+		if (!server.isQuiet()) {
+			println("Broadcasts a \"MOVE\" message from "
+					+ clientConnections[playerID].getRemoteAddress());
+		}
+		// broadcast the MOVE message to all clients
+		broadcastMessage(message);
+	}
+
+	private void broadcastUserMessage(int playerID, String msg) {
+		String longMsg = clientNames[playerID] + " ("
+				+ clientConnections[playerID].getRemoteAddress() + "): " + msg;
+		broadcastMessage(new CardGameMessage(CardGameMessage.MSG, playerID,
+				longMsg));
+	}
+
+	/**
+	 * Returns the seat of the specified connection.
+	 */
+	private int indexOf(ClientConnection connection) {
+		for (int i = 0; i < maxNumOfPlayers; i++) {
+			if (clientConnections[i] == connection) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the seat of the specified session.
+	 */
+	private int indexOfSession(String token) {
+		for (int i = 0; i < maxNumOfPlayers; i++) {
+			if (token.equals(sessionTokens[i])) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Prints the specified message to the console of the server, prefixed with
+	 * the ID of this table.
+	 */
+	protected void println(String msg) {
+		server.println("[Table " + tableID + "] " + msg);
+	}
+}
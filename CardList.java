@@ -2,22 +2,30 @@ import java.io.Serializable;
 import java.util.ArrayList;
 
 /**
- * This class is used to represent a list of cards.
+ * This class is used to represent a list of cards. Besides the ordered list,
+ * it keeps a CardSet mask of the cards it holds so that membership tests and
+ * bulk removals do not need to scan the list. A card list may hold several
+ * copies of a card, which the mask keeps until the last copy is removed; null
+ * cards are never stored.
  * 
  * @author Kenneth Wong
  */
 public class CardList implements Serializable {
 	private static final long serialVersionUID = -3711761437629470849L;
 	private ArrayList<Card> cards = new ArrayList<Card>();
+	private long mask = 0L;
 
 	/**
-	 * Appends the specified card to the end of this list.
+	 * Appends the specified card to the end of this list. A null card is
+	 * ignored.
 	 * 
 	 * @param card the card to be appended to this list
 	 */
 	public void addCard(Card card) {
 		if (card != null) {
 			cards.add(card);
+			mask |= CardSet.bitOf(card);
+			cardsChanged();
 		}
 	}
 
@@ -46,7 +54,10 @@ public class CardList implements Serializable {
 	 */
 	public Card removeCard(int i) {
 		if (i >= 0 && i < cards.size()) {
-			return cards.remove(i);
+			Card card = cards.remove(i);
+			unmark(card);
+			cardsChanged();
+			return card;
 		} else {
 			return null;
 		}
@@ -62,7 +73,30 @@ public class CardList implements Serializable {
 	 * @return true if this list contained the specified card; otherwise false
 	 */
 	public boolean removeCard(Card card) {
-		return cards.remove(card);
+		if (!contains(card)) {
+			return false;
+		}
+		cards.remove(card);
+		unmark(card);
+		cardsChanged();
+		return true;
+	}
+
+	/**
+	 * Removes all the cards of the specified CardSet mask from this list in a
+	 * single pass. The order of the remaining cards is kept.
+	 * 
+	 * @param cardMask the mask of the cards to be removed from this list
+	 * @return true if this list changed as a result of the call
+	 */
+	public boolean removeCards(long cardMask) {
+		if ((mask & cardMask) == 0) {
+			return false;
+		}
+		mask &= ~cardMask;
+		cards.removeIf(card -> (cardMask & CardSet.bitOf(card)) != 0);
+		cardsChanged();
+		return true;
 	}
 
 	/**
@@ -70,20 +104,26 @@ public class CardList implements Serializable {
 	 */
 	public void removeAllCards() {
 		cards = new ArrayList<Card>();
+		mask = 0L;
+		cardsChanged();
 	}
 
 	/**
 	 * Replaces the card at the specified position in this list with the specified
-	 * card.
+	 * card. A null card is ignored, and the list remains unchanged.
 	 * 
 	 * @param i    the index of the card to be replaced
 	 * @param card the card to be stored at the specified position
 	 * @return the card previously stored at the specified position, or null if the
-	 *         index is invalid
+	 *         index is invalid or the card is null
 	 */
 	public Card setCard(int i, Card card) {
-		if (i >= 0 && i < cards.size()) {
-			return cards.set(i, card);
+		if (card != null && i >= 0 && i < cards.size()) {
+			Card previous = cards.set(i, card);
+			mask |= CardSet.bitOf(card);
+			unmark(previous);
+			cardsChanged();
+			return previous;
 		} else {
 			return null;
 		}
@@ -96,7 +136,54 @@ public class CardList implements Serializable {
 	 * @return true if this list contains the specified card; otherwise false
 	 */
 	public boolean contains(Card card) {
-		return cards.contains(card);
+		return card != null && (mask & CardSet.bitOf(card)) != 0;
+	}
+
+	/**
+	 * Clears the bit of a card removed from this list in the mask, unless
+	 * another copy of the card is still in the list.
+	 * 
+	 * @param card the card removed from this list
+	 */
+	private void unmark(Card card) {
+		for (int i = 0; i < cards.size(); i++) {
+			if (cards.get(i).equals(card)) {
+				return;
+			}
+		}
+		mask &= ~CardSet.bitOf(card);
+	}
+
+	/**
+	 * Swaps the cards at the specified positions in this list. The cards held by
+	 * the list, and so its mask, do not change.
+	 * 
+	 * @param i the index of one card to be swapped
+	 * @param j the index of the other card to be swapped
+	 */
+	public void swapCards(int i, int j) {
+		if (i >= 0 && i < cards.size() && j >= 0 && j < cards.size()) {
+			cards.set(i, cards.set(j, cards.get(i)));
+			cardsChanged();
+		}
+	}
+
+	/**
+	 * Returns the cards in this list as a CardSet mask.
+	 * 
+	 * @return the CardSet mask of the cards in this list
+	 */
+	public long getMask() {
+		return mask;
+	}
+
+	/**
+	 * Returns the cards in this list as a CardSet.
+	 * 
+	 * @return a CardSet holding the cards in this list
+	 */
+	public CardSet toCardSet() {
+		return new CardSet(mask);
 	}
 
 	/**
@@ -113,6 +200,15 @@ public class CardList implements Serializable {
 	 */
 	public void sort() {
 		cards.sort(null);
+		cardsChanged();
+	}
+
+	/**
+	 * Called after the cards in this list, or their order, have been changed by
+	 * any of the methods of this class. Does nothing by default; overrides this
+	 * method to invalidate what a subclass derives from the cards.
+	 */
+	protected void cardsChanged() {
 	}
 
 	/**
@@ -0,0 +1,257 @@
+import java.io.Serializable;
+
+/**
+ * This class is used to represent a set of cards as a 64-bit mask. Each of the
+ * 52 cards is mapped to one bit, so adding, removing and testing a card are
+ * single bit operations and the size of the set is a population count.
+ * <p>
+ * The bit of a card is (rank * 4 + suit), so iterating the set bits from low
+ * to high visits the cards in the same order as Card.compareTo().
+ *
+ * @author Kang Hyunwoo
+ */
+public class CardSet implements Serializable {
+	private static final long serialVersionUID = 1L;
+	/**
+	 * The number of cards in a standard pack.
+	 */
+	public static final int NUM_OF_CARDS = 52;
+	/**
+	 * The mask of a set holding all the 52 cards.
+	 */
+	public static final long ALL_CARDS = (1L << NUM_OF_CARDS) - 1;
+
+	private long mask;
+
+	/**
+	 * Creates and returns an empty card set.
+	 */
+	public CardSet() {
+		this.mask = 0L;
+	}
+
+	/**
+	 * Creates and returns a card set holding the cards of the specified mask.
+	 *
+	 * @param mask the mask of the cards in this set
+	 */
+	public CardSet(long mask) {
+		this.mask = mask & ALL_CARDS;
+	}
+
+	/**
+	 * Returns the bit index of the card with the specified suit and rank.
+	 *
+	 * @param suit an int value between 0 and 3 representing the suit of a card
+	 * @param rank an int value between 0 and 12 representing the rank of a card
+	 * @return the bit index of the card, between 0 and 51
+	 */
+	public static int indexOf(int suit, int rank) {
+		return rank * 4 + suit;
+	}
+
+	/**
+	 * Returns the bit index of the specified card.
+	 *
+	 * @param card the card whose bit index is returned
+	 * @return the bit index of the card, between 0 and 51
+	 */
+	public static int indexOf(Card card) {
+		return card.getRank() * 4 + card.getSuit();
+	}
+
+	/**
+	 * Returns the suit of the card at the specified bit index.
+	 *
+	 * @param index the bit index of a card
+	 * @return the suit of the card
+	 */
+	public static int suitOf(int index) {
+		return index & 3;
+	}
+
+	/**
+	 * Returns the rank of the card at the specified bit index.
+	 *
+	 * @param index the bit index of a card
+	 * @return the rank of the card
+	 */
+	public static int rankOf(int index) {
+		return index >>> 2;
+	}
+
+	/**
+	 * Returns the mask with only the bit of the specified card set.
+	 *
+	 * @param card the card whose bit is returned
+	 * @return the mask of the card
+	 */
+	public static long bitOf(Card card) {
+		return 1L << indexOf(card);
+	}
+
+	/**
+	 * Returns the mask of the cards in this set.
+	 *
+	 * @return the mask of the cards in this set
+	 */
+	public long getMask() {
+		return mask;
+	}
+
+	/**
+	 * Adds the specified card to this set.
+	 *
+	 * @param card the card to be added
+	 * @return true if this set did not already contain the card
+	 */
+	public boolean add(Card card) {
+		long bit = bitOf(card);
+		boolean added = (mask & bit) == 0;
+		mask |= bit;
+		return added;
+	}
+
+	/**
+	 * Removes the specified card from this set.
+	 *
+	 * @param card the card to be removed
+	 * @return true if this set contained the card
+	 */
+	public boolean remove(Card card) {
+		long bit = bitOf(card);
+		boolean removed = (mask & bit) != 0;
+		mask &= ~bit;
+		return removed;
+	}
+
+	/**
+	 * Returns true if this set contains the specified card.
+	 *
+	 * @param card the card whose presence is to be tested
+	 * @return true if this set contains the card; otherwise false
+	 */
+	public boolean contains(Card card) {
+		return (mask & bitOf(card)) != 0;
+	}
+
+	/**
+	 * Adds all the cards of the specified mask to this set.
+	 *
+	 * @param cards the mask of the cards to be added
+	 */
+	public void addAll(long cards) {
+		mask |= cards & ALL_CARDS;
+	}
+
+	/**
+	 * Removes all the cards of the specified mask from this set.
+	 *
+	 * @param cards the mask of the cards to be removed
+	 */
+	public void removeAll(long cards) {
+		mask &= ~cards;
+	}
+
+	/**
+	 * Returns true if this set contains all the cards of the specified mask.
+	 *
+	 * @param cards the mask of the cards to be tested
+	 * @return true if this set contains all the cards; otherwise false
+	 */
+	public boolean containsAll(long cards) {
+		return (mask & cards) == cards;
+	}
+
+	/**
+	 * Removes all cards from this set.
+	 */
+	public void clear() {
+		mask = 0L;
+	}
+
+	/**
+	 * Returns the number of cards in this set.
+	 *
+	 * @return the number of cards in this set
+	 */
+	public int size() {
+		return Long.bitCount(mask);
+	}
+
+	/**
+	 * Returns true if this set contains no cards.
+	 *
+	 * @return true if this set contains no cards; otherwise false
+	 */
+	public boolean isEmpty() {
+		return mask == 0L;
+	}
+
+	/**
+	 * Returns the bit index of the first card in this set at or after the
+	 * specified index. Cards are visited in ascending order with
+	 * <code>for (int i = set.nextIndex(0); i >= 0; i = set.nextIndex(i + 1))</code>.
+	 *
+	 * @param from the bit index to start from
+	 * @return the bit index of the next card, or -1 if there is no such card
+	 */
+	public int nextIndex(int from) {
+		return nextIndex(mask, from);
+	}
+
+	/**
+	 * Returns the bit index of the first card of the specified mask at or after
+	 * the specified index.
+	 *
+	 * @param cards the mask of the cards
+	 * @param from  the bit index to start from
+	 * @return the bit index of the next card, or -1 if there is no such card
+	 */
+	public static int nextIndex(long cards, int from) {
+		if (from >= NUM_OF_CARDS) {
+			return -1;
+		}
+		long rest = cards & (-1L << from);
+		return rest == 0 ? -1 : Long.numberOfTrailingZeros(rest);
+	}
+
+	/**
+	 * Indicates whether the specified object is a card set with the same cards.
+	 *
+	 * @param obj the reference object with which to compare
+	 * @return true if the object is a card set with the same cards; otherwise
+	 *         false
+	 */
+	public boolean equals(Object obj) {
+		return (obj instanceof CardSet) && ((CardSet) obj).mask == mask;
+	}
+
+	/**
+	 * Returns a hash code value for the card set.
+	 *
+	 * @return a hash code value for the card set
+	 */
+	public int hashCode() {
+		return Long.hashCode(mask);
+	}
+
+	/**
+	 * Returns a string representation of the cards in the set.
+	 *
+	 * @return a string representation of the cards in the set
+	 */
+	public String toString() {
+		if (mask == 0L) {
+			return "[Empty]";
+		}
+		String string = "";
+		for (int i = nextIndex(0); i >= 0; i = nextIndex(i + 1)) {
+			if (string.length() > 0) {
+				string = string + " ";
+			}
+			string = string + "[" + Card.valueOf(suitOf(i), rankOf(i)) + "]";
+		}
+		return string;
+	}
+}
@@ -0,0 +1,288 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This class is a client connection over a non-blocking SocketChannel,
+ * speaking the framed protocol (see FramedProtocol). Reads and writes happen
+ * on the thread of its NioEventLoop; send() may be called from any thread and
+ * only adds the message to the SendQueue of the connection. The loop encodes
+ * the queued messages one frame at a time and writes them as soon as the
+ * socket accepts them.
+ *
+ * @author Kang Hyunwoo
+ */
+public class ChannelConnection implements ClientConnection {
+	private static final int READ_BUFFER_SIZE = 4096;
+
+	private final SocketChannel channel;
+	private final NioEventLoop loop;
+	private final ClientConnection.Handler handler;
+	private final String remoteAddress;
+	private final SendQueue queue;
+	private final AtomicBoolean flushScheduled = new AtomicBoolean();
+	private final Runnable flushTask = this::flush;
+	private SelectionKey key;
+	private ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+	// the frame being written and its entry in the queue, used by the loop only
+	private ByteBuffer pendingFrame;
+	private SendQueue.Entry pendingEntry;
+	// the codec named in the handshake, or null until the handshake is read
+	private volatile MessageCodec codec;
+	private volatile boolean closing;
+	private boolean closed;
+
+	/**
+	 * Creates a connection. It is used by NioEventLoop when a channel is
+	 * registered.
+	 *
+	 * @param channel the channel of the client, in non-blocking mode
+	 * @param loop    the event loop serving the channel
+	 * @param handler the handler receiving the events of the connection
+	 * @param queue   the queue of the messages waiting to be written
+	 */
+	ChannelConnection(SocketChannel channel, NioEventLoop loop, ClientConnection.Handler handler, SendQueue queue) {
+		this.channel = channel;
+		this.loop = loop;
+		this.handler = handler;
+		this.queue = queue;
+		String address;
+		try {
+			address = String.valueOf(channel.getRemoteAddress());
+		} catch (IOException ex) {
+			address = "unknown";
+		}
+		this.remoteAddress = address;
+	}
+
+	void setKey(SelectionKey key) {
+		this.key = key;
+	}
+
+	/**
+	 * Queues the specified message to be written by the event loop. If the
+	 * queue overflows and its policy is to disconnect, the connection is
+	 * closed by the loop.
+	 *
+	 * @param message the message to be sent
+	 */
+	public void send(CardGameMessage message) {
+		if (closing || codec == null) {
+			return;
+		}
+		if (!queue.offer(message)) {
+			closing = true;
+			loop.execute(this::closeNow);
+			return;
+		}
+		scheduleFlush();
+	}
+
+	/**
+	 * Closes the connection once the queued messages have been written.
+	 */
+	public void close() {
+		closing = true;
+		scheduleFlush();
+	}
+
+	/**
+	 * Returns the address of the client.
+	 *
+	 * @return the remote address of the channel
+	 */
+	public String getRemoteAddress() {
+		return remoteAddress;
+	}
+
+	/**
+	 * Returns 0, since every frame is encoded on its own.
+	 *
+	 * @return 0
+	 */
+	public long getBytesSinceReset() {
+		return 0;
+	}
+
+	private void scheduleFlush() {
+		if (flushScheduled.compareAndSet(false, true)) {
+			loop.execute(flushTask);
+		}
+	}
+
+	/**
+	 * Writes as many queued frames as the socket accepts, and waits for the
+	 * socket to become writable if some are left.
+	 */
+	void flush() {
+		flushScheduled.set(false);
+		if (closed) {
+			return;
+		}
+		try {
+			while (pendingFrame != null || nextFrame()) {
+				channel.write(pendingFrame);
+				if (pendingFrame.hasRemaining()) {
+					key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+					return;
+				}
+				pendingFrame = null;
+				if (pendingEntry != null) {
+					queue.sent(pendingEntry);
+					pendingEntry = null;
+				}
+			}
+			key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+			if (closing) {
+				closeNow();
+			}
+		} catch (IOException ex) {
+			closeNow();
+		}
+	}
+
+	/**
+	 * Takes the next message from the queue and encodes it as the pending
+	 * frame. A shared message is encoded only by the first connection which
+	 * sends it with the codec; the others write the same bytes. A message
+	 * which cannot be encoded is skipped.
+	 *
+	 * @return true if there is a frame to write
+	 */
+	private boolean nextFrame() {
+		while ((pendingEntry = queue.poll()) != null) {
+			try {
+				CardGameMessage message = pendingEntry.getMessage();
+				if (message instanceof SharedMessage) {
+					pendingFrame = ((SharedMessage) message).frameFor(codec, queue);
+				} else {
+					long start = System.nanoTime();
+					pendingFrame = FramedProtocol.encodeFrame(codec, message);
+					queue.encoded(message, System.nanoTime() - start);
+				}
+				return true;
+			} catch (IOException ex) {
+				// a message which does not fit the codec is not sent
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Reads what has arrived and hands every complete frame to the handler.
+	 */
+	void handleRead() {
+		try {
+			if (channel.read(readBuffer) < 0) {
+				closeNow();
+				return;
+			}
+			readBuffer.flip();
+			if (codec == null && !readHandshake()) {
+				readBuffer.compact();
+				return;
+			}
+			while (!closed && readBuffer.remaining() >= FramedProtocol.HEADER_LENGTH) {
+				int length = readBuffer.getInt(readBuffer.position());
+				if (length < 0 || length > FramedProtocol.MAX_FRAME_LENGTH) {
+					throw new IOException("Bad frame length: " + length);
+				}
+				if (readBuffer.remaining() < FramedProtocol.HEADER_LENGTH + length) {
+					break;
+				}
+				int offset = readBuffer.position() + FramedProtocol.HEADER_LENGTH;
+				CardGameMessage message = codec.decode(readBuffer.array(), readBuffer.arrayOffset() + offset, length);
+				readBuffer.position(offset + length);
+				handler.messageReceived(this, message);
+			}
+			readBuffer.compact();
+			growReadBuffer();
+		} catch (IOException | RuntimeException ex) {
+			// a bad message from one client must not stop the event loop
+			closeNow();
+		}
+	}
+
+	/**
+	 * Reads the handshake if it has arrived, and answers it with the first
+	 * offered codec which the server supports.
+	 *
+	 * @return true if the handshake has been read; false if more bytes are needed
+	 */
+	private boolean readHandshake() throws IOException {
+		if (closing) {
+			// no codec was agreed; the rest is ignored until the connection closes
+			readBuffer.position(readBuffer.limit());
+			return false;
+		}
+		int start = readBuffer.position();
+		if (readBuffer.remaining() < FramedProtocol.HANDSHAKE_LENGTH) {
+			return false;
+		}
+		if (readBuffer.getInt(start) != FramedProtocol.MAGIC) {
+			throw new IOException("Bad handshake");
+		}
+		int numOfCodecs = readBuffer.get(start + 4) & 0xFF;
+		if (readBuffer.remaining() < FramedProtocol.HANDSHAKE_LENGTH + numOfCodecs) {
+			return false;
+		}
+		MessageCodec chosen = null;
+		for (int i = 0; i < numOfCodecs && chosen == null; i++) {
+			chosen = FramedProtocol.codecOf(readBuffer.get(start + FramedProtocol.HANDSHAKE_LENGTH + i) & 0xFF);
+		}
+		readBuffer.position(start + FramedProtocol.HANDSHAKE_LENGTH + numOfCodecs);
+
+		// the answer is written before any message of the queue
+		pendingFrame = FramedProtocol.encodeHandshakeAnswer(chosen);
+		if (chosen == null) {
+			close();
+			return false;
+		}
+		codec = chosen;
+		scheduleFlush();
+		handler.connectionOpened(this);
+		return true;
+	}
+
+	/**
+	 * Makes room for the frame at the start of the read buffer if it is larger
+	 * than the buffer.
+	 */
+	private void growReadBuffer() {
+		if (readBuffer.position() < FramedProtocol.HEADER_LENGTH || codec == null) {
+			return;
+		}
+		int needed = FramedProtocol.HEADER_LENGTH + readBuffer.getInt(0);
+		if (needed > readBuffer.capacity()) {
+			ByteBuffer larger = ByteBuffer.allocate(needed);
+			readBuffer.flip();
+			larger.put(readBuffer);
+			readBuffer = larger;
+		}
+	}
+
+	/**
+	 * Closes the channel at once, dropping the queued messages.
+	 */
+	void closeNow() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		closing = true;
+		queue.clear();
+		pendingFrame = null;
+		pendingEntry = null;
+		if (key != null) {
+			key.cancel();
+		}
+		try {
+			channel.close();
+		} catch (IOException ex) {
+			// the channel is closed anyway
+		}
+		handler.connectionClosed(this);
+	}
+}
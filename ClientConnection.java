@@ -0,0 +1,70 @@
+import java.io.IOException;
+
+/**
+ * An interface for a connection between the card game server and one client,
+ * so the server can serve clients over blocking sockets or over non-blocking
+ * channels with the same game logic.
+ *
+ * @author Kang Hyunwoo
+ */
+public interface ClientConnection {
+	/**
+	 * Sends the specified message to the client. A non-blocking connection may
+	 * only queue the message and write it later.
+	 *
+	 * @param message the message to be sent
+	 * @throws IOException if the message cannot be sent
+	 */
+	public void send(CardGameMessage message) throws IOException;
+
+	/**
+	 * Closes the connection once the messages already sent have been written.
+	 */
+	public void close();
+
+	/**
+	 * Returns the address of the client.
+	 *
+	 * @return a string representation of the IP address and TCP port of the
+	 *         client
+	 */
+	public String getRemoteAddress();
+
+	/**
+	 * Returns the number of bytes sent since the connection last dropped the
+	 * serialization state it keeps for the objects it has sent, such as the
+	 * back-references of a single ObjectOutputStream. It estimates the size of
+	 * that state; it is not the memory the state takes.
+	 *
+	 * @return the bytes sent since the last reset, or 0 if nothing is kept
+	 *         between messages
+	 */
+	public long getBytesSinceReset();
+
+	/**
+	 * An interface for receiving the events of connections.
+	 */
+	public interface Handler {
+		/**
+		 * Called when a connection is ready to exchange messages.
+		 *
+		 * @param connection the new connection
+		 */
+		public void connectionOpened(ClientConnection connection);
+
+		/**
+		 * Called when a message has been received.
+		 *
+		 * @param connection the connection which received the message
+		 * @param message    the message received
+		 */
+		public void messageReceived(ClientConnection connection, CardGameMessage message);
+
+		/**
+		 * Called when a connection has been closed or lost.
+		 *
+		 * @param connection the connection being closed
+		 */
+		public void connectionClosed(ClientConnection connection);
+	}
+}
@@ -0,0 +1,146 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class measures how many blocking connections a CardGameServer holds and
+ * what each one costs, with platform threads and with virtual threads. For
+ * each model it opens the specified number of clients speaking the original
+ * ObjectStream protocol, then a storm of extra clients which the full server
+ * rejects, and reports the time taken, the live threads and the memory used
+ * per connection.
+ * <p>
+ * The clients run in the same JVM without threads of their own, so the memory
+ * figures include their sockets and streams as well as the server side.
+ *
+ * @author Kang Hyunwoo
+ */
+public class ConnectionBenchmark {
+	private static final PrintStream console = System.out;
+
+	/**
+	 * main() method for running the benchmark.
+	 *
+	 * @param args the number of connections (default 2000), the number of
+	 *             rejected connections (default: the same) and the thread model:
+	 *             "platform", "virtual" or "both" (default)
+	 */
+	public static void main(String[] args) throws Exception {
+		int numOfConnections = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		int numOfRejected = args.length > 1 ? Integer.parseInt(args[1]) : numOfConnections;
+		String model = args.length > 2 ? args[2] : "both";
+
+		// the server logs every connection; only the results are printed
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+		if (!model.equals("virtual")) {
+			run(false, numOfConnections, numOfRejected);
+		}
+		if (!model.equals("platform")) {
+			if (!HandlerThreads.isVirtualAvailable()) {
+				console.println("virtual threads: not available before Java 21");
+			} else {
+				run(true, numOfConnections, numOfRejected);
+			}
+		}
+	}
+
+	private static void run(boolean virtual, int numOfConnections, int numOfRejected) throws Exception {
+		int maxNumOfTables = (numOfConnections + 3) / 4;
+		CardGameServer server = new CardGameServer("Benchmark", 4, maxNumOfTables);
+		server.setVirtualThreads(virtual);
+		// extra clients are turned away instead of waiting in the lobby
+		server.setMaxNumOfWaiting(0);
+		Thread acceptor = new Thread(() -> server.start(0), "acceptor");
+		acceptor.start();
+		while (server.getPort() < 0) {
+			Thread.sleep(10);
+		}
+		int port = server.getPort();
+
+		long heapBefore = usedHeap();
+		long rssBefore = residentSetSize();
+		int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+
+		List<Socket> clients = new ArrayList<Socket>(numOfConnections);
+		long start = System.nanoTime();
+		for (int i = 0; i < numOfConnections; i++) {
+			clients.add(connect(port));
+		}
+		double connectMillis = (System.nanoTime() - start) / 1e6;
+		int threadsConnected = ManagementFactory.getThreadMXBean().getThreadCount();
+		long heapConnected = usedHeap();
+		long rssConnected = residentSetSize();
+
+		// every extra client is rejected with a FULL message
+		start = System.nanoTime();
+		List<Socket> rejected = new ArrayList<Socket>(numOfRejected);
+		for (int i = 0; i < numOfRejected; i++) {
+			rejected.add(connect(port));
+		}
+		double rejectMillis = (System.nanoTime() - start) / 1e6;
+		int threadsRejected = ManagementFactory.getThreadMXBean().getThreadCount();
+		for (Socket socket : rejected) {
+			socket.close();
+		}
+
+		start = System.nanoTime();
+		boolean stopped = server.stop(10000);
+		double stopMillis = (System.nanoTime() - start) / 1e6;
+		for (Socket socket : clients) {
+			socket.close();
+		}
+		acceptor.join();
+
+		console.println((virtual ? "virtual" : "platform") + " threads:");
+		console.println(String.format("  %d connections in %.0f ms, %d live threads (%d before)",
+				numOfConnections, connectMillis, threadsConnected, threadsBefore));
+		console.println(String.format("  heap %.1f KB/connection, resident %.1f KB/connection",
+				(heapConnected - heapBefore) / 1024.0 / numOfConnections,
+				(rssConnected - rssBefore) / 1024.0 / numOfConnections));
+		console.println(String.format("  %d rejected in %.0f ms, %d live threads right after",
+				numOfRejected, rejectMillis, threadsRejected));
+		console.println(String.format("  stopped %s in %.0f ms", stopped ? "cleanly" : "with threads left", stopMillis));
+	}
+
+	/**
+	 * Opens a client connection and waits for the first message of the server.
+	 */
+	private static Socket connect(int port) throws Exception {
+		Socket socket = new Socket("127.0.0.1", port);
+		new ObjectOutputStream(socket.getOutputStream()).flush();
+		new ObjectInputStream(socket.getInputStream()).readObject();
+		return socket;
+	}
+
+	private static long usedHeap() {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * Returns the resident set size of the process on Linux, or 0 elsewhere.
+	 */
+	private static long residentSetSize() {
+		try (BufferedReader reader = new BufferedReader(new FileReader("/proc/self/status"))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith("VmRSS:")) {
+					return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+				}
+			}
+		} catch (Exception ex) {
+			// not on Linux
+		}
+		return 0;
+	}
+}
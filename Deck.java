@@ -1,3 +1,7 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
 /**
  * This class is used to represent a deck of cards in general card games.
  * 
@@ -20,21 +24,40 @@ public class Deck extends CardList {
 		removeAllCards();
 		for (int i = 0; i < 4; i++) {
 			for (int j = 0; j < 13; j++) {
-				Card card = new Card(i, j);
-				addCard(card);
+				addCard(Card.valueOf(i, j));
 			}
 		}
 	}
 
 	/**
-	 * Shuffles the deck of cards.
+	 * Shuffles the deck of cards, using the random number generator of the
+	 * calling thread.
 	 */
 	public void shuffle() {
-		for (int i = 0; i < this.size(); i++) {
-			int j = (int) (Math.random() * this.size());
+		shuffle(ThreadLocalRandom.current());
+	}
+
+	/**
+	 * Shuffles the deck of cards into an order given by the specified seed. The
+	 * same seed always gives the same order.
+	 * 
+	 * @param seed the seed of the shuffle
+	 */
+	public void shuffle(long seed) {
+		shuffle(new SplittableRandom(seed));
+	}
+
+	/**
+	 * Shuffles the deck of cards with the Fisher-Yates algorithm, so that every
+	 * order of the cards is equally likely.
+	 * 
+	 * @param random the random number generator to be used
+	 */
+	public void shuffle(RandomGenerator random) {
+		for (int i = this.size() - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
 			if (i != j) {
-				Card card = setCard(i, getCard(j));
-				setCard(j, card);
+				swapCards(i, j);
 			}
 		}
 	}
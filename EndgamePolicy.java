@@ -0,0 +1,73 @@
+import java.util.SplittableRandom;
+
+/**
+ * This class is a Big Two policy which plays the end of the game with an
+ * EndgameSolver. When few enough cards are left and the solver finds a forced
+ * win, it plays the winning move; otherwise it asks another policy.
+ * <p>
+ * The solver looks at all the hands, so this policy is meant for self-play and
+ * for measuring how much better endgame play can be.
+ *
+ * @author Kang Hyunwoo
+ */
+public class EndgamePolicy implements BigTwoPolicy {
+	private final BigTwoPolicy fallback;
+	private final ThreadLocal<EndgameSolver> solvers;
+
+	/**
+	 * Creates an endgame policy with the default threshold of the solver.
+	 *
+	 * @param fallback the policy used when the solver finds no forced win
+	 */
+	public EndgamePolicy(BigTwoPolicy fallback) {
+		this(fallback, EndgameSolver.DEFAULT_THRESHOLD, EndgameSolver.DEFAULT_NODE_LIMIT);
+	}
+
+	/**
+	 * Creates an endgame policy.
+	 *
+	 * @param fallback  the policy used when the solver finds no forced win
+	 * @param threshold the number of cards left at or below which the solver is
+	 *                  used
+	 * @param nodeLimit the maximum number of positions searched per move
+	 */
+	public EndgamePolicy(BigTwoPolicy fallback, int threshold, long nodeLimit) {
+		this(fallback, threshold, nodeLimit, null);
+	}
+
+	/**
+	 * Creates an endgame policy whose solvers share a transposition table, so
+	 * that the threads of a simulation reuse each other's results.
+	 *
+	 * @param fallback  the policy used when the solver finds no forced win
+	 * @param threshold the number of cards left at or below which the solver is
+	 *                  used
+	 * @param nodeLimit the maximum number of positions searched per move
+	 * @param table     the transposition table shared by all the solvers, or null
+	 */
+	public EndgamePolicy(BigTwoPolicy fallback, int threshold, long nodeLimit, TranspositionTable table) {
+		this.fallback = fallback;
+		this.solvers = ThreadLocal.withInitial(() -> {
+			EndgameSolver solver = new EndgameSolver(threshold, nodeLimit);
+			solver.setTranspositionTable(table);
+			return solver;
+		});
+	}
+
+	/**
+	 * Chooses the move of the current player.
+	 *
+	 * @param game      the game being played
+	 * @param generator a move generator
+	 * @param random    the random number generator of the calling thread
+	 * @return the CardSet mask of the chosen cards, or 0 to pass
+	 */
+	public long chooseMove(BigTwo game, MoveGenerator generator, SplittableRandom random) {
+		BigTwoState state = new BigTwoState(game);
+		EndgameSolver solver = solvers.get();
+		if (solver.canSolve(state) && solver.solve(state) && solver.getValue() == EndgameSolver.WIN) {
+			return solver.getBestMove();
+		}
+		return fallback.chooseMove(game, generator, random);
+	}
+}
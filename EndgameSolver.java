@@ -0,0 +1,308 @@
+import java.util.Arrays;
+
+/**
+ * This class is used to solve the end of a Big Two game exactly. With all the
+ * hands known, it searches every line of play to the end of the game with
+ * alpha-beta pruning, from the point of view of one player (the root player)
+ * against the other three playing together to stop him/her from winning. The
+ * answer is therefore whether the root player can force a win, and with which
+ * move.
+ * <p>
+ * Moves are ordered so that the search finds cutoffs early: a hand that
+ * empties the player's cards first, then hands with more cards, then weaker
+ * hands, and passing last. The search is only run when the total number of
+ * cards left is at most the threshold of the solver, and it gives up after a
+ * node limit.
+ * <p>
+ * A TranspositionTable can be attached to the solver, so that positions
+ * reached through different orders of moves are searched once. The table may
+ * be shared by solvers running in different threads, but a solver keeps its
+ * search stack between calls and must not be shared between threads.
+ *
+ * @author Kang Hyunwoo
+ */
+public class EndgameSolver {
+	/**
+	 * The default number of cards left at or below which a position is solved.
+	 */
+	public static final int DEFAULT_THRESHOLD = 16;
+	/**
+	 * The default maximum number of positions searched per solve() call.
+	 */
+	public static final long DEFAULT_NODE_LIMIT = 2000000;
+	/**
+	 * Value of a position that the root player wins.
+	 */
+	public static final int WIN = 1;
+	/**
+	 * Value of a position that the root player loses.
+	 */
+	public static final int LOSS = -1;
+
+	private final int threshold;
+	private long nodeLimit;
+
+	private int rootPlayerIdx;
+	private long numOfNodes;
+	private boolean aborted;
+	private long bestMove;
+	private int value;
+
+	// search stack, one entry per ply
+	private BigTwoState[] states = new BigTwoState[0];
+	private MoveGenerator[] generators = new MoveGenerator[0];
+	private long[][] orderedMoves = new long[0][];
+	private int[][] moveScores = new int[0][];
+
+	private TranspositionTable table;
+	private final TranspositionTable.Entry entry = new TranspositionTable.Entry();
+
+	/**
+	 * Creates a solver with the default threshold and node limit.
+	 */
+	public EndgameSolver() {
+		this(DEFAULT_THRESHOLD, DEFAULT_NODE_LIMIT);
+	}
+
+	/**
+	 * Creates a solver.
+	 *
+	 * @param threshold the number of cards left at or below which a position is
+	 *                  solved
+	 * @param nodeLimit the maximum number of positions searched per call
+	 */
+	public EndgameSolver(int threshold, long nodeLimit) {
+		this.threshold = threshold;
+		this.nodeLimit = nodeLimit;
+	}
+
+	/**
+	 * Returns true if the specified position is small enough to be solved.
+	 *
+	 * @param state the position
+	 * @return true if the total number of cards left is at most the threshold
+	 */
+	public boolean canSolve(BigTwoState state) {
+		return !state.isGameOver() && state.getTotalCards() <= threshold;
+	}
+
+	/**
+	 * Solves the specified position for the player to move.
+	 *
+	 * @param state the position; it is not changed
+	 * @return true if the position was solved; false if it is too large or the
+	 *         node limit was reached
+	 */
+	public boolean solve(BigTwoState state) {
+		numOfNodes = 0;
+		aborted = false;
+		bestMove = 0L;
+		value = LOSS;
+		if (!canSolve(state)) {
+			return false;
+		}
+
+		rootPlayerIdx = state.getCurrentPlayerIdx();
+		if (table != null) {
+			table.newSearch();
+		}
+		// every card takes at most one round of 4 plies to be played
+		ensureDepth(state.getTotalCards() * BigTwoState.NUM_OF_PLAYERS + 1);
+		states[0].copyFrom(state);
+		value = search(0, LOSS, WIN, true);
+		return !aborted;
+	}
+
+	/**
+	 * Returns the best move found by the last solve() call.
+	 *
+	 * @return the CardSet mask of the best move of the root player, or 0 to pass
+	 */
+	public long getBestMove() {
+		return bestMove;
+	}
+
+	/**
+	 * Returns the value of the position solved by the last solve() call.
+	 *
+	 * @return WIN if the root player can force a win; otherwise LOSS
+	 */
+	public int getValue() {
+		return value;
+	}
+
+	/**
+	 * Returns the number of positions searched by the last solve() call.
+	 *
+	 * @return the number of positions searched
+	 */
+	public long getNumOfNodes() {
+		return numOfNodes;
+	}
+
+	/**
+	 * Sets the maximum number of positions searched per solve() call.
+	 *
+	 * @param nodeLimit the node limit
+	 */
+	public void setNodeLimit(long nodeLimit) {
+		this.nodeLimit = nodeLimit;
+	}
+
+	/**
+	 * Sets the transposition table used by the search.
+	 *
+	 * @param table the transposition table, or null to search without one
+	 */
+	public void setTranspositionTable(TranspositionTable table) {
+		this.table = table;
+	}
+
+	/**
+	 * Alpha-beta search of the position at the specified ply.
+	 */
+	private int search(int ply, int alpha, int beta, boolean isRoot) {
+		if (++numOfNodes > nodeLimit) {
+			aborted = true;
+			return LOSS;
+		}
+		BigTwoState state = states[ply];
+		BigTwoState child = states[ply + 1];
+		boolean maximizing = state.getCurrentPlayerIdx() == rootPlayerIdx;
+		int alphaOrig = alpha;
+		int betaOrig = beta;
+
+		long hash = 0L;
+		boolean hasTableMove = false;
+		long tableMove = 0L;
+		if (table != null) {
+			hash = TranspositionTable.hashOf(state, rootPlayerIdx);
+			if (table.probe(hash, entry)) {
+				hasTableMove = true;
+				tableMove = entry.getMove();
+				int stored = entry.getValue();
+				int bound = entry.getBound();
+				if (!isRoot && (bound == TranspositionTable.EXACT
+						|| (bound == TranspositionTable.LOWER && stored >= beta)
+						|| (bound == TranspositionTable.UPPER && stored <= alpha))) {
+					return stored;
+				}
+			}
+		}
+
+		int numOfMoves = orderMoves(ply, state);
+		long[] moves = orderedMoves[ply];
+		if (hasTableMove) {
+			// search the best move of an earlier visit first
+			for (int i = 1; i < numOfMoves; i++) {
+				if (moves[i] == tableMove) {
+					System.arraycopy(moves, 0, moves, 1, i);
+					moves[0] = tableMove;
+					break;
+				}
+			}
+		}
+
+		int best = maximizing ? LOSS - 1 : WIN + 1;
+		long bestLocalMove = 0L;
+		for (int i = 0; i < numOfMoves; i++) {
+			long move = moves[i];
+			child.copyFrom(state);
+			child.play(move);
+			int score;
+			if (child.isGameOver()) {
+				score = child.getWinnerIdx() == rootPlayerIdx ? WIN : LOSS;
+			} else {
+				score = search(ply + 1, alpha, beta, false);
+			}
+			if (aborted) {
+				return LOSS;
+			}
+
+			if (maximizing) {
+				if (score > best) {
+					best = score;
+					bestLocalMove = move;
+					if (isRoot) {
+						bestMove = move;
+					}
+				}
+				alpha = Math.max(alpha, best);
+			} else {
+				if (score < best) {
+					best = score;
+					bestLocalMove = move;
+				}
+				beta = Math.min(beta, best);
+			}
+			if (alpha >= beta) {
+				break;
+			}
+		}
+
+		if (table != null) {
+			int bound = best <= alphaOrig ? TranspositionTable.UPPER
+					: best >= betaOrig ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+			table.store(hash, bestLocalMove, best, bound, state.getTotalCards());
+		}
+		return best;
+	}
+
+	/**
+	 * Lists the moves of the position at the specified ply in search order.
+	 */
+	private int orderMoves(int ply, BigTwoState state) {
+		MoveGenerator generator = generators[ply];
+		int n = state.generateMoves(generator);
+		long[] moves = orderedMoves[ply];
+		if (moves.length < n + 1) {
+			moves = new long[Math.max(n + 1, moves.length * 2)];
+			orderedMoves[ply] = moves;
+			moveScores[ply] = new int[moves.length];
+		}
+
+		long hand = state.getHand(state.getCurrentPlayerIdx());
+		int[] scores = moveScores[ply];
+		for (int i = 0; i < n; i++) {
+			long move = generator.getMove(i);
+			int key = HandClassifier.keyOf(move);
+			int score = (HandClassifier.sizeOf(key) << 12) - (key & 0xFFF);
+			if (move == hand) {
+				score += 1 << 20;
+			}
+			// insertion sort, highest score first
+			int j = i;
+			while (j > 0 && scores[j - 1] < score) {
+				scores[j] = scores[j - 1];
+				moves[j] = moves[j - 1];
+				j--;
+			}
+			scores[j] = score;
+			moves[j] = move;
+		}
+		if (state.canPass()) {
+			moves[n++] = 0L;
+		}
+		return n;
+	}
+
+	/**
+	 * Makes sure the search stack has room for the specified number of plies.
+	 */
+	private void ensureDepth(int depth) {
+		int old = states.length;
+		if (old >= depth + 1) {
+			return;
+		}
+		states = Arrays.copyOf(states, depth + 1);
+		generators = Arrays.copyOf(generators, depth + 1);
+		orderedMoves = Arrays.copyOf(orderedMoves, depth + 1);
+		moveScores = Arrays.copyOf(moveScores, depth + 1);
+		for (int i = old; i <= depth; i++) {
+			states[i] = new BigTwoState();
+			generators[i] = new MoveGenerator();
+			orderedMoves[i] = new long[64];
+			moveScores[i] = new int[64];
+		}
+	}
+}
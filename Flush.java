@@ -23,6 +23,14 @@ public class Flush extends Hand{
 		return "Flush";
 	}
 	
+	/**
+	 * method for getting the type code of this hand
+	 * @return HandClassifier.FLUSH
+	 */
+	public int getTypeCode() {
+		return HandClassifier.FLUSH;
+	}
+	
 	/**
 	 * a method for checking whether the type is valid Flush
 	 * @return isFlush boolean value, true if the hand is Flush, false if the hand is not Flush
@@ -43,28 +51,5 @@ public class Flush extends Hand{
 			return isFlush;
 		}
 	}
-	
-	/**
-	 * a method for checking if this hand beats Straight
-	 * @param hand Hand object, specifically Flush hand 
-	 * @return boolean true if player's hand beats the latest hand, false if not.
-	 */
-	public boolean beats(Hand hand) {
-		if(this.getType() != hand.getType()) {
-			if(hand.getType()=="Straight") {
-				return true;
-			} else {
-				return false;
-			}
-		} 
-		else {//both flush
-			if(this.getTopCard().getSuit() == hand.getTopCard().getSuit()) {//both same suit
-				return this.getTopCard().getRank() > hand.getTopCard().getRank(); //return true if this's rank is higher, return false if hand's rank is higher
-			} 
-			else {
-				return this.getTopCard().getSuit() > hand.getTopCard().getRank();
-			}
-		}
-	}
 }
 
@@ -0,0 +1,163 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * This class holds the constants and helpers of the framed protocol of the
+ * card game server. A client opens the connection with a handshake: the magic
+ * number, the number of codecs it offers and their ids, most preferred first.
+ * The server answers with the magic number and the id of the first offered
+ * codec it supports (or NO_CODEC before closing the connection). Every message
+ * after that, in both directions, is a frame: a 4-byte big-endian length
+ * followed by the payload encoded by the agreed codec.
+ * <p>
+ * Unlike a single ObjectInputStream over the whole connection, frames can be
+ * read with non-blocking I/O, since the reader knows how many bytes a message
+ * needs before decoding it.
+ *
+ * @author Kang Hyunwoo
+ */
+public final class FramedProtocol {
+	/**
+	 * The magic number opening the handshake ("B2TF").
+	 */
+	public static final int MAGIC = 0x42325446;
+	/**
+	 * The number of bytes of the handshake before the codec ids, and of the
+	 * answer of the server.
+	 */
+	public static final int HANDSHAKE_LENGTH = 5;
+	/**
+	 * The codec id answered by the server when it supports none of the offered
+	 * codecs.
+	 */
+	public static final int NO_CODEC = 0;
+	/**
+	 * The number of bytes of the length prefix of a frame.
+	 */
+	public static final int HEADER_LENGTH = 4;
+	/**
+	 * The largest payload accepted in a frame.
+	 */
+	public static final int MAX_FRAME_LENGTH = 1 << 16;
+
+	private FramedProtocol() {
+	}
+
+	/**
+	 * Returns the codec with the specified id.
+	 *
+	 * @param id the id of a codec
+	 * @return the codec, or null if there is no codec with the id
+	 */
+	public static MessageCodec codecOf(int id) {
+		switch (id) {
+		case SerializedMessageCodec.ID:
+			return SerializedMessageCodec.INSTANCE;
+		case BinaryMessageCodec.ID:
+			return BinaryMessageCodec.INSTANCE;
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the handshake of a connection offering the specified codecs.
+	 *
+	 * @param out    the stream of the connection
+	 * @param codecs the codecs supported by the client, most preferred first
+	 * @throws IOException if the handshake cannot be written
+	 */
+	public static void writeHandshake(DataOutputStream out, MessageCodec... codecs) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeByte(codecs.length);
+		for (MessageCodec codec : codecs) {
+			out.writeByte(codec.getId());
+		}
+		out.flush();
+	}
+
+	/**
+	 * Reads the answer of the server to the handshake.
+	 *
+	 * @param in the stream of the connection
+	 * @return the codec chosen by the server
+	 * @throws IOException if the answer is not valid or the server supports none
+	 *                     of the offered codecs
+	 */
+	public static MessageCodec readHandshakeAnswer(DataInputStream in) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Bad handshake answer");
+		}
+		int id = in.readUnsignedByte();
+		MessageCodec codec = codecOf(id);
+		if (codec == null) {
+			throw new IOException("No common codec with the server (" + id + ")");
+		}
+		return codec;
+	}
+
+	/**
+	 * Creates the answer of the server to a handshake.
+	 *
+	 * @param codec the codec chosen by the server, or null if there is none
+	 * @return a buffer holding the answer, positioned at its first byte
+	 */
+	public static ByteBuffer encodeHandshakeAnswer(MessageCodec codec) {
+		ByteBuffer answer = ByteBuffer.allocate(HANDSHAKE_LENGTH);
+		answer.putInt(MAGIC).put((byte) (codec == null ? NO_CODEC : codec.getId())).flip();
+		return answer;
+	}
+
+	/**
+	 * Encodes the specified message into a frame ready to be written to a
+	 * channel.
+	 *
+	 * @param codec   the codec used by the connection
+	 * @param message the message to be sent
+	 * @return a buffer holding the frame, positioned at its first byte
+	 * @throws IOException if the message cannot be encoded
+	 */
+	public static ByteBuffer encodeFrame(MessageCodec codec, CardGameMessage message) throws IOException {
+		byte[] payload = codec.encode(message);
+		ByteBuffer frame = ByteBuffer.allocate(HEADER_LENGTH + payload.length);
+		frame.putInt(payload.length).put(payload).flip();
+		return frame;
+	}
+
+	/**
+	 * Writes the specified message as a frame.
+	 *
+	 * @param out     the stream of the connection
+	 * @param codec   the codec used by the connection
+	 * @param message the message to be sent
+	 * @throws IOException if the message cannot be written
+	 */
+	public static void writeFrame(DataOutputStream out, MessageCodec codec, CardGameMessage message)
+			throws IOException {
+		byte[] payload = codec.encode(message);
+		out.writeInt(payload.length);
+		out.write(payload);
+		out.flush();
+	}
+
+	/**
+	 * Reads a frame and decodes its message, blocking until the whole frame has
+	 * arrived.
+	 *
+	 * @param in    the stream of the connection
+	 * @param codec the codec used by the connection
+	 * @return the message of the frame
+	 * @throws IOException if the connection is closed or the frame is not valid
+	 */
+	public static CardGameMessage readFrame(DataInputStream in, MessageCodec codec) throws IOException {
+		int length = in.readInt();
+		if (length < 0 || length > MAX_FRAME_LENGTH) {
+			throw new IOException("Bad frame length: " + length);
+		}
+		byte[] payload = new byte[length];
+		in.readFully(payload);
+		return codec.decode(payload, 0, length);
+	}
+}
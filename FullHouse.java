@@ -25,6 +25,14 @@ public class FullHouse extends Hand{
 		return "FullHouse";
 	}
 	
+	/**
+	 * method for getting the type code of this hand
+	 * @return HandClassifier.FULL_HOUSE
+	 */
+	public int getTypeCode() {
+		return HandClassifier.FULL_HOUSE;
+	}
+	
 	/**
 	 * a method for checking whether the type is valid FullHouse.
 	 * @return true if the hand is FullHouse, return false if it is not.
@@ -52,6 +60,7 @@ public class FullHouse extends Hand{
 	 * @return topCard top card of the FullHouse hand.
 	 */
 	public Card getTopCard() {
+		this.refresh();
 		Card topCard;
 		if(this.getCard(0).getRank() == this.getCard(2).getRank()) {
 			topCard = this.getCard(2);
@@ -61,22 +70,4 @@ public class FullHouse extends Hand{
 		}
 		return topCard;
 	}
-	
-	/**
-	 * a method for checking if this hand beats Straight or Flush
-	 * @param hand Hand object, specifically FullHouse hand 
-	 * @return boolean true if player's hand beats the latest hand, false if not.
-	 */
-	public boolean beats(Hand hand) {
-		if(this.getType() != hand.getType()) {
-			if(hand.getType()=="Straight" || hand.getType()=="Flush") {
-				return true;
-			} else {
-				return false;
-			}
-		} 
-		else {//both fullhouse
-			return(this.getTopCard().getRank() > hand.getTopCard().getRank());
-		}
-	}
 }
@@ -0,0 +1,133 @@
+import java.io.Serializable;
+
+/**
+ * This class is used to model the state of a Big Two game as seen from one
+ * seat: the cards of the seat, the number of cards of every seat, the player
+ * to move, the last hand on the table and every card played so far. The server sends it to a client
+ * resuming its seat when the client cannot catch up from the moves it has
+ * missed, e.g. because it also missed the start of the game, and to a
+ * spectator who starts watching a game being played, as seen from seat -1,
+ * which holds no cards.
+ *
+ * @author Kang Hyunwoo
+ */
+public class GameSnapshot implements Serializable {
+	private static final long serialVersionUID = -6311809519442127163L;
+	private final int seat;
+	private final long cards;
+	private final int[] numOfCards;
+	private final int currentPlayerIdx;
+	private final int lastPlayerIdx;
+	private final long lastCards;
+	private final long playedCards;
+	private final int seq;
+
+	/**
+	 * Creates and returns an instance of the GameSnapshot class.
+	 *
+	 * @param seat             index of the seat receiving this snapshot, or -1
+	 *                         for a spectator
+	 * @param cards            CardSet mask of the cards of the seat
+	 * @param numOfCards       the number of cards of each seat
+	 * @param currentPlayerIdx index of the player to move, or -1 if the game
+	 *                         has ended
+	 * @param lastPlayerIdx    index of the player of the last hand on the
+	 *                         table, or -1 if no hand has been played
+	 * @param lastCards        CardSet mask of the last hand on the table, or 0
+	 * @param playedCards      CardSet mask of the cards played in the game
+	 * @param seq              the sequence number of the last event of the game
+	 */
+	public GameSnapshot(int seat, long cards, int[] numOfCards, int currentPlayerIdx, int lastPlayerIdx,
+			long lastCards, long playedCards, int seq) {
+		this.seat = seat;
+		this.cards = cards;
+		this.numOfCards = numOfCards;
+		this.currentPlayerIdx = currentPlayerIdx;
+		this.lastPlayerIdx = lastPlayerIdx;
+		this.lastCards = lastCards;
+		this.playedCards = playedCards;
+		this.seq = seq;
+	}
+
+	/**
+	 * Returns the seat receiving this snapshot.
+	 *
+	 * @return index of the seat, or -1 for a spectator
+	 */
+	public int getSeat() {
+		return seat;
+	}
+
+	/**
+	 * Returns the cards of the seat.
+	 *
+	 * @return CardSet mask of the cards of the seat
+	 */
+	public long getCards() {
+		return cards;
+	}
+
+	/**
+	 * Returns the number of cards of the specified seat.
+	 *
+	 * @param playerIdx index of a seat
+	 * @return the number of cards of the seat
+	 */
+	public int getNumOfCards(int playerIdx) {
+		return numOfCards[playerIdx];
+	}
+
+	/**
+	 * Returns the number of seats.
+	 *
+	 * @return the number of seats of the game
+	 */
+	public int getNumOfPlayers() {
+		return numOfCards.length;
+	}
+
+	/**
+	 * Returns the player to move.
+	 *
+	 * @return index of the current player, or -1 if the game has ended
+	 */
+	public int getCurrentPlayerIdx() {
+		return currentPlayerIdx;
+	}
+
+	/**
+	 * Returns the player of the last hand on the table.
+	 *
+	 * @return index of the player, or -1 if no hand has been played
+	 */
+	public int getLastPlayerIdx() {
+		return lastPlayerIdx;
+	}
+
+	/**
+	 * Returns the last hand on the table.
+	 *
+	 * @return CardSet mask of the last hand, or 0 if no hand has been played
+	 */
+	public long getLastCards() {
+		return lastCards;
+	}
+
+	/**
+	 * Returns the cards played in the game so far, the last hand included.
+	 *
+	 * @return CardSet mask of the cards played
+	 */
+	public long getPlayedCards() {
+		return playedCards;
+	}
+
+	/**
+	 * Returns the sequence number of the last event included in this snapshot.
+	 *
+	 * @return the sequence number
+	 */
+	public int getSeq() {
+		return seq;
+	}
+}
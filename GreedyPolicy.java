@@ -0,0 +1,39 @@
+import java.util.SplittableRandom;
+
+/**
+ * This class is a Big Two policy which always plays its weakest legal hand.
+ * When it can play any hand, it prefers the hand which gets rid of the most
+ * cards, and among those the weakest one.
+ *
+ * @author Kang Hyunwoo
+ */
+public class GreedyPolicy implements BigTwoPolicy {
+	/**
+	 * Chooses the weakest legal move of the current player.
+	 *
+	 * @param game      the game being played
+	 * @param generator a move generator
+	 * @param random    not used
+	 * @return the CardSet mask of the chosen cards, or 0 to pass
+	 */
+	public long chooseMove(BigTwo game, MoveGenerator generator, SplittableRandom random) {
+		int tableKey = game.getTableKey();
+		long cards = game.getPlayerList().get(game.getCurrentPlayerIdx()).getCardsInHand().getMask();
+		int numOfMoves = generator.generate(cards, tableKey, game.getRequiredCards());
+
+		long best = 0L;
+		int bestKey = Integer.MAX_VALUE;
+		int bestSize = 0;
+		for (int i = 0; i < numOfMoves; i++) {
+			long move = generator.getMove(i);
+			int key = HandClassifier.keyOf(move);
+			int size = HandClassifier.sizeOf(key);
+			if (size > bestSize || (size == bestSize && key < bestKey)) {
+				best = move;
+				bestKey = key;
+				bestSize = size;
+			}
+		}
+		return best;
+	}
+}
@@ -1,10 +1,15 @@
 /**
  * This class is a subclass of the CardList class and is used to model a hand of cards.
+ * The cards are kept sorted and the strength key is cached; both are brought up to date
+ * on the next call to getKey(), beats() or getTopCard() after the cards are changed.
  * @author Kang Hyunwoo
  */
 public abstract class Hand extends CardList{
 	private static final long serialVersionUID = 1L;
 	private CardGamePlayer player;
+	private int key;
+	//whether the cards have changed since the key was computed; not serialized, as the key is
+	private transient boolean stale;
 	
 	/**
 	 * a constructor for building a hand with the specified player and list of cards.
@@ -16,7 +21,28 @@ public abstract class Hand extends CardList{
 		for(int i=0; i<cards.size(); i++) {
 			this.addCard(cards.getCard(i));
 		}
-		this.sort();
+		this.stale = true;
+		this.refresh();
+	}
+	
+	/**
+	 * Sorts the cards and recomputes the strength key if the cards have changed since the key
+	 * was computed. Subclasses call it before reading the cards by position.
+	 */
+	protected final void refresh() {
+		if (stale) {
+			this.sort();
+			//cleared first, since the top card is read while the key is computed
+			stale = false;
+			key = this.isValid() ? HandClassifier.keyOf(this.getTypeCode(), CardSet.indexOf(this.getTopCard())) : -1;
+		}
+	}
+	
+	/**
+	 * Marks the key out of date whenever the cards of this hand change.
+	 */
+	protected void cardsChanged() {
+		stale = true;
 	}
 	
 	/**
@@ -33,7 +59,7 @@ public abstract class Hand extends CardList{
 	 * @return topCard the top card of the hand
 	 */
 	public Card getTopCard() {
-		this.sort();
+		this.refresh();
 		Card topCard = this.getCard(this.size() - 1);
 		return topCard;
 	}
@@ -44,13 +70,25 @@ public abstract class Hand extends CardList{
 	 * @return true if player's hand beats specified hand, false if not.
 	 */
 	public boolean beats(Hand hand) {
-		if (hand == null || !this.isValid() || !hand.isValid() || this.getType() != hand.getType()) {
-			return false;
-		}
-		
-		return (this.getTopCard().compareTo(hand.getTopCard()) > 0); //if this card is higher than opponent's card, return true
+		return hand != null && HandClassifier.beats(this.getKey(), hand.getKey());
 	}
 	
+	/**
+	 * Getter function for the strength key of this hand. Hands of the same size can be compared by their keys,
+	 * see HandClassifier.keyOf().
+	 * @return the strength key of this hand, or -1 if this is not a valid hand
+	 */
+	public int getKey() {
+		this.refresh();
+		return key;
+	}
+	
+	/**
+	 * a method for returning the type of this hand as one of the HandClassifier type codes.
+	 * @return the type code of the hand
+	 */
+	public abstract int getTypeCode();
+	
 	/**
 	 * a method for checking if this is a valid hand.
 	 * @return the type of the hand in String
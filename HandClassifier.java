@@ -0,0 +1,301 @@
+import java.util.Arrays;
+
+/**
+ * This class is used to classify a selection of cards into a Big Two hand
+ * without building any Hand object. The selection is given as a CardSet mask,
+ * and the result is a code holding both the type of the hand and the bit index
+ * of its top card.
+ * <p>
+ * The tables used for the classification are built once when the class is
+ * loaded: the Big Two order of every card, and the top rank of every 13-bit
+ * rank pattern that forms a straight.
+ *
+ * @author Kang Hyunwoo
+ */
+public class HandClassifier {
+	/**
+	 * Type code of a selection which is not a legal hand.
+	 */
+	public static final int INVALID = 0;
+	/**
+	 * Type code of a Single.
+	 */
+	public static final int SINGLE = 1;
+	/**
+	 * Type code of a Pair.
+	 */
+	public static final int PAIR = 2;
+	/**
+	 * Type code of a Triple.
+	 */
+	public static final int TRIPLE = 3;
+	/**
+	 * Type code of a Straight.
+	 */
+	public static final int STRAIGHT = 4;
+	/**
+	 * Type code of a Flush.
+	 */
+	public static final int FLUSH = 5;
+	/**
+	 * Type code of a FullHouse.
+	 */
+	public static final int FULL_HOUSE = 6;
+	/**
+	 * Type code of a Quad.
+	 */
+	public static final int QUAD = 7;
+	/**
+	 * Type code of a StraightFlush.
+	 */
+	public static final int STRAIGHT_FLUSH = 8;
+
+	// position of each rank in the Big Two order: 3 is the lowest, 2 the highest
+	private static final int[] BIG_TWO_RANK = { 11, 12, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10 };
+	// Big Two order (0 - 51) of the card at each CardSet bit index
+	private static final int[] BIG_TWO_ORDER = new int[CardSet.NUM_OF_CARDS];
+	// 13-bit rank pattern -> Big Two position of the top rank of a straight, or -1
+	private static final byte[] STRAIGHT_TOP = new byte[1 << 13];
+
+	static {
+		for (int i = 0; i < CardSet.NUM_OF_CARDS; i++) {
+			BIG_TWO_ORDER[i] = BIG_TWO_RANK[CardSet.rankOf(i)] * 4 + CardSet.suitOf(i);
+		}
+
+		Arrays.fill(STRAIGHT_TOP, (byte) -1);
+		// a straight is five consecutive ranks in the Big Two order, from 3-4-5-6-7
+		// up to J-Q-K-A-2, so that 2 and A only form a straight with K
+		for (int low = 0; low + 4 < 13; low++) {
+			int pattern = 0;
+			for (int pos = low; pos < low + 5; pos++) {
+				pattern |= 1 << rankAt(pos);
+			}
+			STRAIGHT_TOP[pattern] = (byte) (low + 4);
+		}
+	}
+
+	private HandClassifier() {
+	}
+
+	/**
+	 * Returns the rank which is at the specified position of the Big Two order.
+	 *
+	 * @param pos the position in the Big Two order, where 3 is 0 and 2 is 12
+	 * @return the rank at the position
+	 */
+	public static int rankAt(int pos) {
+		return (pos + 2) % 13;
+	}
+
+	/**
+	 * Returns the position of the specified rank in the Big Two order, where 3
+	 * is 0 and 2 is 12.
+	 *
+	 * @param rank an int value between 0 and 12 representing the rank of a card
+	 * @return the position of the rank in the Big Two order
+	 */
+	public static int bigTwoRank(int rank) {
+		return BIG_TWO_RANK[rank];
+	}
+
+	/**
+	 * Returns the position of the card at the specified CardSet bit index in the
+	 * Big Two order, where the Three of Diamonds is 0 and the Two of Spades is
+	 * 51.
+	 *
+	 * @param index the CardSet bit index of a card
+	 * @return the position of the card in the Big Two order
+	 */
+	public static int bigTwoOrder(int index) {
+		return BIG_TWO_ORDER[index];
+	}
+
+	/**
+	 * Classifies the specified selection of cards.
+	 *
+	 * @param cards the CardSet mask of the selected cards
+	 * @return a code holding the type of the hand and the bit index of its top
+	 *         card, or INVALID if the cards do not form a legal hand
+	 */
+	public static int classify(long cards) {
+		switch (Long.bitCount(cards)) {
+		case 1:
+			return code(SINGLE, Long.numberOfTrailingZeros(cards));
+		case 2:
+		case 3:
+			// all the cards must share the rank of the lowest one
+			int low = Long.numberOfTrailingZeros(cards);
+			long rankCards = 0xFL << (CardSet.rankOf(low) * 4);
+			if ((cards & ~rankCards) != 0) {
+				return INVALID;
+			}
+			return code(Long.bitCount(cards) == 2 ? PAIR : TRIPLE, 63 - Long.numberOfLeadingZeros(cards));
+		case 5:
+			return classifyFive(cards);
+		default:
+			return INVALID;
+		}
+	}
+
+	/**
+	 * Classifies a selection of five cards.
+	 */
+	private static int classifyFive(long cards) {
+		int rankBits = 0;
+		int suitBits = 0;
+		int top = -1;
+		for (long rest = cards; rest != 0; rest &= rest - 1) {
+			int i = Long.numberOfTrailingZeros(rest);
+			rankBits |= 1 << CardSet.rankOf(i);
+			suitBits |= 1 << CardSet.suitOf(i);
+			if (top < 0 || BIG_TWO_ORDER[i] > BIG_TWO_ORDER[top]) {
+				top = i;
+			}
+		}
+
+		int numOfRanks = Integer.bitCount(rankBits);
+		if (numOfRanks == 5) {
+			boolean isStraight = STRAIGHT_TOP[rankBits] >= 0;
+			boolean isFlush = Integer.bitCount(suitBits) == 1;
+			if (isStraight && isFlush) {
+				return code(STRAIGHT_FLUSH, top);
+			} else if (isFlush) {
+				return code(FLUSH, top);
+			} else if (isStraight) {
+				return code(STRAIGHT, top);
+			}
+		} else if (numOfRanks == 2) {
+			// either 4 + 1 or 3 + 2: the top card is the highest suit of the larger group
+			int rank = Integer.numberOfTrailingZeros(rankBits);
+			long group = (cards >>> (rank * 4)) & 0xF;
+			if (Long.bitCount(group) < 3) {
+				rank = 31 - Integer.numberOfLeadingZeros(rankBits);
+				group = (cards >>> (rank * 4)) & 0xF;
+			}
+			int topCard = rank * 4 + 63 - Long.numberOfLeadingZeros(group);
+			return code(Long.bitCount(group) == 4 ? QUAD : FULL_HOUSE, topCard);
+		}
+		return INVALID;
+	}
+
+	/**
+	 * Returns true if the specified five cards have consecutive ranks in the Big
+	 * Two order, regardless of their suits.
+	 *
+	 * @param cards the CardSet mask of the cards
+	 * @return true if the cards form a straight; otherwise false
+	 */
+	public static boolean isStraight(long cards) {
+		if (Long.bitCount(cards) != 5) {
+			return false;
+		}
+		int rankBits = 0;
+		for (long rest = cards; rest != 0; rest &= rest - 1) {
+			rankBits |= 1 << CardSet.rankOf(Long.numberOfTrailingZeros(rest));
+		}
+		return STRAIGHT_TOP[rankBits] >= 0;
+	}
+
+	/**
+	 * Returns the type of the hand from a code returned by classify().
+	 *
+	 * @param code the code returned by classify()
+	 * @return the type of the hand, or INVALID
+	 */
+	public static int typeOf(int code) {
+		return code >>> 8;
+	}
+
+	/**
+	 * Returns the CardSet bit index of the top card from a code returned by
+	 * classify().
+	 *
+	 * @param code the code returned by classify()
+	 * @return the bit index of the top card
+	 */
+	public static int topIndexOf(int code) {
+		return code & 0xFF;
+	}
+
+	/**
+	 * Returns the strength key of a hand with the specified type and top card.
+	 * The key holds the size class of the hand, the tier of its type and the
+	 * order of its top card, so a hand beats another one exactly when both have
+	 * the same size class and its key is larger (see beats()).
+	 *
+	 * @param type     the type of the hand
+	 * @param topIndex the CardSet bit index of the top card of the hand
+	 * @return the strength key of the hand, or -1 if the type is INVALID
+	 */
+	public static int keyOf(int type, int topIndex) {
+		int size;
+		int tier = 0;
+		int order = BIG_TWO_ORDER[topIndex];
+		switch (type) {
+		case SINGLE:
+			size = 1;
+			break;
+		case PAIR:
+			size = 2;
+			break;
+		case TRIPLE:
+			size = 3;
+			break;
+		case FLUSH:
+			// flushes are ranked by suit first, then by the rank of the top card
+			size = 5;
+			tier = type - STRAIGHT;
+			order = CardSet.suitOf(topIndex) * 13 + BIG_TWO_RANK[CardSet.rankOf(topIndex)];
+			break;
+		case STRAIGHT:
+		case FULL_HOUSE:
+		case QUAD:
+		case STRAIGHT_FLUSH:
+			size = 5;
+			tier = type - STRAIGHT;
+			break;
+		default:
+			return -1;
+		}
+		return (size << 12) | (tier << 6) | order;
+	}
+
+	/**
+	 * Returns the strength key of the hand formed by the specified cards.
+	 *
+	 * @param cards the CardSet mask of the cards
+	 * @return the strength key of the hand, or -1 if the cards do not form a
+	 *         legal hand
+	 */
+	public static int keyOf(long cards) {
+		int code = classify(cards);
+		return keyOf(typeOf(code), topIndexOf(code));
+	}
+
+	/**
+	 * Returns true if a hand with the first key beats a hand with the second
+	 * key.
+	 *
+	 * @param key      the strength key of the hand being played
+	 * @param otherKey the strength key of the hand to be beaten
+	 * @return true if both keys are valid, have the same size class and the first
+	 *         key is larger; otherwise false
+	 */
+	public static boolean beats(int key, int otherKey) {
+		return key >= 0 && otherKey >= 0 && (key >>> 12) == (otherKey >>> 12) && key > otherKey;
+	}
+
+	/**
+	 * Returns the number of cards of a hand from its strength key.
+	 *
+	 * @param key the strength key of a hand
+	 * @return the number of cards of the hand
+	 */
+	public static int sizeOf(int key) {
+		return key >>> 12;
+	}
+
+	private static int code(int type, int topIndex) {
+		return (type << 8) | topIndex;
+	}
+}
@@ -0,0 +1,113 @@
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class creates the threads which serve blocking connections, either as
+ * platform threads or as virtual threads. A blocked virtual thread only holds
+ * a small heap object instead of an OS thread and its stack, so a server can
+ * park one per connection by the tens of thousands.
+ * <p>
+ * Virtual threads need Java 21; they are looked up by reflection, so this
+ * class compiles and runs on older versions, where it falls back to platform
+ * threads.
+ *
+ * @author Kang Hyunwoo
+ */
+public final class HandlerThreads {
+	// Thread.ofVirtual(), or null before Java 21
+	private static final Method OF_VIRTUAL;
+	// Thread.Builder.name(String, long) and Thread.Builder.factory()
+	private static final Method BUILDER_NAME;
+	private static final Method BUILDER_FACTORY;
+	// Executors.newThreadPerTaskExecutor(ThreadFactory)
+	private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+	static {
+		Method ofVirtual = null;
+		Method builderName = null;
+		Method builderFactory = null;
+		Method newThreadPerTaskExecutor = null;
+		try {
+			ofVirtual = Thread.class.getMethod("ofVirtual");
+			Class<?> builder = Class.forName("java.lang.Thread$Builder");
+			builderName = builder.getMethod("name", String.class, long.class);
+			builderFactory = builder.getMethod("factory");
+			newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+		} catch (ReflectiveOperationException ex) {
+			ofVirtual = null;
+		}
+		OF_VIRTUAL = ofVirtual;
+		BUILDER_NAME = builderName;
+		BUILDER_FACTORY = builderFactory;
+		NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+	}
+
+	private HandlerThreads() {
+	}
+
+	/**
+	 * Returns true if this Java runtime has virtual threads.
+	 *
+	 * @return true if virtual threads can be created; otherwise false
+	 */
+	public static boolean isVirtualAvailable() {
+		return OF_VIRTUAL != null;
+	}
+
+	/**
+	 * Creates a factory of threads named prefix-0, prefix-1 and so on.
+	 *
+	 * @param virtual true for virtual threads, if available
+	 * @param prefix  the prefix of the names of the threads
+	 * @return the thread factory
+	 */
+	public static ThreadFactory newFactory(boolean virtual, String prefix) {
+		if (virtual && isVirtualAvailable()) {
+			try {
+				Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), prefix + "-", 0L);
+				return (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+			} catch (ReflectiveOperationException ex) {
+				// use platform threads below
+			}
+		}
+		AtomicInteger count = new AtomicInteger();
+		return r -> new Thread(r, prefix + "-" + count.getAndIncrement());
+	}
+
+	/**
+	 * Creates an executor which runs each task on a new thread.
+	 *
+	 * @param virtual true for virtual threads, if available
+	 * @param prefix  the prefix of the names of the threads
+	 * @return the executor
+	 */
+	public static ExecutorService newExecutor(boolean virtual, String prefix) {
+		ThreadFactory factory = newFactory(virtual, prefix);
+		if (virtual && isVirtualAvailable()) {
+			try {
+				return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, factory);
+			} catch (ReflectiveOperationException ex) {
+				// use platform threads below
+			}
+		}
+		// idle platform threads are kept for a while and reused
+		return Executors.newCachedThreadPool(factory);
+	}
+
+	/**
+	 * Starts the specified task on a new thread.
+	 *
+	 * @param virtual true for a virtual thread, if available
+	 * @param name    the name of the thread
+	 * @param task    the task to be run
+	 * @return the started thread
+	 */
+	public static Thread start(boolean virtual, String name, Runnable task) {
+		Thread thread = newFactory(virtual, name).newThread(task);
+		thread.start();
+		return thread;
+	}
+}
@@ -0,0 +1,342 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class runs delayed tasks on a hashed timing wheel: a ring of buckets,
+ * each holding the timeouts due in one tick, which a single ticker thread
+ * visits in turn. A timeout due more than one turn of the wheel away stays in
+ * its bucket and counts down the remaining turns.
+ * <p>
+ * Scheduling and cancelling are O(1) and take no lock: a new timeout and a
+ * cancelled one are handed to the ticker through lock-free queues, and the
+ * ticker links a timeout into its bucket or unlinks it from its list. So
+ * thousands of timers, e.g. a turn clock per table, cost one thread and a few
+ * objects each, and a timer which is cancelled and started again on every
+ * move costs no more than the move itself.
+ * <p>
+ * A task runs on the ticker thread, up to one tick after it is due, and must
+ * therefore be short; an exception thrown by a task is ignored.
+ *
+ * @author Kang Hyunwoo
+ */
+public class HashedTimerWheel {
+	private final long tickNanos;
+	private final Bucket[] wheel;
+	private final int mask;
+	private final Thread ticker;
+	// the timeouts scheduled and cancelled since the last tick
+	private final ConcurrentLinkedQueue<Timeout> scheduled = new ConcurrentLinkedQueue<Timeout>();
+	private final ConcurrentLinkedQueue<Timeout> cancelled = new ConcurrentLinkedQueue<Timeout>();
+	private final AtomicLong numOfPending = new AtomicLong();
+	private final long startNanos = System.nanoTime();
+	// the ticks which have passed, only used by the ticker
+	private long tick = 0;
+	private volatile boolean stopped = false;
+	// the tasks which had not run when the wheel stopped
+	private final List<Runnable> unprocessed = new ArrayList<Runnable>();
+
+	/**
+	 * Creates a wheel and starts its ticker thread, a daemon thread.
+	 *
+	 * @param name          the name of the ticker thread
+	 * @param tickMillis    the length of a tick, the precision of the timeouts,
+	 *                      in milliseconds
+	 * @param ticksPerWheel the number of buckets, rounded up to a power of two;
+	 *                      a timeout due within this many ticks is run on its
+	 *                      first visit
+	 */
+	public HashedTimerWheel(String name, long tickMillis, int ticksPerWheel) {
+		if (tickMillis < 1) {
+			throw new IllegalArgumentException("Bad tick: " + tickMillis);
+		}
+		if (ticksPerWheel < 1 || ticksPerWheel > 1 << 20) {
+			throw new IllegalArgumentException("Bad number of ticks per wheel: " + ticksPerWheel);
+		}
+		tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+		int numOfBuckets = 1;
+		while (numOfBuckets < ticksPerWheel) {
+			numOfBuckets <<= 1;
+		}
+		wheel = new Bucket[numOfBuckets];
+		for (int i = 0; i < wheel.length; i++) {
+			wheel[i] = new Bucket();
+		}
+		mask = wheel.length - 1;
+		ticker = new Thread(this::run, name);
+		ticker.setDaemon(true);
+		ticker.start();
+	}
+
+	/**
+	 * Schedules a task to run once after the specified delay.
+	 *
+	 * @param task        the task
+	 * @param delayMillis the delay in milliseconds
+	 * @return the timeout of the task, with which it can be cancelled
+	 * @throws IllegalStateException if the wheel has been stopped
+	 */
+	public Timeout schedule(Runnable task, long delayMillis) {
+		if (stopped) {
+			throw new IllegalStateException("The timer wheel has been stopped");
+		}
+		Timeout timeout = new Timeout(this, task,
+				System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis)));
+		numOfPending.incrementAndGet();
+		scheduled.add(timeout);
+		// the ticker may have collected the pending tasks before the timeout
+		// was added; then the timeout is taken back, unless it was collected
+		if (stopped && timeout.state.compareAndSet(Timeout.PENDING, Timeout.CANCELLED)) {
+			numOfPending.decrementAndGet();
+			throw new IllegalStateException("The timer wheel has been stopped");
+		}
+		return timeout;
+	}
+
+	/**
+	 * Returns the number of tasks scheduled which have neither run nor been
+	 * cancelled.
+	 *
+	 * @return the number of pending timeouts
+	 */
+	public long getNumOfPending() {
+		return numOfPending.get();
+	}
+
+	/**
+	 * Stops the ticker thread and waits for it to finish. The tasks which have
+	 * not run are returned instead, e.g. to be run at once by the caller;
+	 * none are returned to a task stopping its own wheel.
+	 *
+	 * @return the tasks which were neither run nor cancelled
+	 */
+	public List<Runnable> stop() {
+		stopped = true;
+		if (Thread.currentThread() == ticker) {
+			return new ArrayList<Runnable>();
+		}
+		ticker.interrupt();
+		boolean interrupted = false;
+		while (ticker.isAlive()) {
+			try {
+				ticker.join();
+			} catch (InterruptedException ex) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		return unprocessed;
+	}
+
+	/**
+	 * Runs the ticker: waits for each tick, and then links the new timeouts
+	 * into their buckets, unlinks the cancelled ones, and runs those due in
+	 * the bucket of the tick.
+	 */
+	private void run() {
+		while (!stopped) {
+			long deadline = startNanos + (tick + 1) * tickNanos;
+			long sleepNanos;
+			while ((sleepNanos = deadline - System.nanoTime()) > 0) {
+				try {
+					TimeUnit.NANOSECONDS.sleep(sleepNanos);
+				} catch (InterruptedException ex) {
+					if (stopped) {
+						break;
+					}
+				}
+			}
+			if (stopped) {
+				break;
+			}
+			transferScheduled();
+			removeCancelled();
+			wheel[(int) (tick & mask)].expire(deadline);
+			tick++;
+		}
+		// collects the tasks which will not run
+		transferScheduled();
+		removeCancelled();
+		for (Bucket bucket : wheel) {
+			bucket.drainTo(unprocessed);
+		}
+	}
+
+	/**
+	 * Links the timeouts scheduled since the last tick into their buckets.
+	 */
+	private void transferScheduled() {
+		Timeout timeout;
+		while ((timeout = scheduled.poll()) != null) {
+			if (timeout.state.get() != Timeout.PENDING) {
+				continue;
+			}
+			long due = (timeout.deadline - startNanos + tickNanos - 1) / tickNanos - 1;
+			// a timeout already due is run in the bucket of this tick
+			long dueTick = Math.max(due, tick);
+			timeout.remainingRounds = (dueTick - tick) / wheel.length;
+			wheel[(int) (dueTick & mask)].add(timeout);
+		}
+	}
+
+	/**
+	 * Unlinks the timeouts cancelled since the last tick from their buckets.
+	 */
+	private void removeCancelled() {
+		Timeout timeout;
+		while ((timeout = cancelled.poll()) != null) {
+			if (timeout.bucket != null) {
+				timeout.bucket.remove(timeout);
+			}
+		}
+	}
+
+	/**
+	 * A task scheduled on a wheel.
+	 */
+	public static final class Timeout {
+		private static final int PENDING = 0;
+		private static final int CANCELLED = 1;
+		private static final int EXPIRED = 2;
+
+		private final HashedTimerWheel wheel;
+		private final Runnable task;
+		private final long deadline;
+		private final AtomicInteger state = new AtomicInteger(PENDING);
+		// the turns of the wheel left before the timeout is due, and its place
+		// in its bucket; only used by the ticker
+		private long remainingRounds;
+		private Bucket bucket;
+		private Timeout next;
+		private Timeout prev;
+
+		private Timeout(HashedTimerWheel wheel, Runnable task, long deadline) {
+			this.wheel = wheel;
+			this.task = task;
+			this.deadline = deadline;
+		}
+
+		/**
+		 * Cancels the task, unless it has already run or been cancelled.
+		 *
+		 * @return true if the task will not run because of this call
+		 */
+		public boolean cancel() {
+			if (!state.compareAndSet(PENDING, CANCELLED)) {
+				return false;
+			}
+			wheel.numOfPending.decrementAndGet();
+			wheel.cancelled.add(this);
+			return true;
+		}
+
+		/**
+		 * Returns true if the task has been cancelled.
+		 *
+		 * @return true if the task has been cancelled
+		 */
+		public boolean isCancelled() {
+			return state.get() == CANCELLED;
+		}
+
+		/**
+		 * Returns true if the task has been run.
+		 *
+		 * @return true if the timeout has expired
+		 */
+		public boolean isExpired() {
+			return state.get() == EXPIRED;
+		}
+
+		/**
+		 * Runs the task if it has not been cancelled.
+		 */
+		private void expire() {
+			if (!state.compareAndSet(PENDING, EXPIRED)) {
+				return;
+			}
+			wheel.numOfPending.decrementAndGet();
+			try {
+				task.run();
+			} catch (RuntimeException ex) {
+				// a failing task does not stop the wheel
+			}
+		}
+	}
+
+	/**
+	 * The timeouts of a bucket, as a doubly linked list so a cancelled one is
+	 * unlinked in O(1).
+	 */
+	private static final class Bucket {
+		private Timeout head;
+		private Timeout tail;
+
+		private void add(Timeout timeout) {
+			timeout.bucket = this;
+			if (head == null) {
+				head = tail = timeout;
+			} else {
+				tail.next = timeout;
+				timeout.prev = tail;
+				tail = timeout;
+			}
+		}
+
+		private Timeout remove(Timeout timeout) {
+			Timeout next = timeout.next;
+			if (timeout.prev != null) {
+				timeout.prev.next = next;
+			} else {
+				head = next;
+			}
+			if (next != null) {
+				next.prev = timeout.prev;
+			} else {
+				tail = timeout.prev;
+			}
+			timeout.prev = null;
+			timeout.next = null;
+			timeout.bucket = null;
+			return next;
+		}
+
+		/**
+		 * Runs the timeouts of this bucket which are due by the specified
+		 * time, and counts down the turns of the others.
+		 */
+		private void expire(long deadline) {
+			Timeout timeout = head;
+			while (timeout != null) {
+				if (timeout.remainingRounds <= 0 && timeout.deadline <= deadline) {
+					Timeout next = remove(timeout);
+					timeout.expire();
+					timeout = next;
+				} else {
+					timeout.remainingRounds--;
+					timeout = timeout.next;
+				}
+			}
+		}
+
+		/**
+		 * Removes every timeout of this bucket, and adds the tasks of the
+		 * pending ones to the specified list.
+		 */
+		private void drainTo(List<Runnable> tasks) {
+			while (head != null) {
+				Timeout timeout = head;
+				remove(timeout);
+				if (timeout.state.compareAndSet(Timeout.PENDING, Timeout.CANCELLED)) {
+					timeout.wheel.numOfPending.decrementAndGet();
+					tasks.add(timeout.task);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,461 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is a Big Two policy which searches with information set Monte
+ * Carlo tree search (single observer ISMCTS). The player to move only knows
+ * its own cards, the cards already played on the table and how many cards each
+ * opponent holds. Every iteration of the search deals the unseen cards to the
+ * opponents at random (a determinization), walks down a tree shared by all the
+ * determinizations, choosing only among the moves legal in the current one,
+ * and finishes the game with random moves.
+ * <p>
+ * The search is root parallel: each worker thread grows its own tree with its
+ * own random number generator until the time budget of the move runs out, and
+ * the move visited most often over all the trees is played. The workers are
+ * shared by every game using the policy, and should be stopped with
+ * shutdown().
+ *
+ * @author Kang Hyunwoo
+ */
+public class IsmctsPolicy implements BigTwoPolicy {
+	// exploration constant of the UCB formula
+	private static final double EXPLORATION = 0.7;
+	// number of iterations between two checks of the clock
+	private static final int CLOCK_INTERVAL = 32;
+
+	private final long timeBudgetNanos;
+	private final int numOfWorkers;
+	private final long maxIterations;
+	private final ExecutorService executor;
+	// the iterations run and the time spent by the workers, summed over all the moves searched
+	private final AtomicLong numOfPlayouts = new AtomicLong();
+	private final AtomicLong workerNanos = new AtomicLong();
+
+	/**
+	 * Creates a policy searching with all the available processors.
+	 *
+	 * @param timeBudgetMillis the time spent searching each move, in milliseconds
+	 */
+	public IsmctsPolicy(long timeBudgetMillis) {
+		this(timeBudgetMillis, Runtime.getRuntime().availableProcessors(), Long.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a policy.
+	 *
+	 * @param timeBudgetMillis the time spent searching each move, in milliseconds
+	 * @param numOfWorkers     the number of threads searching each move
+	 * @param maxIterations    the maximum number of iterations of each worker per
+	 *                         move, e.g. for reproducible results, or
+	 *                         Long.MAX_VALUE to search until the time runs out
+	 */
+	public IsmctsPolicy(long timeBudgetMillis, int numOfWorkers, long maxIterations) {
+		if (numOfWorkers < 1) {
+			throw new IllegalArgumentException("At least one worker is needed");
+		}
+		this.timeBudgetNanos = timeBudgetMillis * 1000000L;
+		this.numOfWorkers = numOfWorkers;
+		this.maxIterations = maxIterations;
+		// with a single worker the search runs on the calling thread
+		this.executor = numOfWorkers > 1 ? Executors.newFixedThreadPool(numOfWorkers, r -> {
+			Thread thread = new Thread(r, "ismcts-worker");
+			thread.setDaemon(true);
+			return thread;
+		}) : null;
+	}
+
+	/**
+	 * Stops the worker threads of this policy.
+	 */
+	public void shutdown() {
+		if (executor != null) {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Returns the number of playouts run by the workers so far, one per
+	 * iteration of the search.
+	 *
+	 * @return the number of playouts
+	 */
+	public long getNumOfPlayouts() {
+		return numOfPlayouts.get();
+	}
+
+	/**
+	 * Returns the number of playouts run per millisecond by each worker, on
+	 * average over all the moves searched so far.
+	 *
+	 * @return the playouts per millisecond per worker
+	 */
+	public double getPlayoutsPerMilli() {
+		long nanos = workerNanos.get();
+		return nanos > 0 ? numOfPlayouts.get() * 1e6 / nanos : 0;
+	}
+
+	/**
+	 * Chooses the move of the current player by searching the positions which
+	 * are consistent with what the player has seen.
+	 *
+	 * @param game      the game being played
+	 * @param generator a move generator
+	 * @param random    the random number generator of the calling thread
+	 * @return the CardSet mask of the chosen cards, or 0 to pass
+	 */
+	public long chooseMove(BigTwo game, MoveGenerator generator, SplittableRandom random) {
+		BigTwoState root;
+		long unseen;
+		int[] numOfCards = new int[BigTwoState.NUM_OF_PLAYERS];
+		synchronized (game) {
+			root = new BigTwoState(game);
+			// not the hands on the table, which after a restore() are only the last one
+			unseen = CardSet.ALL_CARDS & ~game.getPlayedCards();
+			for (int i = 0; i < numOfCards.length; i++) {
+				numOfCards[i] = game.getPlayerList().get(i).getNumOfCards();
+			}
+		}
+		int playerIdx = root.getCurrentPlayerIdx();
+		unseen &= ~root.getHand(playerIdx);
+
+		// the moves at the root are the same in every determinization
+		int numOfMoves = root.generateMoves(generator);
+		int numOfChoices = numOfMoves + (root.canPass() ? 1 : 0);
+		if (numOfChoices == 0) {
+			return 0L;
+		}
+		long[] rootMoves = new long[numOfChoices];
+		for (int i = 0; i < numOfMoves; i++) {
+			rootMoves[i] = generator.getMove(i);
+		}
+		if (numOfChoices == 1) {
+			return rootMoves[0];
+		}
+
+		long start = System.nanoTime();
+		long deadline = start + timeBudgetNanos;
+		long[] visits = new long[numOfChoices];
+		if (executor == null) {
+			new Worker(root, unseen, numOfCards, rootMoves, deadline, random.split()).search(visits);
+		} else {
+			List<Future<long[]>> futures = new ArrayList<Future<long[]>>(numOfWorkers);
+			for (int i = 0; i < numOfWorkers; i++) {
+				Worker worker = new Worker(root, unseen, numOfCards, rootMoves, deadline, random.split());
+				futures.add(executor.submit(worker));
+			}
+			for (Future<long[]> future : futures) {
+				long[] workerVisits = getResult(future);
+				for (int i = 0; i < numOfChoices; i++) {
+					visits[i] += workerVisits[i];
+				}
+			}
+		}
+
+		workerNanos.addAndGet((System.nanoTime() - start) * numOfWorkers);
+
+		int best = 0;
+		for (int i = 1; i < numOfChoices; i++) {
+			if (visits[i] > visits[best]) {
+				best = i;
+			}
+		}
+		return rootMoves[best];
+	}
+
+	private static long[] getResult(Future<long[]> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Search interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Search failed", e.getCause());
+		}
+	}
+
+	/**
+	 * This inner class is a node of the search tree: a move made by a player,
+	 * with the statistics of the playouts which went through it.
+	 */
+	private static class Node {
+		private final long move;
+		// key of the hand of the move, or -1 for a pass
+		private final int key;
+		private final int playerIdx;
+		private Node[] children = new Node[4];
+		private int numOfChildren;
+		private int visits;
+		private int wins;
+		// number of times this move was legal when its parent was visited
+		private int available;
+
+		Node(long move, int playerIdx) {
+			this.move = move;
+			this.key = move == 0L ? -1 : HandClassifier.keyOf(move);
+			this.playerIdx = playerIdx;
+		}
+
+		Node addChild(long move, int playerIdx) {
+			if (numOfChildren == children.length) {
+				children = Arrays.copyOf(children, numOfChildren * 2);
+			}
+			Node child = new Node(move, playerIdx);
+			children[numOfChildren++] = child;
+			return child;
+		}
+
+		/**
+		 * Returns true if this move can be played in the specified position.
+		 */
+		boolean isLegal(BigTwoState state) {
+			if (move == 0L) {
+				return state.canPass();
+			}
+			long required = state.getRequiredCards();
+			int tableKey = state.getTableKey();
+			return (state.getHand(state.getCurrentPlayerIdx()) & move) == move
+					&& (move & required) == required
+					&& (tableKey == MoveGenerator.ANY_HAND || HandClassifier.beats(key, tableKey));
+		}
+	}
+
+	/**
+	 * This inner class is a search of one move on one thread.
+	 */
+	private class Worker implements Callable<long[]> {
+		private final BigTwoState root;
+		private final int playerIdx;
+		private final int[] numOfCards;
+		private final int[] unseenCards;
+		private final long[] rootMoves;
+		private final long deadline;
+		private final SplittableRandom random;
+		private final BigTwoState state = new BigTwoState();
+		private final MoveGenerator generator = new MoveGenerator();
+		private final long[] hands = new long[BigTwoState.NUM_OF_PLAYERS];
+		private Node[] path = new Node[64];
+
+		Worker(BigTwoState root, long unseen, int[] numOfCards, long[] rootMoves, long deadline,
+				SplittableRandom random) {
+			this.root = root;
+			this.playerIdx = root.getCurrentPlayerIdx();
+			this.numOfCards = numOfCards;
+			this.unseenCards = new int[Long.bitCount(unseen)];
+			int n = 0;
+			for (int i = CardSet.nextIndex(unseen, 0); i >= 0; i = CardSet.nextIndex(unseen, i + 1)) {
+				unseenCards[n++] = i;
+			}
+			this.rootMoves = rootMoves;
+			this.deadline = deadline;
+			this.random = random;
+		}
+
+		public long[] call() {
+			long[] visits = new long[rootMoves.length];
+			search(visits);
+			return visits;
+		}
+
+		/**
+		 * Searches until the time runs out and adds the visits of each root move
+		 * to the specified array.
+		 */
+		void search(long[] visits) {
+			Node tree = new Node(0L, -1);
+			for (long move : rootMoves) {
+				tree.addChild(move, playerIdx);
+			}
+			long iteration;
+			for (iteration = 0; iteration < maxIterations; iteration++) {
+				if (iteration % CLOCK_INTERVAL == 0 && iteration > 0 && System.nanoTime() >= deadline) {
+					break;
+				}
+				iterate(tree);
+			}
+			numOfPlayouts.addAndGet(iteration);
+			for (int i = 0; i < rootMoves.length; i++) {
+				visits[i] += tree.children[i].visits;
+			}
+		}
+
+		/**
+		 * Runs one iteration: determinization, selection, expansion, playout and
+		 * backpropagation.
+		 */
+		private void iterate(Node tree) {
+			determinize();
+			int depth = 0;
+			path[depth++] = tree;
+			Node node = tree;
+
+			while (!state.isGameOver()) {
+				int numOfMoves = state.generateMoves(generator);
+				int numOfLegal = numOfMoves + (state.canPass() ? 1 : 0);
+				int numOfLegalChildren = 0;
+				for (int i = 0; i < node.numOfChildren; i++) {
+					if (node.children[i].isLegal(state)) {
+						numOfLegalChildren++;
+					}
+				}
+
+				Node next;
+				if (numOfLegalChildren < numOfLegal) {
+					next = expand(node, numOfMoves, numOfLegal);
+				} else {
+					next = select(node);
+				}
+				if (depth == path.length) {
+					path = Arrays.copyOf(path, depth * 2);
+				}
+				path[depth++] = next;
+				state.play(next.move);
+				if (next.visits == 0) {
+					break;
+				}
+				node = next;
+			}
+
+			int winnerIdx = playout();
+			for (int i = 1; i < depth; i++) {
+				Node visited = path[i];
+				visited.visits++;
+				if (visited.playerIdx == winnerIdx) {
+					visited.wins++;
+				}
+			}
+		}
+
+		/**
+		 * Deals the unseen cards to the opponents, each getting as many cards as
+		 * he/she holds in the real game.
+		 */
+		private void determinize() {
+			int n = unseenCards.length;
+			for (int i = 0; i < BigTwoState.NUM_OF_PLAYERS; i++) {
+				if (i == playerIdx) {
+					hands[i] = root.getHand(i);
+					continue;
+				}
+				long hand = 0L;
+				for (int j = 0; j < numOfCards[i] && n > 0; j++) {
+					int k = random.nextInt(n);
+					int card = unseenCards[k];
+					unseenCards[k] = unseenCards[--n];
+					unseenCards[n] = card;
+					hand |= 1L << card;
+				}
+				hands[i] = hand;
+			}
+			state.set(hands, root.getCurrentPlayerIdx(), root.getLastPlayerIdx(), root.getLastKey(),
+					root.getRequiredCards());
+		}
+
+		/**
+		 * Adds a random legal move which has no node yet, and counts the node as
+		 * available along with its legal siblings. The moves of the state are in
+		 * the generator, and a pass is the last legal move when it is allowed.
+		 */
+		private Node expand(Node node, int numOfMoves, int numOfLegal) {
+			for (int i = 0; i < node.numOfChildren; i++) {
+				if (node.children[i].isLegal(state)) {
+					node.children[i].available++;
+				}
+			}
+			int start = random.nextInt(numOfLegal);
+			for (int k = 0; k < numOfLegal; k++) {
+				int i = (start + k) % numOfLegal;
+				long move = i < numOfMoves ? generator.getMove(i) : 0L;
+				if (!hasChild(node, move)) {
+					Node child = node.addChild(move, state.getCurrentPlayerIdx());
+					child.available++;
+					return child;
+				}
+			}
+			throw new IllegalStateException("No untried move");
+		}
+
+		private boolean hasChild(Node node, long move) {
+			for (int i = 0; i < node.numOfChildren; i++) {
+				if (node.children[i].move == move) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Chooses the legal child with the best UCB value, counting every legal
+		 * child as available. A child which has never been visited is chosen first.
+		 */
+		private Node select(Node node) {
+			Node best = null;
+			double bestValue = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < node.numOfChildren; i++) {
+				Node child = node.children[i];
+				if (!child.isLegal(state)) {
+					continue;
+				}
+				child.available++;
+				if (child.visits == 0) {
+					return child;
+				}
+				double value = (double) child.wins / child.visits
+						+ EXPLORATION * Math.sqrt(Math.log(child.available) / child.visits);
+				if (value > bestValue) {
+					best = child;
+					bestValue = value;
+				}
+			}
+			return best;
+		}
+
+		/**
+		 * Finishes the game with random moves.
+		 *
+		 * @return the index of the winner
+		 */
+		private int playout() {
+			while (!state.isGameOver()) {
+				int numOfMoves = state.generateMoves(generator);
+				int numOfLegal = numOfMoves + (state.canPass() ? 1 : 0);
+				int i = random.nextInt(numOfLegal);
+				state.play(i < numOfMoves ? generator.getMove(i) : 0L);
+			}
+			return state.getWinnerIdx();
+		}
+	}
+
+	/**
+	 * main() method for measuring an ISMCTS player against greedy players, and
+	 * the number of playouts it runs per millisecond per worker.
+	 *
+	 * @param args the number of games (default 200), the time budget per move in
+	 *             milliseconds (default 20), the number of workers (default: all
+	 *             processors) and the seed (default 1)
+	 */
+	public static void main(String[] args) {
+		long numOfGames = args.length > 0 ? Long.parseLong(args[0]) : 200;
+		long timeBudget = args.length > 1 ? Long.parseLong(args[1]) : 20;
+		int numOfWorkers = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+
+		IsmctsPolicy ismcts = new IsmctsPolicy(timeBudget, numOfWorkers, Long.MAX_VALUE);
+		BigTwoPolicy[] policies = { ismcts, new GreedyPolicy(), new GreedyPolicy(), new GreedyPolicy() };
+		BigTwoSimulator simulator = new BigTwoSimulator(policies, 1);
+		SimulationResult result = simulator.run(numOfGames, seed);
+		simulator.shutdown();
+		ismcts.shutdown();
+		System.out.print(result);
+		System.out.println(String.format("%d playouts, %.1f per ms per worker", ismcts.getNumOfPlayouts(),
+				ismcts.getPlayoutsPerMilli()));
+	}
+}
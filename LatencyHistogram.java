@@ -0,0 +1,134 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class is a histogram of latencies in nanoseconds which many threads may
+ * record into at the same time without locking. Its buckets are log-linear:
+ * each power of two is split into 16 buckets of equal width, so a percentile is
+ * reported within about 6% of the recorded value, from nanoseconds up to
+ * minutes, with a fixed array of 592 counters.
+ *
+ * @author Kang Hyunwoo
+ */
+public class LatencyHistogram {
+	// the number of bits of a value below its highest bit which pick its bucket
+	private static final int SUB_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	// values of 2^MAX_EXPONENT nanoseconds (about 18 minutes) or more are
+	// counted in the last bucket
+	private static final int MAX_EXPONENT = 40;
+	private static final int NUM_OF_BUCKETS = (MAX_EXPONENT - SUB_BITS + 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(NUM_OF_BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records a latency.
+	 *
+	 * @param nanos the latency in nanoseconds; a negative value is counted as 0
+	 */
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		counts.incrementAndGet(indexOf(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+		long previous;
+		while (value > (previous = max.get()) && !max.compareAndSet(previous, value)) {
+			// another thread has raised the maximum; tries again
+		}
+	}
+
+	/**
+	 * Returns the number of latencies recorded.
+	 *
+	 * @return the number of latencies
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * Returns the mean of the latencies recorded.
+	 *
+	 * @return the mean latency in nanoseconds, or 0 if none has been recorded
+	 */
+	public double getMean() {
+		long n = count.get();
+		return n == 0 ? 0 : (double) sum.get() / n;
+	}
+
+	/**
+	 * Returns the largest latency recorded.
+	 *
+	 * @return the largest latency in nanoseconds, or 0 if none has been
+	 *         recorded
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Returns the latency below which the specified fraction of the recorded
+	 * latencies lie, i.e. the upper bound of the bucket holding that
+	 * percentile, but never more than the largest latency recorded.
+	 *
+	 * @param fraction the fraction of the latencies, e.g. 0.99 for the 99th
+	 *                 percentile
+	 * @return the latency in nanoseconds, or 0 if none has been recorded
+	 */
+	public long getPercentile(double fraction) {
+		long n = count.get();
+		if (n == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(fraction * n));
+		long seen = 0;
+		for (int i = 0; i < NUM_OF_BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return Math.min(lowestValueOf(i + 1) - 1, max.get());
+			}
+		}
+		return max.get();
+	}
+
+	/**
+	 * Returns the bucket of a value.
+	 */
+	private static int indexOf(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		if (exponent >= MAX_EXPONENT) {
+			return NUM_OF_BUCKETS - 1;
+		}
+		int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * Returns the lowest value of a bucket.
+	 */
+	private static long lowestValueOf(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+		long sub = index % SUB_BUCKETS;
+		return (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+	}
+
+	/**
+	 * Returns the count, the 50th, 99th and 99.9th percentiles and the largest
+	 * latency, in milliseconds.
+	 *
+	 * @return the summary of this histogram
+	 */
+	public String toString() {
+		return String.format("%d, p50 %.2f ms, p99 %.2f ms, p999 %.2f ms, max %.2f ms", getCount(),
+				getPercentile(0.50) / 1e6, getPercentile(0.99) / 1e6, getPercentile(0.999) / 1e6, getMax() / 1e6);
+	}
+}
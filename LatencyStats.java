@@ -0,0 +1,128 @@
+import java.beans.ConstructorProperties;
+
+/**
+ * This class is a snapshot of a LatencyHistogram of a server: the count, the
+ * rate and the mean, percentiles and maximum of the latencies recorded, in
+ * milliseconds. It is the form in which ServerMetrics exposes a histogram
+ * over JMX, where it appears as composite data.
+ *
+ * @author Kang Hyunwoo
+ */
+public class LatencyStats {
+	private final long count;
+	private final double perSecond;
+	private final double meanMillis;
+	private final double p50Millis;
+	private final double p99Millis;
+	private final double p999Millis;
+	private final double maxMillis;
+
+	/**
+	 * Creates a snapshot from its values.
+	 *
+	 * @param count      the number of latencies recorded
+	 * @param perSecond  the number of latencies recorded per second
+	 * @param meanMillis the mean latency
+	 * @param p50Millis  the 50th percentile
+	 * @param p99Millis  the 99th percentile
+	 * @param p999Millis the 99.9th percentile
+	 * @param maxMillis  the largest latency
+	 */
+	@ConstructorProperties({ "count", "perSecond", "meanMillis", "p50Millis", "p99Millis", "p999Millis",
+			"maxMillis" })
+	public LatencyStats(long count, double perSecond, double meanMillis, double p50Millis, double p99Millis,
+			double p999Millis, double maxMillis) {
+		this.count = count;
+		this.perSecond = perSecond;
+		this.meanMillis = meanMillis;
+		this.p50Millis = p50Millis;
+		this.p99Millis = p99Millis;
+		this.p999Millis = p999Millis;
+		this.maxMillis = maxMillis;
+	}
+
+	/**
+	 * Takes a snapshot of the specified histogram.
+	 *
+	 * @param histogram the histogram
+	 * @param seconds   the time over which the latencies have been recorded,
+	 *                  in seconds
+	 * @return the snapshot of the histogram
+	 */
+	public static LatencyStats of(LatencyHistogram histogram, double seconds) {
+		long count = histogram.getCount();
+		return new LatencyStats(count, seconds > 0 ? count / seconds : 0, histogram.getMean() / 1e6,
+				histogram.getPercentile(0.50) / 1e6, histogram.getPercentile(0.99) / 1e6,
+				histogram.getPercentile(0.999) / 1e6, histogram.getMax() / 1e6);
+	}
+
+	/**
+	 * Returns the number of latencies recorded.
+	 *
+	 * @return the count
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the number of latencies recorded per second, on average since
+	 * the server started.
+	 *
+	 * @return the rate
+	 */
+	public double getPerSecond() {
+		return perSecond;
+	}
+
+	/**
+	 * Returns the mean latency.
+	 *
+	 * @return the mean, in milliseconds
+	 */
+	public double getMeanMillis() {
+		return meanMillis;
+	}
+
+	/**
+	 * Returns the 50th percentile of the latencies.
+	 *
+	 * @return the median, in milliseconds
+	 */
+	public double getP50Millis() {
+		return p50Millis;
+	}
+
+	/**
+	 * Returns the 99th percentile of the latencies.
+	 *
+	 * @return the 99th percentile, in milliseconds
+	 */
+	public double getP99Millis() {
+		return p99Millis;
+	}
+
+	/**
+	 * Returns the 99.9th percentile of the latencies.
+	 *
+	 * @return the 99.9th percentile, in milliseconds
+	 */
+	public double getP999Millis() {
+		return p999Millis;
+	}
+
+	/**
+	 * Returns the largest latency.
+	 *
+	 * @return the maximum, in milliseconds
+	 */
+	public double getMaxMillis() {
+		return maxMillis;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d (%.1f/s), p50 %.3f ms, p99 %.3f ms, p999 %.3f ms, max %.3f ms", count, perSecond,
+				p50Millis, p99Millis, p999Millis, maxMillis);
+	}
+}
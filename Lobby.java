@@ -0,0 +1,249 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * This class is the lobby of a card game server: the clients waiting for a
+ * seat. A client enters the lobby when it connects to a full server, or to
+ * any server in matchmaking mode, and is queued once it has sent its JOIN
+ * message, at the back of the queue of its bucket (e.g. a range of skill or
+ * latency). The server takes players from the front of a queue as soon as a
+ * seat is free or a table can be formed.
+ * <p>
+ * Queuing and taking a player are O(1). A client which leaves the lobby is
+ * only marked as gone, and skipped when it reaches the front of its queue, so
+ * leaving is O(1) as well; a queue is compacted once it holds more gone
+ * clients than waiting ones.
+ *
+ * @author Kang Hyunwoo
+ */
+public class Lobby {
+	// a queue is not compacted while it holds fewer gone clients than this
+	private static final int MIN_GONE_TO_COMPACT = 64;
+
+	// the ticket of each client in the lobby
+	private final Map<ClientConnection, Ticket> tickets = new HashMap<ClientConnection, Ticket>();
+	// the queue of each bucket with a client waiting
+	private final Map<Integer, Bucket> buckets = new HashMap<Integer, Bucket>();
+
+	/**
+	 * Adds a client to the lobby. It is not queued until it joins.
+	 *
+	 * @param connection the connection of the client
+	 * @return true if the client has been added; false if it is already in the
+	 *         lobby
+	 */
+	public synchronized boolean add(ClientConnection connection) {
+		if (tickets.containsKey(connection)) {
+			return false;
+		}
+		tickets.put(connection, new Ticket(connection));
+		return true;
+	}
+
+	/**
+	 * Queues a client in the lobby at the back of the queue of the specified
+	 * bucket.
+	 *
+	 * @param connection the connection of the client
+	 * @param bucket     the bucket of the client
+	 * @return true if the client has been queued; false if it is not in the
+	 *         lobby or already queued
+	 */
+	public synchronized boolean enqueue(ClientConnection connection, int bucket) {
+		Ticket ticket = tickets.get(connection);
+		if (ticket == null || ticket.queued) {
+			return false;
+		}
+		ticket.queued = true;
+		ticket.bucket = bucket;
+		Bucket queue = buckets.get(bucket);
+		if (queue == null) {
+			queue = new Bucket();
+			buckets.put(bucket, queue);
+		}
+		queue.tickets.add(ticket);
+		queue.numOfWaiting++;
+		return true;
+	}
+
+	/**
+	 * Removes a client from the lobby, e.g. when its connection is lost.
+	 *
+	 * @param connection the connection of the client
+	 * @return true if the client was in the lobby
+	 */
+	public synchronized boolean remove(ClientConnection connection) {
+		Ticket ticket = tickets.remove(connection);
+		if (ticket == null) {
+			return false;
+		}
+		if (ticket.queued) {
+			ticket.gone = true;
+			Bucket queue = buckets.get(ticket.bucket);
+			queue.numOfWaiting--;
+			if (queue.numOfWaiting == 0) {
+				buckets.remove(ticket.bucket);
+			} else if (queue.tickets.size() - queue.numOfWaiting >= Math.max(MIN_GONE_TO_COMPACT,
+					queue.numOfWaiting)) {
+				queue.tickets.removeIf(t -> t.gone);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Takes the client at the front of the queue of the specified bucket out
+	 * of the lobby.
+	 *
+	 * @param bucket the bucket
+	 * @return the connection of the client who has waited longest in the
+	 *         bucket, or null if no client is waiting in it
+	 */
+	public synchronized ClientConnection poll(int bucket) {
+		Bucket queue = buckets.get(bucket);
+		if (queue == null) {
+			return null;
+		}
+		Ticket ticket;
+		while ((ticket = queue.tickets.poll()) != null && ticket.gone) {
+			// skips the clients who have left
+		}
+		if (ticket == null) {
+			buckets.remove(bucket);
+			return null;
+		}
+		tickets.remove(ticket.connection);
+		if (--queue.numOfWaiting == 0) {
+			buckets.remove(bucket);
+		}
+		return ticket.connection;
+	}
+
+	/**
+	 * Returns the number of clients queued in the specified bucket.
+	 *
+	 * @param bucket the bucket
+	 * @return the number of clients waiting in the bucket
+	 */
+	public synchronized int getNumOfWaiting(int bucket) {
+		Bucket queue = buckets.get(bucket);
+		return queue == null ? 0 : queue.numOfWaiting;
+	}
+
+	/**
+	 * Returns the buckets in which clients are queued.
+	 *
+	 * @return the buckets with at least one client waiting
+	 */
+	public synchronized int[] getBuckets() {
+		int[] result = new int[buckets.size()];
+		int i = 0;
+		for (int bucket : buckets.keySet()) {
+			result[i++] = bucket;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of clients in the lobby, queued or not.
+	 *
+	 * @return the number of clients in the lobby
+	 */
+	public synchronized int size() {
+		return tickets.size();
+	}
+
+	/**
+	 * Removes every client from the lobby.
+	 *
+	 * @return the connections of the clients who were in the lobby
+	 */
+	public synchronized List<ClientConnection> clear() {
+		List<ClientConnection> connections = new ArrayList<ClientConnection>(tickets.keySet());
+		tickets.clear();
+		buckets.clear();
+		return connections;
+	}
+
+	/**
+	 * main() method for measuring the number of joins per second of a lobby.
+	 * Clients join in random buckets, a tenth of them leave while queued, and
+	 * the players of a bucket are taken out four at a time, as a table is
+	 * formed, as soon as four are waiting.
+	 *
+	 * @param args the number of joins (default 10000000) and the number of
+	 *             buckets (default 2)
+	 */
+	public static void main(String[] args) {
+		int numOfJoins = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+		int numOfBuckets = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+		ClientConnection[] connections = new ClientConnection[4096];
+		for (int i = 0; i < connections.length; i++) {
+			connections[i] = new ClientConnection() {
+				public void send(CardGameMessage message) {
+				}
+
+				public void close() {
+				}
+
+				public String getRemoteAddress() {
+					return "lobby benchmark";
+				}
+
+				public long getBytesSinceReset() {
+					return 0;
+				}
+			};
+		}
+		Lobby lobby = new Lobby();
+		SplittableRandom random = new SplittableRandom(1);
+		long numOfLeft = 0;
+		long numOfTables = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < numOfJoins; i++) {
+			ClientConnection connection = connections[i & (connections.length - 1)];
+			int bucket = random.nextInt(numOfBuckets);
+			lobby.add(connection);
+			lobby.enqueue(connection, bucket);
+			if (random.nextInt(10) == 0) {
+				lobby.remove(connection);
+				numOfLeft++;
+			} else if (lobby.getNumOfWaiting(bucket) >= 4) {
+				for (int j = 0; j < 4; j++) {
+					lobby.poll(bucket);
+				}
+				numOfTables++;
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.println(String.format("%d joins in %.2f s, %.0f joins/s (%d left, %d tables formed)", numOfJoins,
+				seconds, numOfJoins / seconds, numOfLeft, numOfTables));
+	}
+
+	/**
+	 * A client in the lobby.
+	 */
+	private static final class Ticket {
+		private final ClientConnection connection;
+		private int bucket;
+		private boolean queued;
+		// whether the client has left the lobby while queued
+		private boolean gone;
+
+		private Ticket(ClientConnection connection) {
+			this.connection = connection;
+		}
+	}
+
+	/**
+	 * The queue of a bucket. It may still hold clients who have left.
+	 */
+	private static final class Bucket {
+		private final ArrayDeque<Ticket> tickets = new ArrayDeque<Ticket>();
+		private int numOfWaiting;
+	}
+}
@@ -0,0 +1,37 @@
+import java.io.IOException;
+
+/**
+ * An interface for turning a CardGameMessage into the payload of a frame and
+ * back. The framed protocol (see FramedProtocol) names the codec of a
+ * connection by its id in the handshake, so both ends must agree on it.
+ *
+ * @author Kang Hyunwoo
+ */
+public interface MessageCodec {
+	/**
+	 * Returns the id of this codec, as sent in the handshake.
+	 *
+	 * @return the id of this codec
+	 */
+	public int getId();
+
+	/**
+	 * Encodes the specified message.
+	 *
+	 * @param message the message to be encoded
+	 * @return the payload of the frame holding the message
+	 * @throws IOException if the message cannot be encoded
+	 */
+	public byte[] encode(CardGameMessage message) throws IOException;
+
+	/**
+	 * Decodes a message from the payload of a frame.
+	 *
+	 * @param buffer the array holding the payload
+	 * @param offset the position of the payload in the array
+	 * @param length the length of the payload
+	 * @return the decoded message
+	 * @throws IOException if the payload is not a valid message
+	 */
+	public CardGameMessage decode(byte[] buffer, int offset, int length) throws IOException;
+}
@@ -0,0 +1,86 @@
+import java.io.Serializable;
+
+/**
+ * This class is used to model a move checked by the server: the cards played,
+ * the type of the hand and the next player. It is the data of a MOVE_DELTA
+ * message, so a client can play the move without checking it again, and
+ * without the indices of the cards, which depend on the hand of the player.
+ * Each delta has the sequence number of the table, so a client resuming its
+ * seat can tell the server which moves it has missed.
+ *
+ * @author Kang Hyunwoo
+ */
+public class MoveDelta implements Serializable {
+	private static final long serialVersionUID = 4122316548853395724L;
+	private final long cards;
+	private final int handType;
+	private final int nextPlayerIdx;
+	private final int seq;
+
+	/**
+	 * Creates and returns an instance of the MoveDelta class.
+	 *
+	 * @param cards         CardSet mask of the cards played, or 0 for a pass
+	 * @param handType      the HandClassifier type of the hand, or 0 for a pass
+	 * @param nextPlayerIdx index of the player to move next, or -1 if the move
+	 *                      ended the game
+	 * @param seq           the sequence number of the move at its table
+	 */
+	public MoveDelta(long cards, int handType, int nextPlayerIdx, int seq) {
+		this.cards = cards;
+		this.handType = handType;
+		this.nextPlayerIdx = nextPlayerIdx;
+		this.seq = seq;
+	}
+
+	/**
+	 * Returns the cards played.
+	 *
+	 * @return CardSet mask of the cards played, or 0 for a pass
+	 */
+	public long getCards() {
+		return cards;
+	}
+
+	/**
+	 * Returns the type of the hand played.
+	 *
+	 * @return the HandClassifier type of the hand, or 0 for a pass
+	 */
+	public int getHandType() {
+		return handType;
+	}
+
+	/**
+	 * Returns the player to move next.
+	 *
+	 * @return index of the next player, or -1 if the move ended the game
+	 */
+	public int getNextPlayerIdx() {
+		return nextPlayerIdx;
+	}
+
+	/**
+	 * Returns the sequence number of the move.
+	 *
+	 * @return the sequence number of the move at its table
+	 */
+	public int getSeq() {
+		return seq;
+	}
+
+	/**
+	 * Returns true if the move is a pass.
+	 *
+	 * @return true if no cards were played
+	 */
+	public boolean isPass() {
+		return cards == 0L;
+	}
+
+	@Override
+	public String toString() {
+		return "#" + seq + " " + (isPass() ? "pass, next " + nextPlayerIdx
+				: "cards 0x" + Long.toHexString(cards) + " (type " + handType + "), next " + nextPlayerIdx);
+	}
+}
@@ -0,0 +1,365 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * This class is used to list the legal hands that a player can play in a Big
+ * Two card game. The cards of the player are indexed per rank (the 4-bit group
+ * of each rank in the CardSet mask) and per suit, and hands are built from
+ * these groups directly, so no 5-card subset that cannot form a hand is ever
+ * looked at.
+ * <p>
+ * Moves are returned as CardSet masks in a reusable buffer, so a generator
+ * should be reused for many calls but not shared between threads.
+ *
+ * @author Kang Hyunwoo
+ */
+public class MoveGenerator {
+	/**
+	 * Table key meaning that there is no hand to beat, i.e. any legal hand can be
+	 * played.
+	 */
+	public static final int ANY_HAND = -1;
+
+	// CardSet mask of all the cards of suit 0 (bit 0 of every rank group)
+	private static final long SUIT_0 = 0x1111111111111L;
+
+	private long[] moves = new long[256];
+	private int numOfMoves;
+	private int tableKey;
+	private long required;
+	private final int[] suitCards = new int[13];
+
+	/**
+	 * Lists every legal hand that can be formed from the specified cards.
+	 *
+	 * @param cards the CardSet mask of the cards held by the player
+	 * @return the number of moves found
+	 */
+	public int generate(long cards) {
+		return generate(cards, ANY_HAND, 0L);
+	}
+
+	/**
+	 * Lists every legal hand held by the specified player which beats the
+	 * specified hand on the table.
+	 *
+	 * @param player    the player whose cards are used
+	 * @param tableHand the hand to be beaten, or null if any hand can be played
+	 * @return the number of moves found
+	 */
+	public int generate(CardGamePlayer player, Hand tableHand) {
+		return generate(player.getCardsInHand().getMask(), tableHand == null ? ANY_HAND : tableHand.getKey(), 0L);
+	}
+
+	/**
+	 * Lists every legal hand that can be formed from the specified cards, that
+	 * beats the hand with the specified key and that contains all the required
+	 * cards.
+	 *
+	 * @param cards    the CardSet mask of the cards held by the player
+	 * @param tableKey the strength key of the hand to be beaten, or ANY_HAND
+	 * @param required the CardSet mask of the cards that every move must contain
+	 *                 (e.g. the Three of Diamonds for the first move), or 0
+	 * @return the number of moves found
+	 */
+	public int generate(long cards, int tableKey, long required) {
+		this.numOfMoves = 0;
+		this.tableKey = tableKey;
+		this.required = required;
+		if ((cards & required) != required) {
+			return 0;
+		}
+
+		int size = tableKey == ANY_HAND ? 0 : HandClassifier.sizeOf(tableKey);
+		if (size == 0 || size == 1) {
+			generateSingles(cards);
+		}
+		if (size == 0 || size == 2) {
+			generatePairs(cards);
+		}
+		if (size == 0 || size == 3) {
+			generateTriples(cards);
+		}
+		if (size == 0 || size == 5) {
+			generateStraights(cards);
+			generateFlushes(cards);
+			generateFullHouses(cards);
+			generateQuads(cards);
+		}
+		return numOfMoves;
+	}
+
+	/**
+	 * Returns the number of moves found by the last call to generate().
+	 *
+	 * @return the number of moves
+	 */
+	public int size() {
+		return numOfMoves;
+	}
+
+	/**
+	 * Returns the move at the specified position.
+	 *
+	 * @param i the position of the move, between 0 and size() - 1
+	 * @return the CardSet mask of the cards of the move
+	 */
+	public long getMove(int i) {
+		return moves[i];
+	}
+
+	/**
+	 * Returns the indices of the cards of a move within the specified list of
+	 * cards, in the form expected by BigTwo.makeMove().
+	 *
+	 * @param cards the list of cards held by the player
+	 * @param move  the CardSet mask of the cards of the move
+	 * @return the indices of the cards of the move, in ascending order
+	 */
+	public static int[] toCardIdx(CardList cards, long move) {
+		int[] cardIdx = new int[Long.bitCount(move)];
+		int count = 0;
+		for (int i = 0; i < cards.size() && count < cardIdx.length; i++) {
+			if ((move & CardSet.bitOf(cards.getCard(i))) != 0) {
+				cardIdx[count++] = i;
+			}
+		}
+		return cardIdx;
+	}
+
+	private void generateSingles(long cards) {
+		for (long rest = cards; rest != 0; rest &= rest - 1) {
+			add(rest & -rest);
+		}
+	}
+
+	private void generatePairs(long cards) {
+		for (int rank = 0; rank < 13; rank++) {
+			long group = rankGroup(cards, rank);
+			if (Long.bitCount(group) >= 2) {
+				for (long a = group; a != 0; a &= a - 1) {
+					long low = a & -a;
+					for (long b = a & (a - 1); b != 0; b &= b - 1) {
+						add(low | (b & -b));
+					}
+				}
+			}
+		}
+	}
+
+	private void generateTriples(long cards) {
+		for (int rank = 0; rank < 13; rank++) {
+			long group = rankGroup(cards, rank);
+			int count = Long.bitCount(group);
+			if (count == 3) {
+				add(group);
+			} else if (count == 4) {
+				// leave out each of the four cards in turn
+				for (long rest = group; rest != 0; rest &= rest - 1) {
+					add(group & ~(rest & -rest));
+				}
+			}
+		}
+	}
+
+	private void generateStraights(long cards) {
+		// a straight takes one card from each of five ranks in a row of the Big Two order
+		for (int low = 0; low + 4 < 13; low++) {
+			long g0 = rankGroup(cards, HandClassifier.rankAt(low));
+			long g1 = rankGroup(cards, HandClassifier.rankAt(low + 1));
+			long g2 = rankGroup(cards, HandClassifier.rankAt(low + 2));
+			long g3 = rankGroup(cards, HandClassifier.rankAt(low + 3));
+			long g4 = rankGroup(cards, HandClassifier.rankAt(low + 4));
+			if (g0 == 0 || g1 == 0 || g2 == 0 || g3 == 0 || g4 == 0) {
+				continue;
+			}
+			for (long a = g0; a != 0; a &= a - 1) {
+				for (long b = g1; b != 0; b &= b - 1) {
+					for (long c = g2; c != 0; c &= c - 1) {
+						for (long d = g3; d != 0; d &= d - 1) {
+							for (long e = g4; e != 0; e &= e - 1) {
+								add((a & -a) | (b & -b) | (c & -c) | (d & -d) | (e & -e));
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private void generateFlushes(long cards) {
+		for (int suit = 0; suit < 4; suit++) {
+			long suitMask = cards & (SUIT_0 << suit);
+			int n = 0;
+			for (long rest = suitMask; rest != 0; rest &= rest - 1) {
+				suitCards[n++] = Long.numberOfTrailingZeros(rest);
+			}
+			if (n < 5) {
+				continue;
+			}
+			for (int a = 0; a < n; a++) {
+				for (int b = a + 1; b < n; b++) {
+					for (int c = b + 1; c < n; c++) {
+						for (int d = c + 1; d < n; d++) {
+							for (int e = d + 1; e < n; e++) {
+								long move = (1L << suitCards[a]) | (1L << suitCards[b]) | (1L << suitCards[c])
+										| (1L << suitCards[d]) | (1L << suitCards[e]);
+								// straight flushes were listed with the straights
+								if (!HandClassifier.isStraight(move)) {
+									add(move);
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private void generateFullHouses(long cards) {
+		for (int tripleRank = 0; tripleRank < 13; tripleRank++) {
+			long triples = rankGroup(cards, tripleRank);
+			if (Long.bitCount(triples) < 3) {
+				continue;
+			}
+			for (int pairRank = 0; pairRank < 13; pairRank++) {
+				long pairs = rankGroup(cards, pairRank);
+				if (pairRank == tripleRank || Long.bitCount(pairs) < 2) {
+					continue;
+				}
+				for (long t = triples; t != 0; t &= t - 1) {
+					long triple = Long.bitCount(triples) == 3 ? triples : triples & ~(t & -t);
+					for (long a = pairs; a != 0; a &= a - 1) {
+						for (long b = a & (a - 1); b != 0; b &= b - 1) {
+							add(triple | (a & -a) | (b & -b));
+						}
+					}
+					if (Long.bitCount(triples) == 3) {
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	private void generateQuads(long cards) {
+		for (int rank = 0; rank < 13; rank++) {
+			long quad = rankGroup(cards, rank);
+			if (Long.bitCount(quad) != 4) {
+				continue;
+			}
+			for (long rest = cards & ~quad; rest != 0; rest &= rest - 1) {
+				add(quad | (rest & -rest));
+			}
+		}
+	}
+
+	/**
+	 * Lists the legal hands of the specified cards by trying every subset of
+	 * one, two, three or five cards, in ascending order of their masks. It is
+	 * the slow reference against which generate() is checked.
+	 */
+	private static long[] bruteForce(long cards, int tableKey, long required) {
+		int[] indices = new int[Long.bitCount(cards)];
+		int n = 0;
+		for (long rest = cards; rest != 0; rest &= rest - 1) {
+			indices[n++] = Long.numberOfTrailingZeros(rest);
+		}
+		long[] found = new long[256];
+		int count = 0;
+		for (int subset = 1; subset < 1 << n; subset++) {
+			int size = Integer.bitCount(subset);
+			if (size == 4 || size > 5) {
+				continue;
+			}
+			long move = 0L;
+			for (int i = 0; i < n; i++) {
+				if ((subset & (1 << i)) != 0) {
+					move |= 1L << indices[i];
+				}
+			}
+			int key = HandClassifier.keyOf(move);
+			if (key < 0 || (move & required) != required
+					|| (tableKey != ANY_HAND && !HandClassifier.beats(key, tableKey))) {
+				continue;
+			}
+			if (count == found.length) {
+				found = Arrays.copyOf(found, count * 2);
+			}
+			found[count++] = move;
+		}
+		found = Arrays.copyOf(found, count);
+		Arrays.sort(found);
+		return found;
+	}
+
+	/**
+	 * main() method for checking generate() against the brute-force listing of
+	 * every subset, for random deals, table hands and required cards, and then
+	 * measuring the time taken to list the moves of a full 13-card holding.
+	 *
+	 * @param args the number of deals to check (default 100000) and to time
+	 *             (default 1000000)
+	 */
+	public static void main(String[] args) {
+		int numOfChecks = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		int numOfRuns = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+		BigTwoDealer dealer = new BigTwoDealer();
+		MoveGenerator generator = new MoveGenerator();
+		SplittableRandom random = new SplittableRandom(1);
+		long[] hands = new long[4];
+		long numOfMoves = 0;
+		for (int i = 0; i < numOfChecks; i++) {
+			dealer.deal(random, hands);
+			// the hand to beat is one of the hands of the next player, if any
+			int tableKey = ANY_HAND;
+			if (random.nextInt(4) != 0 && generator.generate(hands[1]) > 0) {
+				tableKey = HandClassifier.keyOf(generator.getMove(random.nextInt(generator.size())));
+			}
+			long required = random.nextInt(4) == 0 ? Long.lowestOneBit(hands[0]) : 0L;
+			long[] expected = bruteForce(hands[0], tableKey, required);
+			long[] actual = Arrays.copyOf(generator.moves, generator.generate(hands[0], tableKey, required));
+			Arrays.sort(actual);
+			if (!Arrays.equals(expected, actual)) {
+				throw new AssertionError(String.format("cards %x, table key %d, required %x: %d moves instead of %d",
+						hands[0], tableKey, required, actual.length, expected.length));
+			}
+			numOfMoves += expected.length;
+		}
+		System.out.println(String.format("%d deals checked against brute force, %d moves", numOfChecks, numOfMoves));
+
+		long check = 0L;
+		long start = System.nanoTime();
+		for (int i = 0; i < numOfRuns; i++) {
+			dealer.deal(random, hands);
+			check += generator.generate(hands[0]);
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.println(String.format("%d holdings in %.2f s, %.0f ns per holding, deal included (%d moves)",
+				numOfRuns, seconds, seconds * 1e9 / numOfRuns, check));
+	}
+
+	/**
+	 * Returns the cards of the specified rank, as a CardSet mask.
+	 */
+	private static long rankGroup(long cards, int rank) {
+		return cards & (0xFL << (rank * 4));
+	}
+
+	/**
+	 * Adds a candidate move if it contains the required cards and beats the hand
+	 * on the table.
+	 */
+	private void add(long move) {
+		if ((move & required) != required) {
+			return;
+		}
+		if (tableKey != ANY_HAND && !HandClassifier.beats(HandClassifier.keyOf(move), tableKey)) {
+			return;
+		}
+		if (numOfMoves == moves.length) {
+			moves = Arrays.copyOf(moves, moves.length * 2);
+		}
+		moves[numOfMoves++] = move;
+	}
+}
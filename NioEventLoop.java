@@ -0,0 +1,191 @@
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * This class is a thread serving many non-blocking client connections with one
+ * Selector. Every read and write of its connections happens on this thread;
+ * other threads hand work to it with execute().
+ * <p>
+ * A RuntimeException thrown while serving a connection closes only that
+ * connection, and one thrown by a task is dropped, so the other connections
+ * of the loop keep being served.
+ *
+ * @author Kang Hyunwoo
+ */
+public class NioEventLoop implements Runnable {
+	private final Selector selector;
+	private final Thread thread;
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+	private volatile boolean running = true;
+	// whether the stack traces of the exceptions caught by the loop are hidden
+	private volatile boolean silentMode = true;
+
+	/**
+	 * Creates an event loop. The loop does nothing until start() is called.
+	 *
+	 * @param name the name of the thread of the loop
+	 * @throws IOException if the selector cannot be opened
+	 */
+	public NioEventLoop(String name) throws IOException {
+		this.selector = Selector.open();
+		this.thread = new Thread(this, name);
+	}
+
+	/**
+	 * Sets whether the stack traces of the exceptions caught by this loop are
+	 * hidden.
+	 *
+	 * @param silentMode true to hide them, false to print them
+	 */
+	public void setSilentMode(boolean silentMode) {
+		this.silentMode = silentMode;
+	}
+
+	/**
+	 * Starts the thread of this loop.
+	 */
+	public void start() {
+		thread.start();
+	}
+
+	/**
+	 * Stops this loop and closes all its connections.
+	 */
+	public void shutdown() {
+		running = false;
+		selector.wakeup();
+	}
+
+	/**
+	 * Waits for the thread of this loop to finish after shutdown().
+	 *
+	 * @param timeoutMillis the longest time to wait, in milliseconds
+	 * @return true if the thread has finished
+	 * @throws InterruptedException if the calling thread is interrupted
+	 */
+	public boolean awaitTermination(long timeoutMillis) throws InterruptedException {
+		thread.join(timeoutMillis);
+		return !thread.isAlive();
+	}
+
+	/**
+	 * Returns true if the calling thread is the thread of this loop.
+	 *
+	 * @return true if called from this loop; otherwise false
+	 */
+	public boolean inEventLoop() {
+		return Thread.currentThread() == thread;
+	}
+
+	/**
+	 * Runs the specified task on the thread of this loop.
+	 *
+	 * @param task the task to be run
+	 */
+	public void execute(Runnable task) {
+		tasks.add(task);
+		if (!inEventLoop()) {
+			selector.wakeup();
+		}
+	}
+
+	/**
+	 * Adds an accepted channel to this loop.
+	 *
+	 * @param channel the channel of a new client
+	 * @param handler the handler receiving the events of the connection
+	 * @param queue   the queue of the messages waiting to be written to the
+	 *                client
+	 */
+	public void register(SocketChannel channel, ClientConnection.Handler handler, SendQueue queue) {
+		execute(() -> {
+			try {
+				channel.configureBlocking(false);
+				ChannelConnection connection = new ChannelConnection(channel, this, handler, queue);
+				connection.setKey(channel.register(selector, SelectionKey.OP_READ, connection));
+			} catch (IOException ex) {
+				try {
+					channel.close();
+				} catch (IOException e) {
+					// nothing more can be done
+				}
+			}
+		});
+	}
+
+	// implementation of method from the Runnable interface
+	public void run() {
+		while (running) {
+			try {
+				// do not block while tasks are waiting
+				if (tasks.isEmpty()) {
+					selector.select();
+				} else {
+					selector.selectNow();
+				}
+			} catch (IOException ex) {
+				break;
+			}
+			Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+			while (keys.hasNext()) {
+				SelectionKey key = keys.next();
+				keys.remove();
+				ChannelConnection connection = (ChannelConnection) key.attachment();
+				try {
+					if (key.isValid() && key.isReadable()) {
+						connection.handleRead();
+					}
+					if (key.isValid() && key.isWritable()) {
+						connection.flush();
+					}
+				} catch (RuntimeException ex) {
+					caught(ex);
+					close(connection);
+				}
+			}
+			// run the tasks queued so far; tasks queued by these ones wait for the next round
+			for (int n = tasks.size(); n > 0; n--) {
+				try {
+					tasks.poll().run();
+				} catch (RuntimeException ex) {
+					caught(ex);
+				}
+			}
+		}
+
+		for (SelectionKey key : new ArrayList<SelectionKey>(selector.keys())) {
+			close((ChannelConnection) key.attachment());
+		}
+		try {
+			selector.close();
+		} catch (IOException ex) {
+			// the loop is over anyway
+		}
+	}
+
+	/**
+	 * Closes a connection, even if the handler of its closing fails.
+	 */
+	private void close(ChannelConnection connection) {
+		try {
+			connection.closeNow();
+		} catch (RuntimeException ex) {
+			caught(ex);
+		}
+	}
+
+	/**
+	 * Reports an exception caught by the loop, unless in silent mode.
+	 */
+	private void caught(RuntimeException ex) {
+		if (!silentMode) {
+			ex.printStackTrace();
+		}
+	}
+}
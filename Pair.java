@@ -24,6 +24,14 @@ public class Pair extends Hand{
 		return "Pair";
 	}
 	
+	/**
+	 * method for getting the type code of this hand
+	 * @return HandClassifier.PAIR
+	 */
+	public int getTypeCode() {
+		return HandClassifier.PAIR;
+	}
+	
 	/**
 	 * method for checking whether the hand is valid
 	 * @return true if the hand is valid pair, false if it is not
@@ -23,6 +23,14 @@ public class Quad extends Hand{
 		return "Quad";
 	}
 	
+	/**
+	 * method for getting the type code of this hand
+	 * @return HandClassifier.QUAD
+	 */
+	public int getTypeCode() {
+		return HandClassifier.QUAD;
+	}
+	
 	/**
 	 * a method for checking whether the type is valid Quad.
 	 * @return true if the hand is Quad, return false if it is not.
@@ -59,6 +67,7 @@ public class Quad extends Hand{
 	 * @return topCard top card of the Quad hand.
 	 */
 	public Card getTopCard() {
+		this.refresh();
 		Card topCard;
 		if(this.getCard(0).getRank() == this.getCard(1).getRank()) { //for example, 3 3 3 3 8 => 3 in index 3 is the topcard
 			topCard = this.getCard(3);
@@ -68,22 +77,4 @@ public class Quad extends Hand{
 		}
 		return topCard;
 	}
-	
-	/**
-	 * a method for checking if this hand beats Straight, Flush or FullHouse
-	 * @param hand Hand object, specifically Quad hand 
-	 * @return boolean true if player's hand beats the latest hand, false if not.
-	 */
-	public boolean beats(Hand hand) {
-		if(this.getType() != hand.getType()) {
-			if(hand.getType()=="Straight" || hand.getType()=="Flush" || hand.getType()=="FullHouse") {
-				return true;
-			} else {
-				return false;
-			}
-		} 
-		else {//both Quad
-			return(this.getTopCard().getRank() > hand.getTopCard().getRank());
-		}
-	}
 }
@@ -0,0 +1,46 @@
+import java.util.SplittableRandom;
+
+/**
+ * This class is a Big Two policy which plays a legal hand chosen uniformly at
+ * random, and passes with a given probability when passing is allowed.
+ *
+ * @author Kang Hyunwoo
+ */
+public class RandomPolicy implements BigTwoPolicy {
+	private final double passRate;
+
+	/**
+	 * Creates a random policy which never passes when it can play.
+	 */
+	public RandomPolicy() {
+		this(0.0);
+	}
+
+	/**
+	 * Creates a random policy.
+	 *
+	 * @param passRate the probability of passing when passing is allowed
+	 */
+	public RandomPolicy(double passRate) {
+		this.passRate = passRate;
+	}
+
+	/**
+	 * Chooses a random legal move of the current player.
+	 *
+	 * @param game      the game being played
+	 * @param generator a move generator
+	 * @param random    the random number generator of the calling thread
+	 * @return the CardSet mask of the chosen cards, or 0 to pass
+	 */
+	public long chooseMove(BigTwo game, MoveGenerator generator, SplittableRandom random) {
+		int tableKey = game.getTableKey();
+		long cards = game.getPlayerList().get(game.getCurrentPlayerIdx()).getCardsInHand().getMask();
+		int numOfMoves = generator.generate(cards, tableKey, game.getRequiredCards());
+		boolean canPass = tableKey != MoveGenerator.ANY_HAND;
+		if (numOfMoves == 0 || (canPass && random.nextDouble() < passRate)) {
+			return 0L;
+		}
+		return generator.getMove(random.nextInt(numOfMoves));
+	}
+}
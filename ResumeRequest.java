@@ -0,0 +1,46 @@
+import java.io.Serializable;
+
+/**
+ * This class is used to model the request of a client to resume its seat after
+ * losing the connection to the server: the session token it was given, and
+ * the sequence number of the last event of the game it has seen, so the server
+ * only sends what the client has missed.
+ *
+ * @author Kang Hyunwoo
+ */
+public class ResumeRequest implements Serializable {
+	private static final long serialVersionUID = 7480203711365123907L;
+	private final String token;
+	private final int lastSeq;
+
+	/**
+	 * Creates and returns an instance of the ResumeRequest class.
+	 *
+	 * @param token   the session token sent by the server
+	 * @param lastSeq the sequence number of the last START or MOVE_DELTA seen
+	 *                by the client, or -1 if it has not seen the current game
+	 */
+	public ResumeRequest(String token, int lastSeq) {
+		this.token = token;
+		this.lastSeq = lastSeq;
+	}
+
+	/**
+	 * Returns the session token.
+	 *
+	 * @return the session token sent by the server
+	 */
+	public String getToken() {
+		return token;
+	}
+
+	/**
+	 * Returns the sequence number of the last event seen by the client.
+	 *
+	 * @return the sequence number, or -1 if the client has not seen the
+	 *         current game
+	 */
+	public int getLastSeq() {
+		return lastSeq;
+	}
+}
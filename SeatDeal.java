@@ -0,0 +1,97 @@
+import java.io.Serializable;
+
+/**
+ * This class is used to model the deal of one seat at the start of a game:
+ * the cards of that seat, the number of cards of every seat and the player
+ * who holds the Three of Diamonds and so moves first. The server sends each
+ * client only its own deal instead of the whole deck, so a client cannot see
+ * the cards of the other players. A deal has the sequence number of the table,
+ * as the moves of the game have (see MoveDelta).
+ * <p>
+ * A spectator is sent the deal of seat -1, which holds no cards.
+ *
+ * @author Kang Hyunwoo
+ */
+public class SeatDeal implements Serializable {
+	private static final long serialVersionUID = -2781440357413262315L;
+	private final int seat;
+	private final long cards;
+	private final int[] numOfCards;
+	private final int firstPlayerIdx;
+	private final int seq;
+
+	/**
+	 * Creates and returns an instance of the SeatDeal class.
+	 *
+	 * @param seat           index of the seat receiving this deal, or -1 for a
+	 *                       spectator
+	 * @param cards          CardSet mask of the cards of the seat, or 0 for a
+	 *                       spectator
+	 * @param numOfCards     the number of cards dealt to each seat
+	 * @param firstPlayerIdx index of the player who moves first
+	 * @param seq            the sequence number of the start of the game at its
+	 *                       table
+	 */
+	public SeatDeal(int seat, long cards, int[] numOfCards, int firstPlayerIdx, int seq) {
+		this.seat = seat;
+		this.cards = cards;
+		this.numOfCards = numOfCards;
+		this.firstPlayerIdx = firstPlayerIdx;
+		this.seq = seq;
+	}
+
+	/**
+	 * Returns the seat receiving this deal.
+	 *
+	 * @return index of the seat, or -1 for a spectator
+	 */
+	public int getSeat() {
+		return seat;
+	}
+
+	/**
+	 * Returns the cards of the seat.
+	 *
+	 * @return CardSet mask of the cards of the seat
+	 */
+	public long getCards() {
+		return cards;
+	}
+
+	/**
+	 * Returns the number of cards dealt to the specified seat.
+	 *
+	 * @param playerIdx index of a seat
+	 * @return the number of cards of the seat
+	 */
+	public int getNumOfCards(int playerIdx) {
+		return numOfCards[playerIdx];
+	}
+
+	/**
+	 * Returns the number of seats.
+	 *
+	 * @return the number of seats dealt
+	 */
+	public int getNumOfPlayers() {
+		return numOfCards.length;
+	}
+
+	/**
+	 * Returns the player who moves first.
+	 *
+	 * @return index of the player holding the Three of Diamonds
+	 */
+	public int getFirstPlayerIdx() {
+		return firstPlayerIdx;
+	}
+
+	/**
+	 * Returns the sequence number of the start of the game.
+	 *
+	 * @return the sequence number of the deal at its table
+	 */
+	public int getSeq() {
+		return seq;
+	}
+}
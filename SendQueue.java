@@ -0,0 +1,247 @@
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * This class is a bounded queue of the messages waiting to be written to one
+ * client. Messages are queued by the thread which sends them, usually while
+ * holding the lock of a table, and written later by the thread draining the
+ * queue, so a client which reads slowly only fills its own queue instead of
+ * stalling every broadcast of the server.
+ * <p>
+ * When the queue is full, its overflow policy decides what happens:
+ * <ul>
+ * <li>DROP_CHAT: chat (MSG) messages are dropped, the oldest queued one first;
+ * the client is disconnected only if a game message finds no chat to drop</li>
+ * <li>DISCONNECT: the client is disconnected</li>
+ * <li>COALESCE: the queued chat messages are merged into one to make room; the
+ * client is disconnected only if nothing can be merged</li>
+ * </ul>
+ * Game messages are never dropped, since a client missing one would fall out
+ * of step with its table.
+ *
+ * @author Kang Hyunwoo
+ */
+public class SendQueue {
+	/**
+	 * Overflow policy dropping chat messages.
+	 */
+	public static final int DROP_CHAT = 0;
+	/**
+	 * Overflow policy disconnecting the client.
+	 */
+	public static final int DISCONNECT = 1;
+	/**
+	 * Overflow policy merging chat messages.
+	 */
+	public static final int COALESCE = 2;
+	/**
+	 * The default number of messages a queue holds.
+	 */
+	public static final int DEFAULT_CAPACITY = 256;
+
+	private final ArrayDeque<Entry> entries = new ArrayDeque<Entry>();
+	private final int capacity;
+	private final int overflowPolicy;
+	private final SendQueueMetrics metrics;
+	// whether the queue has overflowed and the client is being disconnected
+	private boolean overflowed = false;
+
+	/**
+	 * Creates an empty queue.
+	 *
+	 * @param capacity       the largest number of messages in the queue
+	 * @param overflowPolicy DROP_CHAT, DISCONNECT or COALESCE
+	 * @param metrics        the metrics shared by the queues of a server
+	 */
+	public SendQueue(int capacity, int overflowPolicy, SendQueueMetrics metrics) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Bad capacity: " + capacity);
+		}
+		if (overflowPolicy < DROP_CHAT || overflowPolicy > COALESCE) {
+			throw new IllegalArgumentException("Bad overflow policy: " + overflowPolicy);
+		}
+		this.capacity = capacity;
+		this.overflowPolicy = overflowPolicy;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Adds a message to the queue, applying the overflow policy if the queue is
+	 * full.
+	 *
+	 * @param message the message to be sent
+	 * @return true if the message has been queued, dropped or merged; false if
+	 *         the client must be disconnected
+	 */
+	public synchronized boolean offer(CardGameMessage message) {
+		if (overflowed) {
+			return false;
+		}
+		if (entries.size() < capacity || makeRoom(message)) {
+			entries.add(new Entry(message));
+			metrics.queued(entries.size());
+			return true;
+		}
+		if (isChat(message)) {
+			if (overflowPolicy == DROP_CHAT) {
+				metrics.dropped();
+				return true;
+			}
+			if (overflowPolicy == COALESCE && mergeIntoLastChat(message)) {
+				metrics.coalesced(1);
+				return true;
+			}
+		}
+		overflowed = true;
+		metrics.overflowed();
+		return false;
+	}
+
+	/**
+	 * Removes the first message of the queue.
+	 *
+	 * @return the first entry, or null if the queue is empty
+	 */
+	public synchronized Entry poll() {
+		Entry entry = entries.poll();
+		if (entry != null) {
+			metrics.dequeued(1);
+		}
+		return entry;
+	}
+
+	/**
+	 * Records that the message of the specified entry has been written.
+	 *
+	 * @param entry an entry returned by poll()
+	 */
+	public void sent(Entry entry) {
+		metrics.sent(entry.message.getType(), System.nanoTime() - entry.queuedAt);
+	}
+
+	/**
+	 * Records the time taken to serialize a message of this queue.
+	 *
+	 * @param message the message serialized
+	 * @param nanos   the time taken, in nanoseconds
+	 */
+	public void encoded(CardGameMessage message, long nanos) {
+		metrics.encoded(message.getType(), nanos);
+	}
+
+	/**
+	 * Returns the number of messages in the queue.
+	 *
+	 * @return the depth of the queue
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Drops every message in the queue, when the connection is closed.
+	 */
+	public synchronized void clear() {
+		metrics.dequeued(entries.size());
+		entries.clear();
+	}
+
+	/**
+	 * Makes room in a full queue for the specified message by dropping or
+	 * merging chat messages, as allowed by the overflow policy.
+	 */
+	private boolean makeRoom(CardGameMessage message) {
+		switch (overflowPolicy) {
+		case DROP_CHAT:
+			if (isChat(message)) {
+				return false;
+			}
+			for (Iterator<Entry> it = entries.iterator(); it.hasNext();) {
+				if (isChat(it.next().message)) {
+					it.remove();
+					metrics.dequeued(1);
+					metrics.dropped();
+					return true;
+				}
+			}
+			return false;
+		case COALESCE:
+			return coalesceChat();
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Merges all the queued chat messages into the first of them.
+	 *
+	 * @return true if a message has been removed from the queue
+	 */
+	private boolean coalesceChat() {
+		Entry first = null;
+		StringBuilder text = null;
+		int numOfMerged = 0;
+		for (Iterator<Entry> it = entries.iterator(); it.hasNext();) {
+			Entry entry = it.next();
+			if (!isChat(entry.message)) {
+				continue;
+			}
+			if (first == null) {
+				first = entry;
+				text = new StringBuilder(String.valueOf(entry.message.getData()));
+			} else {
+				text.append('\n').append(entry.message.getData());
+				it.remove();
+				numOfMerged++;
+			}
+		}
+		if (numOfMerged == 0) {
+			return false;
+		}
+		// the message may be shared with other queues, so it is replaced
+		first.message = new CardGameMessage(CardGameMessage.MSG, first.message.getPlayerID(), text.toString());
+		metrics.dequeued(numOfMerged);
+		metrics.coalesced(numOfMerged);
+		return true;
+	}
+
+	/**
+	 * Appends a chat message to the last queued chat message.
+	 */
+	private boolean mergeIntoLastChat(CardGameMessage message) {
+		for (Iterator<Entry> it = entries.descendingIterator(); it.hasNext();) {
+			Entry entry = it.next();
+			if (isChat(entry.message)) {
+				entry.message = new CardGameMessage(CardGameMessage.MSG, entry.message.getPlayerID(),
+						entry.message.getData() + "\n" + message.getData());
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isChat(CardGameMessage message) {
+		return message.getType() == CardGameMessage.MSG;
+	}
+
+	/**
+	 * A message in the queue, with the time it was queued.
+	 */
+	public static final class Entry {
+		private CardGameMessage message;
+		private final long queuedAt = System.nanoTime();
+
+		private Entry(CardGameMessage message) {
+			this.message = message;
+		}
+
+		/**
+		 * Returns the message to be written.
+		 *
+		 * @return the message
+		 */
+		public CardGameMessage getMessage() {
+			return message;
+		}
+	}
+}
@@ -0,0 +1,174 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class collects the metrics of the send queues of a server: how many
+ * messages are waiting, how long a message takes from being queued to being
+ * written, how long it takes to serialize, and how often the queues overflow.
+ * It is shared by all the queues, which update it from many threads.
+ *
+ * @author Kang Hyunwoo
+ */
+public class SendQueueMetrics {
+	private final AtomicLong queueDepth = new AtomicLong();
+	private final AtomicLong maxQueueDepth = new AtomicLong();
+	private final AtomicLong messagesSent = new AtomicLong();
+	private final AtomicLong totalSendNanos = new AtomicLong();
+	private final AtomicLong maxSendNanos = new AtomicLong();
+	private final AtomicLong messagesDropped = new AtomicLong();
+	private final AtomicLong messagesCoalesced = new AtomicLong();
+	private final AtomicLong overflows = new AtomicLong();
+	// the number of messages sent and the serialization times, by message type
+	private final AtomicLongArray messagesSentByType = new AtomicLongArray(ServerMetrics.NUM_OF_TYPES);
+	private final LatencyHistogram[] encodeLatencies = new LatencyHistogram[ServerMetrics.NUM_OF_TYPES];
+
+	/**
+	 * Creates the metrics of the send queues of a server, with nothing
+	 * recorded.
+	 */
+	public SendQueueMetrics() {
+		for (int i = 0; i < encodeLatencies.length; i++) {
+			encodeLatencies[i] = new LatencyHistogram();
+		}
+	}
+
+	void queued(int depth) {
+		queueDepth.incrementAndGet();
+		maxQueueDepth.accumulateAndGet(depth, Math::max);
+	}
+
+	void dequeued(int numOfMessages) {
+		queueDepth.addAndGet(-numOfMessages);
+	}
+
+	void sent(int type, long nanos) {
+		messagesSent.incrementAndGet();
+		if (type >= 0 && type < ServerMetrics.NUM_OF_TYPES) {
+			messagesSentByType.incrementAndGet(type);
+		}
+		totalSendNanos.addAndGet(nanos);
+		maxSendNanos.accumulateAndGet(nanos, Math::max);
+	}
+
+	void encoded(int type, long nanos) {
+		if (type >= 0 && type < ServerMetrics.NUM_OF_TYPES) {
+			encodeLatencies[type].record(nanos);
+		}
+	}
+
+	void dropped() {
+		messagesDropped.incrementAndGet();
+	}
+
+	void coalesced(int numOfMessages) {
+		messagesCoalesced.addAndGet(numOfMessages);
+	}
+
+	void overflowed() {
+		overflows.incrementAndGet();
+	}
+
+	/**
+	 * Returns the number of messages waiting in all the queues.
+	 *
+	 * @return the total depth of the queues
+	 */
+	public long getQueueDepth() {
+		return queueDepth.get();
+	}
+
+	/**
+	 * Returns the largest depth reached by a single queue.
+	 *
+	 * @return the largest number of messages waiting for one client
+	 */
+	public long getMaxQueueDepth() {
+		return maxQueueDepth.get();
+	}
+
+	/**
+	 * Returns the number of messages written.
+	 *
+	 * @return the number of messages sent
+	 */
+	public long getMessagesSent() {
+		return messagesSent.get();
+	}
+
+	/**
+	 * Returns the number of messages of the specified type written.
+	 *
+	 * @param type the type of the messages
+	 * @return the number of messages of the type sent
+	 */
+	public long getMessagesSent(int type) {
+		return type >= 0 && type < ServerMetrics.NUM_OF_TYPES ? messagesSentByType.get(type) : 0;
+	}
+
+	/**
+	 * Returns the times taken to serialize the messages of the specified type:
+	 * to encode a frame, once per codec for a shared message, or to write an
+	 * object to an ObjectOutputStream and flush it.
+	 *
+	 * @param type the type of the messages
+	 * @return the histogram of the serialization times, or null for an
+	 *         unknown type
+	 */
+	public LatencyHistogram getEncodeLatency(int type) {
+		return type >= 0 && type < ServerMetrics.NUM_OF_TYPES ? encodeLatencies[type] : null;
+	}
+
+	/**
+	 * Returns the average time from queueing a message to writing it.
+	 *
+	 * @return the average time to send, in milliseconds
+	 */
+	public double getAverageSendMillis() {
+		long sent = messagesSent.get();
+		return sent == 0 ? 0 : totalSendNanos.get() / 1e6 / sent;
+	}
+
+	/**
+	 * Returns the longest time from queueing a message to writing it.
+	 *
+	 * @return the longest time to send, in milliseconds
+	 */
+	public double getMaxSendMillis() {
+		return maxSendNanos.get() / 1e6;
+	}
+
+	/**
+	 * Returns the number of chat messages dropped by full queues.
+	 *
+	 * @return the number of dropped messages
+	 */
+	public long getMessagesDropped() {
+		return messagesDropped.get();
+	}
+
+	/**
+	 * Returns the number of chat messages merged into others by full queues.
+	 *
+	 * @return the number of coalesced messages
+	 */
+	public long getMessagesCoalesced() {
+		return messagesCoalesced.get();
+	}
+
+	/**
+	 * Returns the number of clients disconnected because their queue was full.
+	 *
+	 * @return the number of overflows
+	 */
+	public long getOverflows() {
+		return overflows.get();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d sent (avg %.2f ms, max %.2f ms), %d queued (max %d), "
+				+ "%d dropped, %d coalesced, %d overflows", getMessagesSent(), getAverageSendMillis(),
+				getMaxSendMillis(), getQueueDepth(), getMaxQueueDepth(), getMessagesDropped(),
+				getMessagesCoalesced(), getOverflows());
+	}
+}
@@ -0,0 +1,79 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * This class is a message codec which uses Java serialization, so every
+ * CardGameMessage type and its data can be sent without any change. Each frame
+ * holds a complete serialization stream, so frames can be decoded one by one
+ * without any state kept between them.
+ *
+ * @author Kang Hyunwoo
+ */
+public class SerializedMessageCodec implements MessageCodec {
+	/**
+	 * The id of this codec in the handshake.
+	 */
+	public static final int ID = 1;
+	/**
+	 * The shared instance of this codec, which keeps no state.
+	 */
+	public static final SerializedMessageCodec INSTANCE = new SerializedMessageCodec();
+
+	// limits on what a frame from the network may make the server allocate
+	private static final ObjectInputFilter FILTER = ObjectInputFilter.Config
+			.createFilter("maxbytes=" + FramedProtocol.MAX_FRAME_LENGTH + ";maxdepth=16;maxrefs=4096;maxarray=1024");
+
+	private SerializedMessageCodec() {
+	}
+
+	/**
+	 * Returns the id of this codec.
+	 *
+	 * @return SerializedMessageCodec.ID
+	 */
+	public int getId() {
+		return ID;
+	}
+
+	/**
+	 * Encodes the specified message with an ObjectOutputStream.
+	 *
+	 * @param message the message to be encoded
+	 * @return the serialized message
+	 * @throws IOException if the message cannot be serialized
+	 */
+	public byte[] encode(CardGameMessage message) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		ObjectOutputStream oostream = new ObjectOutputStream(bytes);
+		oostream.writeObject(message);
+		oostream.close();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Decodes a message with an ObjectInputStream.
+	 *
+	 * @param buffer the array holding the payload
+	 * @param offset the position of the payload in the array
+	 * @param length the length of the payload
+	 * @return the deserialized message
+	 * @throws IOException if the payload is not a serialized CardGameMessage
+	 */
+	public CardGameMessage decode(byte[] buffer, int offset, int length) throws IOException {
+		ObjectInputStream oistream = new ObjectInputStream(new ByteArrayInputStream(buffer, offset, length));
+		oistream.setObjectInputFilter(FILTER);
+		try {
+			Object object = oistream.readObject();
+			if (!(object instanceof CardGameMessage)) {
+				throw new IOException("Not a CardGameMessage: " + object);
+			}
+			return (CardGameMessage) object;
+		} catch (ClassNotFoundException ex) {
+			throw new IOException(ex);
+		}
+	}
+}
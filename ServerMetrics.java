@@ -0,0 +1,255 @@
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * This class collects the metrics of a card game server and exposes them over
+ * JMX. For each type of message it records, in LatencyHistograms:
+ * <ul>
+ * <li>the parse time: from handing a message received to the server until the
+ * server and the table are done with it, broadcasts included;</li>
+ * <li>the broadcast time: from a table starting a broadcast until the message
+ * is queued for every player and spectator;</li>
+ * <li>the serialization time, kept by the SendQueueMetrics of the server.</li>
+ * </ul>
+ * Recording is lock-free, a few atomic increments per message, so it is
+ * always on. The snapshots are computed when they are read, e.g. by a JMX
+ * console; the number of active connections and tables in progress are read
+ * from the server at the same time.
+ * <p>
+ * The server registers its metrics on the platform MBean server when it
+ * starts, as "BigTwo:type=CardGameServer,name=&lt;server name&gt;,port=&lt;port&gt;",
+ * and unregisters them when it stops.
+ *
+ * @author Kang Hyunwoo
+ */
+public class ServerMetrics implements ServerMetricsMXBean {
+	/**
+	 * The number of message types whose metrics are kept; the types are 0 to
+	 * CardGameMessage.SPECTATE.
+	 */
+	public static final int NUM_OF_TYPES = CardGameMessage.SPECTATE + 1;
+
+	// the name of each message type, the key of the maps of the metrics
+	private static final String[] TYPE_NAMES = { "PLAYER_LIST", "JOIN", "FULL", "QUIT", "READY", "START", "MOVE",
+			"MSG", "MOVE_DELTA", "SESSION", "RESUME", "SNAPSHOT", "SPECTATE" };
+
+	private final CardGameServer server;
+	private final long startNanos = System.nanoTime();
+	private final LatencyHistogram[] parseLatencies = new LatencyHistogram[NUM_OF_TYPES];
+	private final LatencyHistogram[] broadcastLatencies = new LatencyHistogram[NUM_OF_TYPES];
+	private final AtomicLong turnsTimedOut = new AtomicLong();
+	// the name under which these metrics are registered, or null
+	private ObjectName objectName = null;
+
+	/**
+	 * Creates the metrics of the specified server, with nothing recorded.
+	 *
+	 * @param server the server
+	 */
+	public ServerMetrics(CardGameServer server) {
+		this.server = server;
+		for (int i = 0; i < NUM_OF_TYPES; i++) {
+			parseLatencies[i] = new LatencyHistogram();
+			broadcastLatencies[i] = new LatencyHistogram();
+		}
+	}
+
+	void parsed(int type, long nanos) {
+		if (type >= 0 && type < NUM_OF_TYPES) {
+			parseLatencies[type].record(nanos);
+		}
+	}
+
+	void broadcast(int type, long nanos) {
+		if (type >= 0 && type < NUM_OF_TYPES) {
+			broadcastLatencies[type].record(nanos);
+		}
+	}
+
+	void turnTimedOut() {
+		turnsTimedOut.incrementAndGet();
+	}
+
+	/**
+	 * Returns the parse times of the messages of the specified type.
+	 *
+	 * @param type the type of the messages
+	 * @return the histogram of the parse times, or null for an unknown type
+	 */
+	public LatencyHistogram getParseLatency(int type) {
+		return type >= 0 && type < NUM_OF_TYPES ? parseLatencies[type] : null;
+	}
+
+	/**
+	 * Returns the broadcast times of the messages of the specified type.
+	 *
+	 * @param type the type of the messages
+	 * @return the histogram of the broadcast times, or null for an unknown type
+	 */
+	public LatencyHistogram getBroadcastLatency(int type) {
+		return type >= 0 && type < NUM_OF_TYPES ? broadcastLatencies[type] : null;
+	}
+
+	/**
+	 * Registers these metrics on the platform MBean server, in place of any
+	 * registered under the same name.
+	 *
+	 * @param serverName the name of the server
+	 * @param port       the port at which the server listens
+	 * @throws JMException if the metrics cannot be registered
+	 */
+	synchronized void register(String serverName, int port) throws JMException {
+		unregister();
+		ObjectName name = new ObjectName("BigTwo:type=CardGameServer,name=" + ObjectName.quote(serverName)
+				+ ",port=" + port);
+		MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		if (mbeanServer.isRegistered(name)) {
+			mbeanServer.unregisterMBean(name);
+		}
+		mbeanServer.registerMBean(this, name);
+		objectName = name;
+	}
+
+	/**
+	 * Unregisters these metrics from the platform MBean server, if they are
+	 * registered.
+	 */
+	synchronized void unregister() {
+		if (objectName == null) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		} catch (JMException ex) {
+			// already unregistered
+		}
+		objectName = null;
+	}
+
+	public double getUptimeSeconds() {
+		return (System.nanoTime() - startNanos) / 1e9;
+	}
+
+	public int getActiveConnections() {
+		return server.getNumOfConnections();
+	}
+
+	public int getClientsWaiting() {
+		return server.getNumOfWaiting();
+	}
+
+	public int getTables() {
+		return server.getNumOfTables();
+	}
+
+	public int getTablesInProgress() {
+		return server.getNumOfTablesInProgress();
+	}
+
+	public long getTurnsTimedOut() {
+		return turnsTimedOut.get();
+	}
+
+	public Map<String, Long> getMessagesReceived() {
+		Map<String, Long> counters = new LinkedHashMap<String, Long>();
+		for (int i = 0; i < NUM_OF_TYPES; i++) {
+			counters.put(TYPE_NAMES[i], parseLatencies[i].getCount());
+		}
+		return counters;
+	}
+
+	public Map<String, Long> getMessagesSent() {
+		SendQueueMetrics sendQueueMetrics = server.getSendQueueMetrics();
+		Map<String, Long> counters = new LinkedHashMap<String, Long>();
+		for (int i = 0; i < NUM_OF_TYPES; i++) {
+			counters.put(TYPE_NAMES[i], sendQueueMetrics.getMessagesSent(i));
+		}
+		return counters;
+	}
+
+	public Map<String, LatencyStats> getParseLatencies() {
+		return statsOf(parseLatencies);
+	}
+
+	public Map<String, LatencyStats> getBroadcastLatencies() {
+		return statsOf(broadcastLatencies);
+	}
+
+	public Map<String, LatencyStats> getSerializationLatencies() {
+		LatencyHistogram[] histograms = new LatencyHistogram[NUM_OF_TYPES];
+		for (int i = 0; i < NUM_OF_TYPES; i++) {
+			histograms[i] = server.getSendQueueMetrics().getEncodeLatency(i);
+		}
+		return statsOf(histograms);
+	}
+
+	public double getAverageSendMillis() {
+		return server.getSendQueueMetrics().getAverageSendMillis();
+	}
+
+	public long getQueueDepth() {
+		return server.getSendQueueMetrics().getQueueDepth();
+	}
+
+	public long getMessagesDropped() {
+		return server.getSendQueueMetrics().getMessagesDropped();
+	}
+
+	public long getMessagesCoalesced() {
+		return server.getSendQueueMetrics().getMessagesCoalesced();
+	}
+
+	public long getOverflows() {
+		return server.getSendQueueMetrics().getOverflows();
+	}
+
+	public long getBytesSinceReset() {
+		return server.getBytesSinceReset();
+	}
+
+	/**
+	 * Takes a snapshot of each histogram with a latency recorded, keyed by the
+	 * name of its message type.
+	 */
+	private Map<String, LatencyStats> statsOf(LatencyHistogram[] histograms) {
+		double seconds = getUptimeSeconds();
+		Map<String, LatencyStats> stats = new LinkedHashMap<String, LatencyStats>();
+		for (int i = 0; i < NUM_OF_TYPES; i++) {
+			if (histograms[i].getCount() > 0) {
+				stats.put(TYPE_NAMES[i], LatencyStats.of(histograms[i], seconds));
+			}
+		}
+		return stats;
+	}
+
+	private static Object orDash(LatencyStats stats) {
+		return stats != null ? stats : "-";
+	}
+
+	/**
+	 * Returns the parse, broadcast and serialization times of each message
+	 * type seen, one type per line.
+	 *
+	 * @return the summary of these metrics
+	 */
+	public String toString() {
+		StringBuilder builder = new StringBuilder(String.format("%d connections, %d of %d tables in progress",
+				getActiveConnections(), getTablesInProgress(), getTables()));
+		Map<String, LatencyStats> parse = getParseLatencies();
+		Map<String, LatencyStats> broadcast = getBroadcastLatencies();
+		Map<String, LatencyStats> serialization = getSerializationLatencies();
+		for (String name : TYPE_NAMES) {
+			if (parse.containsKey(name) || broadcast.containsKey(name) || serialization.containsKey(name)) {
+				builder.append(String.format("%n  %-11s parse %s; broadcast %s; serialize %s", name,
+						orDash(parse.get(name)), orDash(broadcast.get(name)), orDash(serialization.get(name))));
+			}
+		}
+		return builder.toString();
+	}
+}
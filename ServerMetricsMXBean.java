@@ -0,0 +1,137 @@
+import java.util.Map;
+
+/**
+ * This interface is the management interface of the metrics of a card game
+ * server, registered on the platform MBean server while the server is up (see
+ * ServerMetrics). The maps of latencies and counters are keyed by the name of
+ * the message type, e.g. "MOVE", and appear as tabular data in a JMX console.
+ *
+ * @author Kang Hyunwoo
+ */
+public interface ServerMetricsMXBean {
+	/**
+	 * Returns the time since the server started.
+	 *
+	 * @return the uptime, in seconds
+	 */
+	double getUptimeSeconds();
+
+	/**
+	 * Returns the number of clients connected: the players, the spectators
+	 * and the clients in the lobby.
+	 *
+	 * @return the number of active connections
+	 */
+	int getActiveConnections();
+
+	/**
+	 * Returns the number of clients waiting in the lobby.
+	 *
+	 * @return the number of clients in the lobby
+	 */
+	int getClientsWaiting();
+
+	/**
+	 * Returns the number of tables with at least one player.
+	 *
+	 * @return the number of tables
+	 */
+	int getTables();
+
+	/**
+	 * Returns the number of tables at which a game is being played.
+	 *
+	 * @return the number of tables in progress
+	 */
+	int getTablesInProgress();
+
+	/**
+	 * Returns the number of turns in which the player ran out of time and the
+	 * table moved for the player.
+	 *
+	 * @return the number of turns timed out
+	 */
+	long getTurnsTimedOut();
+
+	/**
+	 * Returns the number of messages received from the clients, by type.
+	 *
+	 * @return the counters of the messages received
+	 */
+	Map<String, Long> getMessagesReceived();
+
+	/**
+	 * Returns the number of messages written to the clients, by type; a
+	 * broadcast counts once per connection.
+	 *
+	 * @return the counters of the messages sent
+	 */
+	Map<String, Long> getMessagesSent();
+
+	/**
+	 * Returns the times taken by the server to handle the messages received,
+	 * by type, including the broadcasts they cause.
+	 *
+	 * @return the parse latencies
+	 */
+	Map<String, LatencyStats> getParseLatencies();
+
+	/**
+	 * Returns the times taken to queue a broadcast to every client at a
+	 * table, by type.
+	 *
+	 * @return the broadcast latencies
+	 */
+	Map<String, LatencyStats> getBroadcastLatencies();
+
+	/**
+	 * Returns the times taken to serialize the messages sent, by type.
+	 *
+	 * @return the serialization latencies
+	 */
+	Map<String, LatencyStats> getSerializationLatencies();
+
+	/**
+	 * Returns the average time from queueing a message to writing it.
+	 *
+	 * @return the mean time to send, in milliseconds
+	 */
+	double getAverageSendMillis();
+
+	/**
+	 * Returns the number of messages waiting in the send queues.
+	 *
+	 * @return the depth of all the queues
+	 */
+	long getQueueDepth();
+
+	/**
+	 * Returns the number of chat messages dropped by full queues.
+	 *
+	 * @return the number of dropped messages
+	 */
+	long getMessagesDropped();
+
+	/**
+	 * Returns the number of chat messages merged into others by full queues.
+	 *
+	 * @return the number of coalesced messages
+	 */
+	long getMessagesCoalesced();
+
+	/**
+	 * Returns the number of clients disconnected because their queue was full.
+	 *
+	 * @return the number of overflows
+	 */
+	long getOverflows();
+
+	/**
+	 * Returns the bytes sent since the serialization state of each connection
+	 * was last reset, summed over the connections: an estimate of that state,
+	 * not the memory it takes.
+	 *
+	 * @return the bytes sent since the last resets
+	 */
+	long getBytesSinceReset();
+}
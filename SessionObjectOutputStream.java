@@ -0,0 +1,121 @@
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+/**
+ * This class is an ObjectOutputStream for a long-lived connection. An
+ * ObjectOutputStream remembers every object it has written, so that it can
+ * send a reference instead when the object is written again; over a whole
+ * session that keeps every message ever sent reachable. This stream counts
+ * the bytes written since it last forgot them, and resets itself between
+ * messages once they reach a limit, so the memory it holds stays bounded
+ * however long the session lasts. The reading ObjectInputStream forgets its
+ * objects at the same point, so both ends stay flat.
+ *
+ * @author Kang Hyunwoo
+ */
+public class SessionObjectOutputStream extends ObjectOutputStream {
+	/**
+	 * The default number of bytes written between two resets.
+	 */
+	public static final int DEFAULT_RESET_BYTES = 64 * 1024;
+
+	private final CountingOutputStream counter;
+	private final int resetBytes;
+	// the number of bytes written when the stream was last reset
+	private long resetPosition = 0;
+	private long numOfResets = 0;
+
+	/**
+	 * Creates a stream which resets itself every DEFAULT_RESET_BYTES bytes.
+	 *
+	 * @param out the stream of the connection
+	 * @throws IOException if the stream header cannot be written
+	 */
+	public SessionObjectOutputStream(OutputStream out) throws IOException {
+		this(out, DEFAULT_RESET_BYTES);
+	}
+
+	/**
+	 * Creates a stream which resets itself once the specified number of bytes
+	 * has been written since the last reset.
+	 *
+	 * @param out        the stream of the connection
+	 * @param resetBytes the number of bytes between two resets, or 0 to reset
+	 *                   after every message
+	 * @throws IOException if the stream header cannot be written
+	 */
+	public SessionObjectOutputStream(OutputStream out, int resetBytes) throws IOException {
+		this(new CountingOutputStream(out), resetBytes);
+	}
+
+	private SessionObjectOutputStream(CountingOutputStream counter, int resetBytes) throws IOException {
+		super(counter);
+		this.counter = counter;
+		this.resetBytes = resetBytes;
+	}
+
+	/**
+	 * Writes a message and flushes it, then resets the stream if enough bytes
+	 * have been written since the last reset.
+	 *
+	 * @param message the message to be written
+	 * @throws IOException if the message cannot be written
+	 */
+	public void writeMessage(Object message) throws IOException {
+		writeObject(message);
+		// flushed first, so the count includes the whole message
+		flush();
+		if (getBytesSinceReset() >= resetBytes) {
+			reset();
+			flush();
+			resetPosition = counter.count;
+			numOfResets++;
+		}
+	}
+
+	/**
+	 * Returns the number of bytes written to the connection since the stream
+	 * was last reset. It is an estimate of what the stream remembers, not a
+	 * measure of the memory it holds: the objects themselves take more memory
+	 * than their serialized form, and an object written twice counts twice.
+	 *
+	 * @return the bytes written since the last reset
+	 */
+	public long getBytesSinceReset() {
+		return counter.count - resetPosition;
+	}
+
+	/**
+	 * Returns the number of times the stream has been reset.
+	 *
+	 * @return the number of resets
+	 */
+	public long getNumOfResets() {
+		return numOfResets;
+	}
+
+	/**
+	 * An output stream counting the bytes written through it.
+	 */
+	private static class CountingOutputStream extends FilterOutputStream {
+		private volatile long count = 0;
+
+		CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+}
@@ -0,0 +1,116 @@
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.nio.ByteBuffer;
+
+/**
+ * This class is a message sent to many connections at once, such as a
+ * broadcast to the players and spectators of a table. The first connection to
+ * write it with a codec encodes the frame, and every other connection with the
+ * same codec writes the same immutable bytes, so a message watched by hundreds
+ * of spectators is encoded once per codec instead of once per connection.
+ * <p>
+ * An ObjectOutputStream cannot share bytes between streams; it writes the
+ * message as a plain CardGameMessage.
+ *
+ * @author Kang Hyunwoo
+ */
+public final class SharedMessage extends CardGameMessage {
+	private static final long serialVersionUID = 2210674938166525530L;
+	// the largest codec id whose frames are kept
+	private static final int MAX_CODEC_ID = 7;
+
+	// the encoded frame for each codec id, or null until it is first needed
+	private final transient ByteBuffer[] frames = new ByteBuffer[MAX_CODEC_ID + 1];
+
+	private SharedMessage(CardGameMessage message) {
+		super(message.getType(), message.getPlayerID(), message.getData());
+	}
+
+	/**
+	 * Returns a shared message with the same type, playerID and data as the
+	 * specified message.
+	 *
+	 * @param message the message to be sent to many connections
+	 * @return the message itself if it is already shared; otherwise a new
+	 *         shared message
+	 */
+	public static SharedMessage of(CardGameMessage message) {
+		return message instanceof SharedMessage ? (SharedMessage) message : new SharedMessage(message);
+	}
+
+	/**
+	 * Returns the frame of this message encoded by the specified codec. The
+	 * frame is encoded the first time it is needed, and the same bytes are
+	 * returned afterwards.
+	 *
+	 * @param codec the codec used by the connection
+	 * @param queue the send queue of the connection, which records the time
+	 *              taken if the frame is encoded now
+	 * @return a new buffer over the shared read-only frame, positioned at its
+	 *         first byte
+	 * @throws IOException if the message cannot be encoded
+	 */
+	public ByteBuffer frameFor(MessageCodec codec, SendQueue queue) throws IOException {
+		int id = codec.getId();
+		if (id < 0 || id > MAX_CODEC_ID) {
+			return encode(codec, queue);
+		}
+		synchronized (frames) {
+			if (frames[id] == null) {
+				frames[id] = encode(codec, queue).asReadOnlyBuffer();
+			}
+			return frames[id].duplicate();
+		}
+	}
+
+	private ByteBuffer encode(MessageCodec codec, SendQueue queue) throws IOException {
+		long start = System.nanoTime();
+		ByteBuffer frame = FramedProtocol.encodeFrame(codec, this);
+		queue.encoded(this, System.nanoTime() - start);
+		return frame;
+	}
+
+	/**
+	 * Throws an UnsupportedOperationException, since a shared message may
+	 * already have been encoded.
+	 *
+	 * @param type not used
+	 */
+	@Override
+	public void setType(int type) {
+		throw new UnsupportedOperationException("A shared message cannot be changed");
+	}
+
+	/**
+	 * Throws an UnsupportedOperationException, since a shared message may
+	 * already have been encoded.
+	 *
+	 * @param playerID not used
+	 */
+	@Override
+	public void setPlayerID(int playerID) {
+		throw new UnsupportedOperationException("A shared message cannot be changed");
+	}
+
+	/**
+	 * Throws an UnsupportedOperationException, since a shared message may
+	 * already have been encoded.
+	 *
+	 * @param data not used
+	 */
+	@Override
+	public void setData(Object data) {
+		throw new UnsupportedOperationException("A shared message cannot be changed");
+	}
+
+	/**
+	 * Writes a plain CardGameMessage in place of this message, so readers do
+	 * not need this class.
+	 *
+	 * @return a CardGameMessage with the same type, playerID and data
+	 * @throws ObjectStreamException never
+	 */
+	private Object writeReplace() throws ObjectStreamException {
+		return new CardGameMessage(getType(), getPlayerID(), getData());
+	}
+}
@@ -0,0 +1,177 @@
+/**
+ * This class is used to collect the results of simulated Big Two games. Each
+ * simulation task fills its own result, and the results of the tasks are
+ * merged when they are joined, so no result is ever shared between threads.
+ *
+ * @author Kang Hyunwoo
+ */
+public class SimulationResult {
+	/**
+	 * Games longer than this number of moves are counted in the last bucket of
+	 * the game length distribution.
+	 */
+	public static final int MAX_GAME_LENGTH = 255;
+
+	private final int numOfPlayers;
+	private long numOfGames;
+	private long numOfMoves;
+	private long numOfRejectedMoves;
+	private final long[] wins;
+	// cardsLeft[seat][n]: number of games where the seat ended with n cards
+	private final long[][] cardsLeft;
+	// gameLengths[n]: number of games which took n moves (passes included)
+	private final long[] gameLengths;
+
+	/**
+	 * Creates an empty result.
+	 *
+	 * @param numOfPlayers the number of players in a game
+	 */
+	public SimulationResult(int numOfPlayers) {
+		this.numOfPlayers = numOfPlayers;
+		this.wins = new long[numOfPlayers];
+		this.cardsLeft = new long[numOfPlayers][14];
+		this.gameLengths = new long[MAX_GAME_LENGTH + 1];
+	}
+
+	/**
+	 * Records a finished game.
+	 *
+	 * @param game       the finished game
+	 * @param winnerIdx  the index of the player who won
+	 * @param numOfMoves the number of moves (passes included) in the game
+	 */
+	public void addGame(BigTwo game, int winnerIdx, int numOfMoves) {
+		numOfGames++;
+		this.numOfMoves += numOfMoves;
+		wins[winnerIdx]++;
+		for (int i = 0; i < numOfPlayers; i++) {
+			cardsLeft[i][Math.min(13, game.getPlayerList().get(i).getNumOfCards())]++;
+		}
+		gameLengths[Math.min(MAX_GAME_LENGTH, numOfMoves)]++;
+	}
+
+	/**
+	 * Records a move returned by a policy which was not legal.
+	 */
+	public void addRejectedMove() {
+		numOfRejectedMoves++;
+	}
+
+	/**
+	 * Adds the results of another simulation to this one.
+	 *
+	 * @param other the result to be added
+	 * @return this result
+	 */
+	public SimulationResult merge(SimulationResult other) {
+		numOfGames += other.numOfGames;
+		numOfMoves += other.numOfMoves;
+		numOfRejectedMoves += other.numOfRejectedMoves;
+		for (int i = 0; i < numOfPlayers; i++) {
+			wins[i] += other.wins[i];
+			for (int n = 0; n < 14; n++) {
+				cardsLeft[i][n] += other.cardsLeft[i][n];
+			}
+		}
+		for (int n = 0; n <= MAX_GAME_LENGTH; n++) {
+			gameLengths[n] += other.gameLengths[n];
+		}
+		return this;
+	}
+
+	/**
+	 * Returns the number of games played.
+	 *
+	 * @return the number of games played
+	 */
+	public long getNumOfGames() {
+		return numOfGames;
+	}
+
+	/**
+	 * Returns the number of moves made in all the games.
+	 *
+	 * @return the number of moves, passes included
+	 */
+	public long getNumOfMoves() {
+		return numOfMoves;
+	}
+
+	/**
+	 * Returns the number of illegal moves returned by the policies. Each one was
+	 * replaced by a legal move.
+	 *
+	 * @return the number of rejected moves
+	 */
+	public long getNumOfRejectedMoves() {
+		return numOfRejectedMoves;
+	}
+
+	/**
+	 * Returns the number of games won by the specified seat.
+	 *
+	 * @param playerIdx the index of the seat
+	 * @return the number of games won
+	 */
+	public long getWins(int playerIdx) {
+		return wins[playerIdx];
+	}
+
+	/**
+	 * Returns the win rate of the specified seat.
+	 *
+	 * @param playerIdx the index of the seat
+	 * @return the fraction of games won
+	 */
+	public double getWinRate(int playerIdx) {
+		return numOfGames == 0 ? 0.0 : (double) wins[playerIdx] / numOfGames;
+	}
+
+	/**
+	 * Returns the number of games in which the specified seat ended with the
+	 * specified number of cards.
+	 *
+	 * @param playerIdx the index of the seat
+	 * @param n         the number of cards left, between 0 and 13
+	 * @return the number of games
+	 */
+	public long getCardsLeft(int playerIdx, int n) {
+		return cardsLeft[playerIdx][n];
+	}
+
+	/**
+	 * Returns the number of games which took the specified number of moves.
+	 *
+	 * @param n the number of moves; games longer than MAX_GAME_LENGTH are
+	 *          counted at MAX_GAME_LENGTH
+	 * @return the number of games
+	 */
+	public long getGameLength(int n) {
+		return gameLengths[n];
+	}
+
+	/**
+	 * Returns a string representation of the result.
+	 *
+	 * @return a summary of win rates, game lengths and cards left
+	 */
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("Games: ").append(numOfGames).append("\n");
+		sb.append(String.format("Average game length: %.2f moves\n",
+				numOfGames == 0 ? 0.0 : (double) numOfMoves / numOfGames));
+		if (numOfRejectedMoves > 0) {
+			sb.append("Rejected policy moves: ").append(numOfRejectedMoves).append("\n");
+		}
+		for (int i = 0; i < numOfPlayers; i++) {
+			long totalLeft = 0;
+			for (int n = 0; n < 14; n++) {
+				totalLeft += n * cardsLeft[i][n];
+			}
+			sb.append(String.format("Player %d: win rate %.4f, average cards left %.2f\n", i, getWinRate(i),
+					numOfGames == 0 ? 0.0 : (double) totalLeft / numOfGames));
+		}
+		return sb.toString();
+	}
+}
@@ -24,6 +24,14 @@ public class Single extends Hand{
 		return "Single";
 	}
 	
+	/**
+	 * method for getting the type code of this hand
+	 * @return HandClassifier.SINGLE
+	 */
+	public int getTypeCode() {
+		return HandClassifier.SINGLE;
+	}
+	
 	/**
 	 * method for checking whether thee type is valid hand
 	 * @return true if the hand is valid single, false if it is not
@@ -0,0 +1,151 @@
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This class is a client connection over a blocking socket, speaking the
+ * original protocol: a single ObjectOutputStream over the whole connection,
+ * which is reset every few kilobytes so it does not keep every message ever
+ * sent (see SessionObjectOutputStream).
+ * send() only adds the message to the SendQueue of the connection; a writer
+ * task, started on the given executor whenever the queue stops being empty,
+ * writes the queued messages and ends when the queue is drained, so no thread
+ * waits on a client which is not being sent anything.
+ *
+ * @author Kang Hyunwoo
+ */
+public class SocketConnection implements ClientConnection {
+	private final Socket socket;
+	private final SessionObjectOutputStream oostream;
+	private final SendQueue queue;
+	private final Executor writer;
+	private final AtomicBoolean drainScheduled = new AtomicBoolean();
+	private final Runnable drainTask = this::drain;
+	private volatile boolean closing;
+
+	/**
+	 * Creates a connection and the ObjectOutputStream of the specified socket.
+	 *
+	 * @param socket     the socket connection to the client
+	 * @param queue      the queue of the messages waiting to be written
+	 * @param writer     the executor running the task which writes the messages
+	 * @param resetBytes the number of bytes written between two resets of the
+	 *                   ObjectOutputStream
+	 * @throws IOException if the stream cannot be created
+	 */
+	public SocketConnection(Socket socket, SendQueue queue, Executor writer, int resetBytes) throws IOException {
+		this.socket = socket;
+		this.oostream = new SessionObjectOutputStream(socket.getOutputStream(), resetBytes);
+		this.queue = queue;
+		this.writer = writer;
+	}
+
+	/**
+	 * Returns the socket of this connection.
+	 *
+	 * @return the socket connection to the client
+	 */
+	public Socket getSocket() {
+		return socket;
+	}
+
+	/**
+	 * Queues the specified message to be written. If the queue overflows and
+	 * its policy is to disconnect, the socket is closed, and the thread reading
+	 * from it removes the connection.
+	 *
+	 * @param message the message to be sent
+	 */
+	public void send(CardGameMessage message) {
+		if (closing) {
+			return;
+		}
+		if (!queue.offer(message)) {
+			closeNow();
+			return;
+		}
+		scheduleDrain();
+	}
+
+	/**
+	 * Closes the socket once the queued messages have been written.
+	 */
+	public void close() {
+		closing = true;
+		scheduleDrain();
+	}
+
+	/**
+	 * Returns the address of the client.
+	 *
+	 * @return the remote socket address
+	 */
+	public String getRemoteAddress() {
+		return String.valueOf(socket.getRemoteSocketAddress());
+	}
+
+	/**
+	 * Returns the number of bytes written since the ObjectOutputStream was
+	 * last reset.
+	 *
+	 * @return the bytes written since the last reset
+	 */
+	public long getBytesSinceReset() {
+		return oostream.getBytesSinceReset();
+	}
+
+	private void scheduleDrain() {
+		if (drainScheduled.compareAndSet(false, true)) {
+			try {
+				writer.execute(drainTask);
+			} catch (RuntimeException ex) {
+				// the server is stopping
+				closeNow();
+			}
+		}
+	}
+
+	/**
+	 * Writes the queued messages until the queue is empty.
+	 */
+	private void drain() {
+		try {
+			while (true) {
+				SendQueue.Entry entry = queue.poll();
+				if (entry == null) {
+					drainScheduled.set(false);
+					// a message queued after the poll, by a sender which saw
+					// the task still scheduled, is written by this task
+					if (queue.size() > 0 && drainScheduled.compareAndSet(false, true)) {
+						continue;
+					}
+					break;
+				}
+				long start = System.nanoTime();
+				oostream.writeMessage(entry.getMessage());
+				queue.encoded(entry.getMessage(), System.nanoTime() - start);
+				queue.sent(entry);
+			}
+			if (closing && queue.size() == 0) {
+				closeNow();
+			}
+		} catch (IOException ex) {
+			drainScheduled.set(false);
+			closeNow();
+		}
+	}
+
+	/**
+	 * Closes the socket at once, dropping the queued messages.
+	 */
+	private void closeNow() {
+		closing = true;
+		queue.clear();
+		try {
+			socket.close();
+		} catch (IOException ex) {
+			// the socket is closed anyway
+		}
+	}
+}
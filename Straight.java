@@ -24,6 +24,14 @@ public class Straight extends Hand{
 		return "Straight";
 	}
 	
+	/**
+	 * method for getting the type code of this hand
+	 * @return HandClassifier.STRAIGHT
+	 */
+	public int getTypeCode() {
+		return HandClassifier.STRAIGHT;
+	}
+	
 	/**
 	 * a method for checking whether the type is valid Straight.
 	 * @return true if the hand is Straight, return false if it is not.
@@ -32,36 +40,8 @@ public class Straight extends Hand{
 		if (this.size() != 5) {
 			return false;
 		} else {
-			boolean isStraight = true;
-			int startRank = this.getCard(0).getRank();
-			
-			for(int i=0; i<5; i++) {
-				if(startRank != this.getCard(i).getRank()) {
-					isStraight = false;
-					return isStraight;
-				}
-				startRank ++;
-			}
-			
-			return isStraight;
-		}
-	}
-	
-	/**
-	 * a method for checking if this hand beats any other straight.
-	 * @param hand Hand object, specifically Quad hand 
-	 * @return boolean true if player's hand beats the latest hand, false if not.
-	 */
-	public boolean beats(Hand hand) {
-		if(this.getType() != hand.getType()) {
-			return false;
-		} else {//both Straight
-			if(this.getTopCard().getRank() != hand.getTopCard().getRank()){//if top card's rank is different
-				return this.getTopCard().getRank() > hand.getTopCard().getRank();//top card with higher rank wins
-			}
-			else {//if top card's rank is same
-				return this.getTopCard().getSuit() > hand.getTopCard().getSuit();//top card with higher suit wins
-			}
+			//ranks are consecutive in the Big Two order, so 2 and A only go with K
+			return HandClassifier.isStraight(this.getMask());
 		}
 	}
 }
@@ -23,6 +23,14 @@ public class StraightFlush extends Hand{
 		return "StraightFlush";
 	}
 	
+	/**
+	 * method for getting the type code of this hand
+	 * @return HandClassifier.STRAIGHT_FLUSH
+	 */
+	public int getTypeCode() {
+		return HandClassifier.STRAIGHT_FLUSH;
+	}
+	
 	/**
 	 * a method for checking whether the type is valid StraightFlush.
 	 * @return true if the hand is StraightFlush, return false if it is not.
@@ -41,41 +49,10 @@ public class StraightFlush extends Hand{
 				}
 			}
 			
-			boolean isStraight = true;
-			int startRank = this.getCard(0).getRank();
-			
-			for(int i=0; i<5; i++) {
-				if(startRank != this.getCard(i).getRank()) {
-					isStraight = false;
-					return isStraight;
-				}
-				startRank ++;
-			}
+			//ranks are consecutive in the Big Two order, so 2 and A only go with K
+			boolean isStraight = HandClassifier.isStraight(this.getMask());
 			
 			return isFlush==true && isStraight==true;
 		}
 	}
-	
-	/**
-	 * a method for checking if this hand beats Straight, Flush,FullHouse or Quad
-	 * @param hand Hand object, specifically StraightFlush hand 
-	 * @return boolean true if player's hand beats the latest hand, false if not.
-	 */
-	public boolean beats(Hand hand) {
-		if(this.getType() != hand.getType()) {
-			if(hand.getType()=="Straight" || hand.getType()=="Flush" || hand.getType()=="FullHouse" || hand.getType()=="Quad") {
-				return true;
-			} else {
-				return false;
-			}
-		} 
-		else {//both straightflush
-			if(this.getTopCard().getRank() != hand.getTopCard().getRank()){
-				return this.getTopCard().getRank() > hand.getTopCard().getRank();
-			}
-			else {
-				return this.getTopCard().getSuit() > hand.getTopCard().getSuit();
-			}
-		}
-	}
 }
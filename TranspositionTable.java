@@ -0,0 +1,235 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class is a fixed-size transposition table for searches over Big Two
+ * positions, which can be shared by many search threads without locks.
+ * <p>
+ * Positions are keyed on a Zobrist hash of the cards of each player, the
+ * player to move, the last hand on the table and the root player of the
+ * search (see hashOf()). The table is a single primitive long array, so it
+ * holds no objects for the garbage collector to trace however large it is.
+ * Each bucket has two entries: one kept for the deepest result of the current
+ * search, and one always replaced. A solver starts a new search with
+ * newSearch(), after which the entries of older searches are replaced first.
+ * <p>
+ * An entry is three longs: a check word, the best move and a word packing the
+ * value, bound, depth and age. They are written one by one without locking,
+ * and the check word is the hash XOR the two other words, so an entry torn by
+ * two threads writing at once does not match any hash and reads as a miss.
+ *
+ * @author Kang Hyunwoo
+ */
+public class TranspositionTable {
+	/**
+	 * Bound type of an exact value.
+	 */
+	public static final int EXACT = 0;
+	/**
+	 * Bound type of a value which is a lower bound (the search failed high).
+	 */
+	public static final int LOWER = 1;
+	/**
+	 * Bound type of a value which is an upper bound (the search failed low).
+	 */
+	public static final int UPPER = 2;
+
+	// longs per entry, and entries per bucket
+	private static final int ENTRY_SIZE = 3;
+	private static final int BUCKET_SIZE = 2;
+	private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+	// Zobrist keys of each card held by each player, of the player to move and of the root player
+	private static final long[][] CARD_KEYS = new long[BigTwoState.NUM_OF_PLAYERS][CardSet.NUM_OF_CARDS];
+	private static final long[] TO_MOVE_KEYS = new long[BigTwoState.NUM_OF_PLAYERS];
+	private static final long[] ROOT_KEYS = new long[BigTwoState.NUM_OF_PLAYERS];
+
+	static {
+		SplittableRandom random = new SplittableRandom(0x5EED2B16L);
+		for (int i = 0; i < BigTwoState.NUM_OF_PLAYERS; i++) {
+			for (int j = 0; j < CardSet.NUM_OF_CARDS; j++) {
+				CARD_KEYS[i][j] = random.nextLong();
+			}
+			TO_MOVE_KEYS[i] = random.nextLong();
+			ROOT_KEYS[i] = random.nextLong();
+		}
+	}
+
+	private final long[] slots;
+	private final long bucketMask;
+	// the number of searches started, of which the low 8 bits are stored
+	private final AtomicInteger age = new AtomicInteger();
+
+	/**
+	 * This class is used to receive the content of an entry found by probe(). Each
+	 * search thread should use its own Entry.
+	 */
+	public static class Entry {
+		private long move;
+		private int value;
+		private int bound;
+
+		/**
+		 * Returns the best move stored in the entry.
+		 *
+		 * @return the CardSet mask of the best move, or 0 for a pass
+		 */
+		public long getMove() {
+			return move;
+		}
+
+		/**
+		 * Returns the value stored in the entry.
+		 *
+		 * @return the value of the position
+		 */
+		public int getValue() {
+			return value;
+		}
+
+		/**
+		 * Returns the bound type of the value.
+		 *
+		 * @return EXACT, LOWER or UPPER
+		 */
+		public int getBound() {
+			return bound;
+		}
+	}
+
+	/**
+	 * Creates a transposition table using about the specified amount of memory.
+	 * The number of buckets is rounded down to a power of two.
+	 *
+	 * @param bytes the memory to be used, in bytes
+	 */
+	public TranspositionTable(long bytes) {
+		long bucketBytes = 8L * ENTRY_SIZE * BUCKET_SIZE;
+		long maxBuckets = Integer.MAX_VALUE / (ENTRY_SIZE * BUCKET_SIZE);
+		long buckets = Long.highestOneBit(Math.max(1, Math.min(bytes / bucketBytes, maxBuckets)));
+		this.slots = new long[(int) (buckets * ENTRY_SIZE * BUCKET_SIZE)];
+		this.bucketMask = buckets - 1;
+	}
+
+	/**
+	 * Returns the hash of the specified position searched for the specified root
+	 * player.
+	 *
+	 * @param state         the position
+	 * @param rootPlayerIdx the player for whom the position is searched
+	 * @return the 64-bit hash of the position
+	 */
+	public static long hashOf(BigTwoState state, int rootPlayerIdx) {
+		long hash = TO_MOVE_KEYS[state.getCurrentPlayerIdx()] ^ ROOT_KEYS[rootPlayerIdx];
+		for (int i = 0; i < BigTwoState.NUM_OF_PLAYERS; i++) {
+			for (long rest = state.getHand(i); rest != 0; rest &= rest - 1) {
+				hash ^= CARD_KEYS[i][Long.numberOfTrailingZeros(rest)];
+			}
+		}
+		// the last hand and the first-move rule are mixed in rather than keyed per value
+		long table = ((long) (state.getLastPlayerIdx() + 1) << 32) | (state.getLastKey() & 0xFFFFFFFFL);
+		if (state.getRequiredCards() != 0) {
+			table |= 1L << 40;
+		}
+		return hash ^ mix(table);
+	}
+
+	/**
+	 * Starts a new search. Entries of older searches are replaced first. When
+	 * solvers share the table, the search started by any of them makes the
+	 * entries of the others older.
+	 */
+	public void newSearch() {
+		age.incrementAndGet();
+	}
+
+	/**
+	 * Looks the specified position up.
+	 *
+	 * @param hash  the hash of the position
+	 * @param entry the entry which receives the content found
+	 * @return true if the position was found; otherwise false
+	 */
+	public boolean probe(long hash, Entry entry) {
+		int base = bucketOf(hash);
+		for (int i = 0; i < BUCKET_SIZE; i++) {
+			int slot = base + i * ENTRY_SIZE;
+			long check = (long) SLOTS.getOpaque(slots, slot);
+			long move = (long) SLOTS.getOpaque(slots, slot + 1);
+			long data = (long) SLOTS.getOpaque(slots, slot + 2);
+			if ((check ^ move ^ data) == hash && data != 0) {
+				entry.move = move;
+				entry.value = (short) data;
+				entry.bound = (int) (data >>> 16) & 0x3;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Stores the result of a search of the specified position.
+	 *
+	 * @param hash  the hash of the position
+	 * @param move  the best move found, or 0 for a pass
+	 * @param value the value of the position, between -32768 and 32767
+	 * @param bound the bound type of the value: EXACT, LOWER or UPPER
+	 * @param depth the depth of the search, between 0 and 255
+	 */
+	public void store(long hash, long move, int value, int bound, int depth) {
+		int currentAge = age.get() & 0xFF;
+		// bit 63 keeps the word of a stored entry from ever being 0 (an empty slot)
+		long data = (value & 0xFFFFL) | ((long) bound << 16) | ((long) depth << 18) | ((long) currentAge << 26)
+				| (1L << 63);
+		int base = bucketOf(hash);
+
+		// the first entry keeps the deepest result of the current search
+		long oldData = (long) SLOTS.getOpaque(slots, base + 2);
+		long oldCheck = (long) SLOTS.getOpaque(slots, base);
+		long oldMove = (long) SLOTS.getOpaque(slots, base + 1);
+		int oldDepth = (int) (oldData >>> 18) & 0xFF;
+		int oldAge = (int) (oldData >>> 26) & 0xFF;
+		boolean samePosition = (oldCheck ^ oldMove ^ oldData) == hash;
+		int slot;
+		if (oldData == 0 || samePosition || oldAge != currentAge || depth >= oldDepth) {
+			slot = base;
+		} else {
+			slot = base + ENTRY_SIZE;
+		}
+		SLOTS.setOpaque(slots, slot, hash ^ move ^ data);
+		SLOTS.setOpaque(slots, slot + 1, move);
+		SLOTS.setOpaque(slots, slot + 2, data);
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public void clear() {
+		Arrays.fill(slots, 0L);
+	}
+
+	/**
+	 * Returns the number of entries of the table.
+	 *
+	 * @return the number of entries
+	 */
+	public long getNumOfEntries() {
+		return slots.length / ENTRY_SIZE;
+	}
+
+	private int bucketOf(long hash) {
+		return (int) (mix(hash) & bucketMask) * ENTRY_SIZE * BUCKET_SIZE;
+	}
+
+	/**
+	 * The finalizer of SplitMix64, used to spread the bits of a value.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -23,6 +23,14 @@ public class Triple extends Hand{
 		return "Triple";
 	}
 	
+	/**
+	 * method for getting the type code of this hand
+	 * @return HandClassifier.TRIPLE
+	 */
+	public int getTypeCode() {
+		return HandClassifier.TRIPLE;
+	}
+	
 	/**
 	 * method for checking whether the type is valid hand Triple
 	 * @return boolean true if the hand is valid Triple, false if it is not.